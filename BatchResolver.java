@@ -0,0 +1,264 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Resolves a stream of queries in parallel and writes the results in query order.
+ *
+ * Every line of the input is one query: a package to install, optionally followed by installed
+ * packages, separated by spaces, e.g. "A" or "A B C". The matching output line is "OK" followed by
+ * the packages that need to be newly installed in a valid installation order (see
+ * PackageManager.toInstall(String, Collection, List)), or "ERR", the kind of error and a message,
+ * like the responses of ResolverServer. Empty input lines give empty output lines.
+ *
+ * Lines are read in chunks of CHUNK_SIZE. A reader thread hands every chunk to the workers and to
+ * the writer, which waits for the chunks in input order; both queues are bounded, so the reader
+ * stops reading while the writer is behind. Workers reuse their traversal scratch space (see
+ * Traversal) and share the installation order cache of the package manager.
+ */
+public class BatchResolver {
+
+  private static final Logger LOG = Logger.getLogger(BatchResolver.class.getName());
+
+  /** Number of queries handed to a worker at once. */
+  static final int CHUNK_SIZE = 256;
+
+  /** Chunks that are read but not written yet, per worker. */
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private final PackageManager manager;
+  private final int workers;
+
+  /**
+   * Instantiates a batch resolver.
+   *
+   * @param manager the package manager that answers the queries, with its graph loaded
+   * @param workers the number of worker threads
+   */
+  public BatchResolver(PackageManager manager, int workers) {
+    if (workers < 1)
+      throw new IllegalArgumentException("workers must be positive: " + workers);
+    this.manager = manager;
+    this.workers = workers;
+  }
+
+  /**
+   * Resolves all queries of a stream and writes one result line per query, in query order. The
+   * streams are not closed.
+   *
+   * @param in the queries
+   * @param out receives the results
+   * @return the number of queries
+   * @throws IOException if reading or writing fails
+   * @throws InterruptedException if interrupted while waiting for results
+   */
+  public long resolve(Reader in, Writer out) throws IOException, InterruptedException {
+    int capacity = this.workers * CHUNKS_PER_WORKER;
+    final BlockingQueue<Chunk> work = new ArrayBlockingQueue<Chunk>(capacity);
+    final BlockingQueue<Chunk> ordered = new ArrayBlockingQueue<Chunk>(capacity);
+    final BufferedReader lines = in instanceof BufferedReader ? (BufferedReader) in
+      : new BufferedReader(in);
+    final IOException[] readFailure = new IOException[1];
+
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < this.workers; i++)
+      threads.add(new Thread(() -> work(work), "batch-worker-" + i));
+    threads.add(new Thread(() -> {
+      try {
+        read(lines, work, ordered);
+      } catch (IOException e) {
+        readFailure[0] = e;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        // end of the queries: one marker per worker and one for the writer
+        try {
+          for (int i = 0; i < this.workers; i++)
+            work.put(Chunk.END);
+          ordered.put(Chunk.END);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, "batch-reader"));
+    for (Thread thread : threads) {
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    long queries = 0;
+    try {
+      for (Chunk chunk = ordered.take(); chunk != Chunk.END; chunk = ordered.take()) {
+        chunk.done.await();
+        for (int i = 0; i < chunk.size; i++) {
+          out.write(chunk.results[i]);
+          out.write('\n');
+        }
+        queries += chunk.size;
+      }
+      out.flush();
+    } finally {
+      for (Thread thread : threads)
+        thread.interrupt(); // unblocks the reader and the workers if writing failed
+    }
+
+    if (readFailure[0] != null)
+      throw readFailure[0];
+    return queries;
+  }
+
+  /**
+   * Reads the queries in chunks and hands every chunk to the workers and, in order, to the writer.
+   */
+  private static void read(BufferedReader lines, BlockingQueue<Chunk> work,
+    BlockingQueue<Chunk> ordered) throws IOException, InterruptedException {
+
+    Chunk chunk = new Chunk();
+    String line;
+    while ((line = lines.readLine()) != null) {
+      chunk.queries[chunk.size++] = line;
+      if (chunk.size == CHUNK_SIZE) {
+        ordered.put(chunk); // blocks while the writer is behind
+        work.put(chunk);
+        chunk = new Chunk();
+      }
+    }
+    if (chunk.size > 0) {
+      ordered.put(chunk);
+      work.put(chunk);
+    }
+  }
+
+  /**
+   * Resolves chunks until the end of the queries.
+   */
+  private void work(BlockingQueue<Chunk> work) {
+    List<String> toInstall = new ArrayList<String>();
+    StringBuilder result = new StringBuilder();
+    try {
+      for (Chunk chunk = work.take(); chunk != Chunk.END; chunk = work.take()) {
+        try {
+          for (int i = 0; i < chunk.size; i++) {
+            result.setLength(0);
+            resolve(chunk.queries[i], toInstall, result);
+            chunk.results[i] = result.toString();
+            chunk.queries[i] = null;
+          }
+        } finally {
+          chunk.done.countDown(); // never leave the writer waiting
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Resolves a single query.
+   *
+   * @param query the query line, e.g. "A B C"
+   * @param toInstall scratch list for the packages to install
+   * @param result receives the result line
+   */
+  private void resolve(String query, List<String> toInstall, StringBuilder result) {
+    String[] words = query.trim().split("\\s+");
+    if (words[0].isEmpty())
+      return;
+
+    try {
+      this.manager.toInstall(words[0], Arrays.asList(words).subList(1, words.length), toInstall);
+      result.append("OK");
+      for (String pkg : toInstall)
+        result.append(' ').append(pkg);
+    } catch (PackageNotFoundException e) {
+      result.append("ERR PackageNotFoundException ").append(query.trim());
+    } catch (Exception e) {
+      String message = String.valueOf(e.getMessage()).replace('\n', ' ').replace('\r', ' ');
+      result.append("ERR ").append(e.getClass().getSimpleName()).append(' ').append(message);
+    }
+  }
+
+  /**
+   * Consecutive queries with their results.
+   */
+  private static final class Chunk {
+
+    static final Chunk END = new Chunk();
+
+    final String[] queries = new String[CHUNK_SIZE];
+    final String[] results = new String[CHUNK_SIZE];
+    final CountDownLatch done = new CountDownLatch(1);
+    int size;
+  }
+
+  /**
+   * Usage: java BatchResolver [-t threads] index-file-or-glob ... [-q queries-file]
+   *
+   * Reads the queries from the queries file or from standard input and writes the results to
+   * standard output.
+   *
+   * @param args the command line
+   */
+  public static void main(String[] args) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    String queries = null;
+    List<String> paths = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-t") && i + 1 < args.length)
+        threads = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-q") && i + 1 < args.length)
+        queries = args[++i];
+      else
+        paths.add(args[i]);
+    }
+    if (paths.isEmpty()) {
+      System.err.println(
+        "Usage: java BatchResolver [-t threads] index-file-or-glob ... [-q queries]");
+      System.exit(2);
+    }
+
+    try {
+      PackageManager manager = new PackageManager(new CompactGraph());
+      // the pool only parses the index files, queries run on the batch's own threads
+      manager.setParallelism(threads);
+      manager.refresh(paths);
+      manager.close();
+
+      try (Reader in = new InputStreamReader(
+        queries == null ? System.in : new FileInputStream(queries), StandardCharsets.UTF_8)) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+          1 << 16);
+        long start = System.nanoTime();
+        long resolved = new BatchResolver(manager, threads).resolve(in, out);
+        LOG.fine(String.format("%d queries in %.1f ms", resolved,
+          (System.nanoTime() - start) / 1e6));
+      }
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, "Batch failed", e);
+      System.exit(1);
+    }
+  }
+}
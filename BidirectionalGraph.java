@@ -0,0 +1,29 @@
+import java.util.List;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A graph that also indexes its edges in reverse, so the vertices with an edge to a given vertex
+ * (in terms of packages: its dependents) can be listed without scanning the whole graph.
+ */
+public interface BidirectionalGraph extends GraphADT {
+
+  /**
+   * Get all the vertices that have an edge to a vertex.
+   * 
+   * For the example graph, A->[B, C], D->[A, B] getIncomingVerticesOf(B) should return [A, D].
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the vertices with an edge to the specified vertex, or null if
+   *         the vertex does not exist (implementations may also return null when it has no incoming
+   *         edges)
+   */
+  public List<String> getIncomingVerticesOf(String vertex);
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Size-bounded LRU cache of resolved installation orders (dependency closures), keyed by package.
+ *
+ * Registered as a listener on an ObservableGraph, the cache drops exactly the entries a change can
+ * affect: the changed package and every package that transitively depends on it. Those are found by
+ * walking the reverse edges of the graph; without a reverse index the whole cache is cleared.
+ *
+ * The cache is thread-safe. Every invalidation bumps a version number, and a closure is only
+ * stored if no invalidation happened since the caller started computing it (see getVersion), so a
+ * closure computed from a graph that changed meanwhile never enters the cache.
+ */
+public class ClosureCache implements GraphListener {
+
+  private final GraphADT graph;
+  private final int maxSize;
+  private final LinkedHashMap<String, List<String>> closures;
+  private long version;
+
+  /**
+   * Instantiates a new cache for the given graph.
+   *
+   * @param graph the graph the cached closures were computed from
+   * @param maxSize the maximum number of cached closures, least recently used are evicted first
+   */
+  public ClosureCache(GraphADT graph, final int maxSize) {
+    this.graph = graph;
+    this.maxSize = maxSize;
+    this.closures = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached installation order of a package.
+   *
+   * @param pkg the package
+   * @return the read-only installation order, or null if it is not cached
+   */
+  public synchronized List<String> get(String pkg) {
+    return this.closures.get(pkg);
+  }
+
+  /**
+   * Returns the current version of the cache. Read it before computing an installation order and
+   * pass it to put.
+   *
+   * @return the number of invalidations so far
+   */
+  public synchronized long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Caches the installation order of a package, unless the cache was invalidated since version.
+   *
+   * @param pkg the package
+   * @param installationOrder the installation order, copied into the cache
+   * @param version the cache version read before the installation order was computed
+   * @return the read-only installation order
+   */
+  public synchronized List<String> put(String pkg, List<String> installationOrder, long version) {
+    List<String> closure = Collections.unmodifiableList(new ArrayList<String>(installationOrder));
+    if (version == this.version)
+      this.closures.put(pkg, closure);
+    return closure;
+  }
+
+  /**
+   * Removes all cached installation orders.
+   */
+  public synchronized void clear() {
+    this.version++;
+    this.closures.clear();
+  }
+
+  /**
+   * Returns the number of cached installation orders.
+   *
+   * @return the number of entries
+   */
+  public synchronized int size() {
+    return this.closures.size();
+  }
+
+  /**
+   * Returns the maximum number of cached installation orders.
+   *
+   * @return the size bound
+   */
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Invalidates the changed package and all of its transitive dependents.
+   *
+   * @param vertex the changed package
+   */
+  public synchronized void vertexChanged(String vertex) {
+    this.version++;
+    if (this.closures.isEmpty())
+      return;
+
+    if (!(this.graph instanceof BidirectionalGraph)) {
+      this.closures.clear();
+      return;
+    }
+
+    BidirectionalGraph reverse = (BidirectionalGraph) this.graph;
+    Set<String> visited = new HashSet<String>();
+    List<String> ancestors = new ArrayList<String>();
+    visited.add(vertex);
+    ancestors.add(vertex);
+
+    for (int i = 0; i < ancestors.size() && !this.closures.isEmpty(); i++) {
+      String pkg = ancestors.get(i);
+      this.closures.remove(pkg);
+
+      List<String> dependents = reverse.getIncomingVerticesOf(pkg);
+      if (dependents == null)
+        continue;
+      for (String dependent : dependents) {
+        if (visited.add(dependent))
+          ancestors.add(dependent);
+      }
+    }
+  }
+
+  /**
+   * Drops every cached installation order that still contains a removed package. Those can only
+   * have been stored by a query that ran while the removal was in progress.
+   *
+   * @param vertex the removed package
+   */
+  public synchronized void vertexRemoved(String vertex) {
+    this.version++;
+    for (Iterator<List<String>> it = this.closures.values().iterator(); it.hasNext();) {
+      if (it.next().contains(vertex))
+        it.remove();
+    }
+  }
+}
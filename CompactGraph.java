@@ -0,0 +1,653 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Directed and unweighted graph implementation that interns vertex names to dense int IDs and
+ * stores adjacency as primitive int arrays.
+ *
+ * While the graph is being built every vertex owns a growable int buffer. Calling freeze() packs
+ * all buffers into a single CSR (compressed sparse row) layout: one offsets array and one targets
+ * array. Mutating a frozen graph transparently unpacks it again; adding an edge that already exists
+ * or removing one that does not is not a mutation and leaves it packed.
+ *
+ * Edges are indexed in both directions, so removing a vertex only touches its own edges. While
+ * the graph is being built, a vertex with more than Graph.INDEX_THRESHOLD dependencies or
+ * dependents also keeps them in an int hash table, so adding an edge finds a duplicate, and
+ * removing one finds its entry, in expected constant time. Removing a vertex thus takes expected
+ * time linear in its own degree, even if it depends on a hub with many dependents.
+ */
+public class CompactGraph implements IndexedGraph, BidirectionalGraph, ObservableGraph {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_DEGREE = 4;
+
+  private int numOfEdges;
+  private int numOfVert;
+
+  // vertex name -> ID, and ID -> vertex name (null if the ID is free)
+  private HashMap<String, Integer> ids;
+  private String[] names;
+  private int idBound;
+
+  // IDs of removed vertices, reused by addVertex
+  private int[] freeIds;
+  private int numOfFreeIds;
+
+  // dependencies and dependents of every vertex
+  private Adjacency out;
+  private Adjacency in;
+
+  private List<GraphListener> listeners;
+
+  /**
+   * Instantiates a new, empty graph.
+   */
+  public CompactGraph() {
+    this.numOfEdges = 0;
+    this.numOfVert = 0;
+    this.ids = new HashMap<String, Integer>();
+    this.names = new String[INITIAL_CAPACITY];
+    this.idBound = 0;
+    this.freeIds = new int[INITIAL_CAPACITY];
+    this.numOfFreeIds = 0;
+    this.out = new Adjacency(INITIAL_CAPACITY);
+    this.in = new Adjacency(INITIAL_CAPACITY);
+    this.listeners = new ArrayList<GraphListener>();
+  }
+
+  /**
+   * Add new vertex to the graph.
+   *
+   * If vertex is null or already exists, method ends without adding a vertex or throwing an
+   * exception.
+   *
+   * @param vertex the vertex
+   */
+  public void addVertex(String vertex) {
+    if (vertex == null || this.ids.containsKey(vertex))
+      return;
+
+    intern(vertex);
+  }
+
+  /**
+   * Remove a vertex and all associated edges from the graph.
+   *
+   * If vertex is null or does not exist, method ends without removing a vertex, edges, or throwing an
+   * exception.
+   *
+   * @param vertex the vertex
+   */
+  public void removeVertex(String vertex) {
+    int id = idOf(vertex);
+    if (id < 0)
+      return;
+
+    fireVertexChanged(vertex);
+    thaw();
+
+    // remove all edges from vertex: only the other ends need to change, its own lists are dropped
+    int outDegree = this.out.degree(id);
+    for (int i = 0; i < outDegree; i++)
+      this.in.remove(this.out.get(id, i), id);
+
+    // remove all edges to vertex; a self-loop was already dropped from its dependents above
+    int inDegree = this.in.degree(id);
+    for (int i = 0; i < inDegree; i++)
+      this.out.remove(this.in.get(id, i), id);
+    this.numOfEdges -= outDegree + inDegree;
+
+    this.out.clear(id);
+    this.in.clear(id);
+
+    this.ids.remove(vertex);
+    this.names[id] = null;
+
+    if (this.numOfFreeIds == this.freeIds.length)
+      this.freeIds = Arrays.copyOf(this.freeIds, this.freeIds.length * 2);
+    this.freeIds[this.numOfFreeIds++] = id;
+
+    this.numOfVert--;
+  }
+
+  /**
+   * Add the edge from vertex1 to vertex2 to this graph. (edge is directed and unweighted) If either
+   * vertex does not exist, add the non-existing vertex to the graph and then create an edge. If the
+   * edge exists in the graph, no edge is added and no exception is thrown.
+   *
+   * @param vertex1 the vertex 1
+   * @param vertex2 the vertex 2
+   */
+  public void addEdge(String vertex1, String vertex2) {
+    if (vertex1 == null || vertex2 == null)
+      return;
+
+    addEdge(intern(vertex1), intern(vertex2));
+  }
+
+  /**
+   * Adds the edge from ID from to ID to, unless it already exists.
+   *
+   * @param from the source vertex ID
+   * @param to the destination vertex ID
+   * @return true if the edge was added
+   */
+  public boolean addEdge(int from, int to) {
+    if (!isAssigned(from) || !isAssigned(to) || hasEdge(from, to))
+      return false;
+
+    thaw();
+    this.out.add(from, to);
+    this.in.add(to, from);
+
+    this.numOfEdges++;
+    fireVertexChanged(this.names[from]);
+    return true;
+  }
+
+  /**
+   * Remove the edge from vertex1 to vertex2 from this graph. (edge is directed and unweighted) If
+   * either vertex does not exist, or if an edge from vertex1 to vertex2 does not exist, no edge is
+   * removed and no exception is thrown.
+   *
+   * @param vertex1 the vertex 1
+   * @param vertex2 the vertex 2
+   */
+  public void removeEdge(String vertex1, String vertex2) {
+    int from = idOf(vertex1);
+    int to = idOf(vertex2);
+    if (from < 0 || to < 0)
+      return;
+
+    removeEdge(from, to);
+  }
+
+  /**
+   * Removes the edge from ID from to ID to, if it exists.
+   *
+   * @param from the source vertex ID
+   * @param to the destination vertex ID
+   * @return true if the edge was removed
+   */
+  public boolean removeEdge(int from, int to) {
+    if (!isAssigned(from) || !isAssigned(to) || !hasEdge(from, to))
+      return false;
+
+    thaw();
+    this.out.remove(from, to);
+    this.in.remove(to, from);
+    this.numOfEdges--;
+    fireVertexChanged(this.names[from]);
+    return true;
+  }
+
+  /**
+   * Returns a Set that contains all the vertices. The set is a read-only view.
+   *
+   * @return the all vertices
+   */
+  public Set<String> getAllVertices() {
+    return Collections.unmodifiableSet(this.ids.keySet());
+  }
+
+  /**
+   * Get all the neighbor (adjacent) vertices of a vertex. The list is a read-only view backed by
+   * the int adjacency of the vertex.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the adjacent vertices, or null if the vertex does not exist
+   */
+  public List<String> getAdjacentVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new NameList(this.out, id);
+  }
+
+  /**
+   * Get all the vertices that have an edge to a vertex. The list is a read-only view backed by the
+   * reverse int adjacency of the vertex.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the vertices with an edge to the specified vertex, or null if
+   *         the vertex does not exist
+   */
+  public List<String> getIncomingVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new NameList(this.in, id);
+  }
+
+  /**
+   * Registers a listener that is notified about every change to this graph.
+   *
+   * @param listener the listener
+   */
+  public void addGraphListener(GraphListener listener) {
+    if (!this.listeners.contains(listener))
+      this.listeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeGraphListener(GraphListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  private void fireVertexChanged(String vertex) {
+    for (GraphListener listener : this.listeners)
+      listener.vertexChanged(vertex);
+  }
+
+  /**
+   * Returns the number of edges in this graph.
+   *
+   * @return the int
+   */
+  public int size() {
+    return this.numOfEdges;
+  }
+
+  /**
+   * Returns the number of vertices in this graph.
+   *
+   * @return the int
+   */
+  public int order() {
+    return this.numOfVert;
+  }
+
+  public int idOf(String vertex) {
+    if (vertex == null)
+      return -1;
+
+    Integer id = this.ids.get(vertex);
+    return id == null ? -1 : id;
+  }
+
+  public String nameOf(int id) {
+    return id >= 0 && id < this.idBound ? this.names[id] : null;
+  }
+
+  public int idBound() {
+    return this.idBound;
+  }
+
+  public int outDegree(int id) {
+    return isAssigned(id) ? this.out.degree(id) : 0;
+  }
+
+  public int adjacentId(int id, int index) {
+    return this.out.get(id, index);
+  }
+
+  /**
+   * Returns the number of vertices with an edge to a vertex.
+   *
+   * @param id the vertex ID
+   * @return the in-degree of the vertex
+   */
+  public int inDegree(int id) {
+    return isAssigned(id) ? this.in.degree(id) : 0;
+  }
+
+  /**
+   * Returns the ID of the index-th vertex with an edge to a vertex.
+   *
+   * @param id the vertex ID
+   * @param index position in the reverse adjacency of the vertex, 0 <= index < inDegree(id)
+   * @return the ID of the dependent vertex
+   */
+  public int incomingId(int id, int index) {
+    return this.in.get(id, index);
+  }
+
+  /**
+   * Packs the adjacency of every vertex into the CSR layout and releases the per-vertex buffers.
+   * Intended to be called once the graph has been loaded; reads are then served from flat arrays.
+   */
+  public void freeze() {
+    this.out.freeze(this.idBound, this.numOfEdges);
+    this.in.freeze(this.idBound, this.numOfEdges);
+  }
+
+  /**
+   * Freezes the graph and returns an ImmutableGraph that takes over its packed arrays and vertex
+   * dictionary instead of copying them, so a freshly loaded graph is never held twice. The graph
+   * must not be used afterwards. A graph with free IDs is copied instead, since an ImmutableGraph
+   * numbers its vertices densely.
+   *
+   * @return the immutable graph
+   */
+  ImmutableGraph toImmutableGraph() {
+    if (this.numOfFreeIds > 0)
+      return ImmutableGraph.copyOf(this);
+
+    freeze();
+    String[] packedNames =
+      this.names.length == this.idBound ? this.names : Arrays.copyOf(this.names, this.idBound);
+    return new ImmutableGraph(packedNames, this.ids, this.out.offsets, this.out.targets,
+      this.in.offsets, this.in.targets);
+  }
+
+  /**
+   * Returns whether the graph is currently in the packed CSR layout.
+   *
+   * @return true if frozen
+   */
+  public boolean isFrozen() {
+    return this.out.isFrozen();
+  }
+
+  /**
+   * Unpacks the CSR layout back into per-vertex buffers so the graph can be mutated.
+   */
+  private void thaw() {
+    int capacity = Math.max(INITIAL_CAPACITY, this.names.length);
+    this.out.thaw(this.idBound, capacity);
+    this.in.thaw(this.idBound, capacity);
+  }
+
+  /**
+   * Returns the ID of a vertex, adding the vertex first if it is not in the graph.
+   *
+   * @param vertex the vertex, non-null
+   * @return the ID of the vertex
+   */
+  private int intern(String vertex) {
+    Integer existing = this.ids.get(vertex);
+    if (existing != null)
+      return existing;
+
+    fireVertexChanged(vertex);
+    thaw();
+
+    int id;
+    if (this.numOfFreeIds > 0) {
+      id = this.freeIds[--this.numOfFreeIds];
+    } else {
+      if (this.idBound == this.names.length) {
+        int capacity = this.names.length * 2;
+        this.names = Arrays.copyOf(this.names, capacity);
+        this.out.grow(capacity);
+        this.in.grow(capacity);
+      }
+      id = this.idBound++;
+    }
+
+    this.ids.put(vertex, id);
+    this.names[id] = vertex;
+    this.numOfVert++;
+    return id;
+  }
+
+  private boolean isAssigned(int id) {
+    return id >= 0 && id < this.idBound && this.names[id] != null;
+  }
+
+  /**
+   * Returns whether the edge from ID from to ID to exists, without unpacking a frozen graph. A
+   * frozen graph scans the shorter of the two lists.
+   */
+  private boolean hasEdge(int from, int to) {
+    if (this.out.isFrozen() && this.in.degree(to) < this.out.degree(from))
+      return this.in.contains(to, from);
+    return this.out.contains(from, to);
+  }
+
+  /**
+   * Int adjacency lists of all vertices in one direction, either as growable per-vertex buffers or
+   * packed into CSR arrays.
+   *
+   * A buffer keeps its entries at its front in insertion order. Buffers with more than
+   * Graph.INDEX_THRESHOLD entries also keep an open addressing table from every entry to its
+   * position, so contains, add and remove take expected constant time however long the list is.
+   * Removing from such a buffer moves its last entry into the free position; a short buffer shifts
+   * the entries after it. Only writers change a buffer, reading one never does.
+   */
+  private static class Adjacency {
+
+    private static final int REMOVED = -1; // a table slot whose entry was removed
+
+    // building layout: the buffer of every list and its number of entries
+    private int[][] lists;
+    private int[] degree;
+
+    // building layout of lists longer than Graph.INDEX_THRESHOLD: a table of every list (position
+    // + 1 of the entry in each slot, 0 if free, REMOVED if the entry was removed) and the number of
+    // slots of each table that are not free
+    private int[][] index;
+    private int[] usedSlots;
+
+    // frozen layout: list of id is targets[offsets[id]] .. targets[offsets[id + 1] - 1]
+    private int[] offsets;
+    private int[] targets;
+
+    Adjacency(int capacity) {
+      this.lists = new int[capacity][];
+      this.degree = new int[capacity];
+      this.index = new int[capacity][];
+      this.usedSlots = new int[capacity];
+    }
+
+    boolean isFrozen() {
+      return this.offsets != null;
+    }
+
+    int degree(int id) {
+      if (isFrozen())
+        return this.offsets[id + 1] - this.offsets[id];
+      return this.degree[id];
+    }
+
+    int get(int id, int index) {
+      if (isFrozen())
+        return this.targets[this.offsets[id] + index];
+      return this.lists[id][index];
+    }
+
+    /**
+     * Returns the position of value in the buffer of id, or -1 if it is not in the list.
+     */
+    private int position(int id, int value) {
+      int[] list = this.lists[id];
+      int[] table = this.index[id];
+      if (table == null) {
+        for (int i = 0; i < this.degree[id]; i++) {
+          if (list[i] == value)
+            return i;
+        }
+        return -1;
+      }
+      return table[slotOf(table, list, value)] - 1;
+    }
+
+    /**
+     * Returns whether value is in the list of id. The frozen layout is scanned.
+     */
+    boolean contains(int id, int value) {
+      if (isFrozen()) {
+        for (int i = this.offsets[id]; i < this.offsets[id + 1]; i++) {
+          if (this.targets[i] == value)
+            return true;
+        }
+        return false;
+      }
+      return position(id, value) >= 0;
+    }
+
+    /**
+     * Appends value to the list of id. It must not be in the list yet.
+     */
+    void add(int id, int value) {
+      int[] list = this.lists[id];
+      int used = this.degree[id];
+      if (list == null)
+        list = new int[INITIAL_DEGREE];
+      else if (used == list.length)
+        list = Arrays.copyOf(list, used * 2);
+
+      list[used] = value;
+      this.lists[id] = list;
+      this.degree[id] = used + 1;
+
+      int[] table = this.index[id];
+      if (table != null) {
+        table[slotOf(table, list, value)] = used + 1;
+        this.usedSlots[id]++;
+      }
+      // index a list that grew big; rebuilding also frees the slots of removed entries
+      if (table == null ? this.degree[id] > Graph.INDEX_THRESHOLD
+        : this.usedSlots[id] * 4 > table.length * 3)
+        rebuildIndex(id);
+    }
+
+    /**
+     * Removes value from the list of id. Only a list with a table may change its order.
+     */
+    boolean remove(int id, int value) {
+      int i = position(id, value);
+      if (i < 0)
+        return false;
+
+      int[] list = this.lists[id];
+      int[] table = this.index[id];
+      int last = this.degree[id] - 1;
+      if (table == null) {
+        System.arraycopy(list, i + 1, list, i, last - i);
+      } else {
+        table[slotOf(table, list, value)] = REMOVED;
+        if (i != last) { // the last entry takes the free position
+          list[i] = list[last];
+          table[slotOf(table, list, list[i])] = i + 1;
+        }
+      }
+      this.degree[id] = last;
+      return true;
+    }
+
+    void clear(int id) {
+      this.lists[id] = null;
+      this.degree[id] = 0;
+      this.index[id] = null;
+      this.usedSlots[id] = 0;
+    }
+
+    void grow(int capacity) {
+      this.lists = Arrays.copyOf(this.lists, capacity);
+      this.degree = Arrays.copyOf(this.degree, capacity);
+      this.index = Arrays.copyOf(this.index, capacity);
+      this.usedSlots = Arrays.copyOf(this.usedSlots, capacity);
+    }
+
+    void freeze(int idBound, int numOfEntries) {
+      if (isFrozen())
+        return;
+
+      int[] packedOffsets = new int[idBound + 1];
+      int[] packedTargets = new int[numOfEntries];
+      int next = 0;
+      for (int id = 0; id < idBound; id++) {
+        packedOffsets[id] = next;
+        int deg = this.degree[id];
+        if (deg > 0)
+          System.arraycopy(this.lists[id], 0, packedTargets, next, deg);
+        next += deg;
+      }
+      packedOffsets[idBound] = next;
+
+      this.offsets = packedOffsets;
+      this.targets = packedTargets;
+      this.lists = null;
+      this.degree = null;
+      this.index = null;
+      this.usedSlots = null;
+    }
+
+    void thaw(int idBound, int capacity) {
+      if (!isFrozen())
+        return;
+
+      this.lists = new int[capacity][];
+      this.degree = new int[capacity];
+      this.index = new int[capacity][];
+      this.usedSlots = new int[capacity];
+      for (int id = 0; id < idBound; id++) {
+        int deg = this.offsets[id + 1] - this.offsets[id];
+        if (deg > 0) {
+          this.lists[id] = Arrays.copyOfRange(this.targets, this.offsets[id], this.offsets[id] + deg);
+          this.degree[id] = deg;
+          if (deg > Graph.INDEX_THRESHOLD)
+            rebuildIndex(id);
+        }
+      }
+
+      this.offsets = null;
+      this.targets = null;
+    }
+
+    /**
+     * Rebuilds the table of a list with room for at least twice its entries.
+     */
+    private void rebuildIndex(int id) {
+      int[] list = this.lists[id];
+      int[] table = new int[Integer.highestOneBit(Math.max(1, this.degree[id])) * 4];
+      for (int i = 0; i < this.degree[id]; i++)
+        table[slotOf(table, list, list[i])] = i + 1;
+      this.index[id] = table;
+      this.usedSlots[id] = this.degree[id];
+    }
+
+    /**
+     * Returns the slot of value in the table of a buffer, or the free slot where it would go.
+     */
+    private static int slotOf(int[] table, int[] list, int value) {
+      int mask = table.length - 1;
+      int hash = value * 0x9E3779B9;
+      for (int slot = (hash ^ (hash >>> 16)) & mask;; slot = (slot + 1) & mask) {
+        int entry = table[slot];
+        if (entry == 0 || entry != REMOVED && list[entry - 1] == value)
+          return slot;
+      }
+    }
+  }
+
+  /**
+   * Read-only view of one adjacency list as vertex names.
+   */
+  private class NameList extends AbstractList<String> {
+
+    private final Adjacency adjacency;
+    private final int id;
+
+    NameList(Adjacency adjacency, int id) {
+      this.adjacency = adjacency;
+      this.id = id;
+    }
+
+    public String get(int index) {
+      if (index < 0 || index >= size())
+        throw new IndexOutOfBoundsException("Index: " + index);
+      return nameOf(this.adjacency.get(this.id, index));
+    }
+
+    public int size() {
+      return isAssigned(this.id) ? this.adjacency.degree(this.id) : 0;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+import static org.junit.jupiter.api.Assertions.*; // org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Testing class for CompactGraph
+ */
+public class CompactGraphTest {
+
+  CompactGraph testGraph;
+  String vertex1 = new String("V1");
+  String vertex2 = new String("V2");
+  String vertex3 = new String("V3");
+  String vertex4 = new String("V4");
+
+  /**
+   * Sets the up.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setUp() throws Exception {
+    testGraph = new CompactGraph();
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void tearDown() throws Exception {
+    testGraph = null;
+  }
+
+  /**
+   * Try adding edges, including a duplicate and edges to non-existing vertices
+   */
+  @Test
+  public void test000_addEdge() {
+
+    testGraph.addVertex(vertex1);
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex1, vertex3);
+
+    if (testGraph.size() != 2)
+      fail("Edge size is different");
+    if (testGraph.order() != 3)
+      fail("Vertex size is different");
+
+    List<String> adjacent = testGraph.getAdjacentVerticesOf(vertex1);
+    if (adjacent.size() != 2 || !adjacent.contains(vertex2) || !adjacent.contains(vertex3))
+      fail("Correct vertexes doesn't exsits");
+  }
+
+  /**
+   * Removing a vertex removes its incoming and outgoing edges and frees its ID for reuse
+   */
+  @Test
+  public void test001_removeVertex() {
+
+    testGraph.addEdge(vertex1, vertex3);
+    testGraph.addEdge(vertex1, vertex4);
+    testGraph.addEdge(vertex3, vertex1);
+    testGraph.addEdge(vertex1, vertex1);
+    testGraph.addEdge(vertex3, vertex4);
+
+    int id = testGraph.idOf(vertex1);
+    testGraph.removeVertex(vertex1);
+
+    if (testGraph.size() != 1)
+      fail("Inncorrect edge size");
+    if (!testGraph.getIncomingVerticesOf(vertex3).isEmpty()
+      || !testGraph.getAdjacentVerticesOf(vertex3).equals(Arrays.asList(vertex4))
+      || !testGraph.getIncomingVerticesOf(vertex4).equals(Arrays.asList(vertex3)))
+      fail("Edges of the removed vertex remain");
+    if (testGraph.order() != 2)
+      fail("Inncorrect vertex size");
+
+    Set<String> allVerticies = testGraph.getAllVertices();
+    if (allVerticies.contains(vertex1) || testGraph.idOf(vertex1) != -1)
+      fail("Vertex wasn't deleted");
+
+    testGraph.addVertex(vertex2);
+    if (testGraph.idOf(vertex2) != id || !vertex2.equals(testGraph.nameOf(id)))
+      fail("Free ID wasn't reused");
+  }
+
+  /**
+   * A frozen graph answers the same queries and can still be mutated
+   */
+  @Test
+  public void test002_freeze() {
+
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex1, vertex3);
+    testGraph.addEdge(vertex2, vertex3);
+    testGraph.addVertex(vertex4);
+
+    testGraph.freeze();
+
+    if (!testGraph.isFrozen())
+      fail("Graph wasn't frozen");
+    int id = testGraph.idOf(vertex1);
+    if (testGraph.outDegree(id) != 2 || testGraph.adjacentId(id, 1) != testGraph.idOf(vertex3))
+      fail("Frozen adjacency is different");
+    if (testGraph.outDegree(testGraph.idOf(vertex4)) != 0)
+      fail("Frozen adjacency is different");
+
+    // edges that already exist, or don't, leave the graph packed
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex2, vertex3);
+    testGraph.removeEdge(vertex3, vertex1);
+    testGraph.removeEdge(vertex4, vertex2);
+    if (!testGraph.isFrozen() || testGraph.size() != 3)
+      fail("Unchanged graph was unfrozen");
+
+    testGraph.removeEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex4, vertex1);
+
+    if (testGraph.isFrozen())
+      fail("Mutation should unfreeze the graph");
+    if (testGraph.size() != 3)
+      fail("Edge size is different");
+    if (!testGraph.getAdjacentVerticesOf(vertex4).contains(vertex1))
+      fail("Correct vertexes doesn't exsits");
+  }
+
+  /**
+   * Reverse adjacency follows edge insertion and removal
+   */
+  @Test
+  public void test003_incomingVertices() {
+
+    testGraph.addEdge(vertex1, vertex3);
+    testGraph.addEdge(vertex2, vertex3);
+    testGraph.addEdge(vertex3, vertex4);
+    testGraph.freeze();
+
+    List<String> incoming = testGraph.getIncomingVerticesOf(vertex3);
+    if (incoming.size() != 2 || !incoming.contains(vertex1) || !incoming.contains(vertex2))
+      fail("Incoming vertexes are different");
+
+    testGraph.removeVertex(vertex2);
+    testGraph.removeEdge(vertex3, vertex4);
+
+    if (testGraph.getIncomingVerticesOf(vertex3).size() != 1
+      || !testGraph.getIncomingVerticesOf(vertex4).isEmpty())
+      fail("Incoming vertexes weren't removed");
+  }
+
+  /**
+   * A hub's adjacency follows many adds, duplicate adds and removes, also across freezes
+   */
+  @Test
+  public void test004_hubAdjacency() {
+
+    Random random = new Random(7);
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 20000; i++) {
+      String dep = "D" + random.nextInt(300);
+      if (random.nextInt(3) == 0) {
+        testGraph.removeEdge(vertex1, dep);
+        expected.remove(dep);
+      } else {
+        testGraph.addEdge(vertex1, dep);
+        if (!expected.contains(dep))
+          expected.add(dep);
+      }
+      if (i % 5000 == 0)
+        testGraph.freeze();
+    }
+
+    List<String> adjacent = testGraph.getAdjacentVerticesOf(vertex1);
+    if (adjacent.size() != expected.size() || !new HashSet<String>(adjacent).containsAll(expected)
+      || testGraph.size() != expected.size())
+      fail("Invalid adjacency");
+    for (String dep : expected) {
+      if (!testGraph.getIncomingVerticesOf(dep).equals(Arrays.asList(vertex1)))
+        fail("Invalid incoming vertices of " + dep);
+    }
+  }
+
+  /**
+   * Leaves of a hub with many dependents are removed in any order, also from a frozen graph
+   */
+  @Test
+  public void test006_removeHubDependents() {
+
+    // every removal finds the leaf among the hub's dependents by its table, not by a scan
+    int n = 200000;
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < n; i++) {
+      testGraph.addEdge("L" + i, vertex1);
+      testGraph.addEdge(vertex2, "L" + i);
+      expected.add("L" + i);
+    }
+    testGraph.freeze();
+
+    Random random = new Random(3);
+    Set<String> removed = new HashSet<String>();
+    for (int i = 0; i < n - 10; i++) {
+      String leaf = "L" + random.nextInt(n);
+      testGraph.removeVertex(leaf);
+      removed.add(leaf);
+      if (i % 50000 == 0 && removed.contains(testGraph.getIncomingVerticesOf(vertex1).get(0)))
+        fail("Removed leaf is still a dependent");
+    }
+    expected.removeAll(removed);
+
+    List<String> dependents = testGraph.getIncomingVerticesOf(vertex1);
+    List<String> dependencies = testGraph.getAdjacentVerticesOf(vertex2);
+    if (dependents.size() != expected.size() || dependencies.size() != expected.size()
+      || !new HashSet<String>(dependents).containsAll(expected)
+      || !new HashSet<String>(dependencies).containsAll(expected)
+      || testGraph.size() != 2 * expected.size() || testGraph.order() != expected.size() + 2)
+      fail("Invalid adjacency of the hub");
+    testGraph.removeVertex(vertex1);
+    List<String> leafDependencies = testGraph.getAdjacentVerticesOf(expected.get(0));
+    if (testGraph.size() != expected.size() || !leafDependencies.isEmpty())
+      fail("Edges of the removed hub remain");
+  }
+
+  /**
+   * An immutable graph made from a compact graph answers the same queries, also with free IDs
+   */
+  @Test
+  public void test005_toImmutableGraph() {
+
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex1, vertex3);
+    testGraph.addEdge(vertex3, vertex2);
+    testGraph.addVertex(vertex4);
+
+    for (int free = 0; free < 2; free++) {
+      CompactGraph graph = new CompactGraph();
+      for (String vertex : testGraph.getAllVertices()) {
+        for (String dep : testGraph.getAdjacentVerticesOf(vertex))
+          graph.addEdge(vertex, dep);
+        graph.addVertex(vertex);
+      }
+      if (free == 1) {
+        graph.addEdge("X", vertex1);
+        graph.removeVertex("X");
+      }
+
+      ImmutableGraph immutable = graph.toImmutableGraph();
+      if (immutable.order() != 4 || immutable.size() != 3)
+        fail("Immutable graph size is different");
+      for (String vertex : testGraph.getAllVertices()) {
+        if (!immutable.getAdjacentVerticesOf(vertex).equals(testGraph.getAdjacentVerticesOf(vertex))
+          || !new HashSet<String>(immutable.getIncomingVerticesOf(vertex))
+            .equals(new HashSet<String>(testGraph.getIncomingVerticesOf(vertex))))
+          fail("Immutable adjacency of " + vertex + " is different");
+      }
+    }
+  }
+}
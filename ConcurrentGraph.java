@@ -0,0 +1,382 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Thread-safe directed and unweighted graph implementation.
+ *
+ * Vertices live in a ConcurrentHashMap. The adjacency of a vertex (in both directions) is an
+ * immutable (array, size) pair. An edge mutation replaces the lists of both ends while holding the
+ * locks of both, taken in a fixed order, so readers never lock and always see a consistent list,
+ * and edge mutations on different vertices run in parallel.
+ * Appending writes the slot past the end of the current array, which no published pair covers,
+ * and arrays grow by doubling, so adding an edge takes amortized constant time. Once a vertex has
+ * more than Graph.INDEX_THRESHOLD dependencies, a hash set of them, only used by writers, answers
+ * whether an edge exists. Only removeVertex, which has to touch the edges of many vertices,
+ * excludes all other mutations. Counters are atomic.
+ *
+ * Lists returned by getAdjacentVerticesOf and getIncomingVerticesOf are read-only snapshots.
+ */
+public class ConcurrentGraph implements BidirectionalGraph, ObservableGraph {
+
+  private final AtomicInteger numOfEdges;
+  private final AtomicInteger numOfVert;
+  private final ConcurrentHashMap<String, Vertex> graph;
+
+  // numbers vertex records, which are locked in this order
+  private final AtomicLong vertexSeq;
+
+  // shared by edge mutations, exclusive for vertex removal
+  private final ReadWriteLock structureLock;
+
+  private final List<GraphListener> listeners;
+
+  /**
+   * Instantiates a new, empty graph.
+   */
+  public ConcurrentGraph() {
+    this.numOfEdges = new AtomicInteger();
+    this.numOfVert = new AtomicInteger();
+    this.graph = new ConcurrentHashMap<String, Vertex>();
+    this.vertexSeq = new AtomicLong();
+    this.structureLock = new ReentrantReadWriteLock();
+    this.listeners = new CopyOnWriteArrayList<GraphListener>();
+  }
+
+  /**
+   * Add new vertex to the graph.
+   *
+   * If vertex is null or already exists, method ends without adding a vertex or throwing an
+   * exception.
+   *
+   * @param vertex the vertex
+   */
+  public void addVertex(String vertex) {
+    if (vertex == null)
+      return;
+
+    this.structureLock.readLock().lock();
+    try {
+      intern(vertex);
+    } finally {
+      this.structureLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a vertex and all associated edges from the graph.
+   *
+   * If vertex is null or does not exist, method ends without removing a vertex, edges, or throwing an
+   * exception.
+   *
+   * @param vertex the vertex
+   */
+  public void removeVertex(String vertex) {
+    if (vertex == null)
+      return;
+
+    this.structureLock.writeLock().lock();
+    try {
+      Vertex v = this.graph.get(vertex);
+      if (v == null)
+        return;
+
+      fireVertexChanged(vertex);
+
+      // no other mutation runs, but readers may: every list is replaced, never changed in place
+      Edges out = v.out;
+      for (int i = 0; i < out.size; i++) {
+        Vertex w = this.graph.get(out.items[i]);
+        w.in = w.in.without(vertex);
+      }
+      Edges in = v.in;
+      for (int i = 0; i < in.size; i++)
+        this.graph.get(in.items[i]).removeOut(vertex);
+      // a self-loop was already dropped from v.in above, so it is only counted once
+      this.numOfEdges.addAndGet(-(v.out.size + v.in.size));
+
+      this.graph.remove(vertex);
+      this.numOfVert.decrementAndGet();
+    } finally {
+      this.structureLock.writeLock().unlock();
+    }
+
+    for (GraphListener listener : this.listeners)
+      listener.vertexRemoved(vertex);
+  }
+
+  /**
+   * Add the edge from vertex1 to vertex2 to this graph. (edge is directed and unweighted) If either
+   * vertex does not exist, add the non-existing vertex to the graph and then create an edge. If the
+   * edge exists in the graph, no edge is added and no exception is thrown.
+   *
+   * @param vertex1 the vertex 1
+   * @param vertex2 the vertex 2
+   */
+  public void addEdge(String vertex1, String vertex2) {
+    if (vertex1 == null || vertex2 == null)
+      return;
+
+    this.structureLock.readLock().lock();
+    try {
+      Vertex from = intern(vertex1);
+      Vertex to = intern(vertex2);
+
+      // both lists change together, so no other writer sees the edge in only one of them
+      Vertex first = from.seq <= to.seq ? from : to;
+      synchronized (first) {
+        synchronized (first == from ? to : from) {
+          if (from.hasOut(vertex2)) // check if edge exist
+            return;
+          from.addOut(vertex2);
+          to.in = to.in.with(vertex1);
+        }
+      }
+      this.numOfEdges.incrementAndGet();
+    } finally {
+      this.structureLock.readLock().unlock();
+    }
+
+    fireVertexChanged(vertex1);
+  }
+
+  /**
+   * Remove the edge from vertex1 to vertex2 from this graph. (edge is directed and unweighted) If
+   * either vertex does not exist, or if an edge from vertex1 to vertex2 does not exist, no edge is
+   * removed and no exception is thrown.
+   *
+   * @param vertex1 the vertex 1
+   * @param vertex2 the vertex 2
+   */
+  public void removeEdge(String vertex1, String vertex2) {
+    if (vertex1 == null || vertex2 == null)
+      return;
+
+    this.structureLock.readLock().lock();
+    try {
+      Vertex from = this.graph.get(vertex1);
+      Vertex to = this.graph.get(vertex2);
+      if (from == null || to == null)
+        return;
+
+      Vertex first = from.seq <= to.seq ? from : to;
+      synchronized (first) {
+        synchronized (first == from ? to : from) {
+          if (!from.removeOut(vertex2))
+            return;
+          to.in = to.in.without(vertex1);
+        }
+      }
+      this.numOfEdges.decrementAndGet();
+    } finally {
+      this.structureLock.readLock().unlock();
+    }
+
+    fireVertexChanged(vertex1);
+  }
+
+  /**
+   * Returns a read-only, weakly consistent Set view of all the vertices.
+   *
+   * @return the all vertices
+   */
+  public Set<String> getAllVertices() {
+    return Collections.unmodifiableSet(this.graph.keySet());
+  }
+
+  /**
+   * Get all the neighbor (adjacent) vertices of a vertex.
+   *
+   * @param vertex the specified vertex
+   * @return a read-only snapshot of the adjacent vertices, or null if the vertex does not exist
+   */
+  public List<String> getAdjacentVerticesOf(String vertex) {
+    Vertex v = vertex == null ? null : this.graph.get(vertex);
+    return v == null ? null : v.out.asList();
+  }
+
+  /**
+   * Get all the vertices that have an edge to a vertex.
+   *
+   * @param vertex the specified vertex
+   * @return a read-only snapshot of the vertices with an edge to the specified vertex, or null if
+   *         the vertex does not exist
+   */
+  public List<String> getIncomingVerticesOf(String vertex) {
+    Vertex v = vertex == null ? null : this.graph.get(vertex);
+    return v == null ? null : v.in.asList();
+  }
+
+  /**
+   * Registers a listener that is notified about every change to this graph. Listeners are called on
+   * the mutating thread and must be thread-safe.
+   *
+   * @param listener the listener
+   */
+  public void addGraphListener(GraphListener listener) {
+    if (!this.listeners.contains(listener))
+      this.listeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeGraphListener(GraphListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  /**
+   * Returns the number of edges in this graph.
+   *
+   * @return the int
+   */
+  public int size() {
+    return this.numOfEdges.get();
+  }
+
+  /**
+   * Returns the number of vertices in this graph.
+   *
+   * @return the int
+   */
+  public int order() {
+    return this.numOfVert.get();
+  }
+
+  /**
+   * Returns the vertex record of a vertex, adding the vertex first if it is not in the graph. Must
+   * be called while holding the shared structure lock.
+   */
+  private Vertex intern(String vertex) {
+    Vertex v = this.graph.get(vertex);
+    if (v != null)
+      return v;
+
+    Vertex created = new Vertex(this.vertexSeq.incrementAndGet());
+    v = this.graph.putIfAbsent(vertex, created);
+    if (v != null)
+      return v;
+
+    this.numOfVert.incrementAndGet();
+    fireVertexChanged(vertex);
+    return created;
+  }
+
+  private void fireVertexChanged(String vertex) {
+    for (GraphListener listener : this.listeners)
+      listener.vertexChanged(vertex);
+  }
+
+  /**
+   * Copy-on-write adjacency of one vertex. The lists are replaced, never modified, while holding
+   * the monitors of both ends of the edge, taken in seq order (or the exclusive structure lock).
+   */
+  private static class Vertex {
+    final long seq;
+    volatile Edges out = Edges.EMPTY;
+    volatile Edges in = Edges.EMPTY;
+
+    // the entries of out, once there are more than Graph.INDEX_THRESHOLD; only used by writers
+    private Set<String> outIndex;
+
+    Vertex(long seq) {
+      this.seq = seq;
+    }
+
+    boolean hasOut(String vertex) {
+      return this.outIndex != null ? this.outIndex.contains(vertex) : this.out.indexOf(vertex) >= 0;
+    }
+
+    void addOut(String vertex) {
+      this.out = this.out.with(vertex);
+      if (this.outIndex != null) {
+        this.outIndex.add(vertex);
+      } else if (this.out.size > Graph.INDEX_THRESHOLD) {
+        this.outIndex = new HashSet<String>();
+        for (int i = 0; i < this.out.size; i++)
+          this.outIndex.add(this.out.items[i]);
+      }
+    }
+
+    boolean removeOut(String vertex) {
+      if (this.outIndex != null && !this.outIndex.remove(vertex))
+        return false;
+      Edges out = this.out.without(vertex);
+      if (out == this.out)
+        return false;
+      this.out = out;
+      return true;
+    }
+  }
+
+  /**
+   * An immutable adjacency list: the first size entries of items. Entries past size may be written
+   * by a later append, which publishes a new Edges over the same array.
+   */
+  private static final class Edges {
+
+    static final Edges EMPTY = new Edges(new String[0], 0);
+
+    final String[] items;
+    final int size;
+
+    Edges(String[] items, int size) {
+      this.items = items;
+      this.size = size;
+    }
+
+    int indexOf(String vertex) {
+      for (int i = 0; i < this.size; i++) {
+        if (this.items[i].equals(vertex))
+          return i;
+      }
+      return -1;
+    }
+
+    /**
+     * Appends a vertex. Must only be called on the latest Edges of a list, so that no other Edges
+     * covers the slot written.
+     */
+    Edges with(String vertex) {
+      String[] items = this.items;
+      if (this.size == items.length)
+        items = Arrays.copyOf(items, Math.max(4, this.size * 2));
+      items[this.size] = vertex;
+      return new Edges(items, this.size + 1);
+    }
+
+    Edges without(String vertex) {
+      int i = indexOf(vertex);
+      if (i < 0)
+        return this;
+      String[] copy = new String[Math.max(4, this.size - 1)];
+      System.arraycopy(this.items, 0, copy, 0, i);
+      System.arraycopy(this.items, i + 1, copy, i, this.size - i - 1);
+      return new Edges(copy, this.size - 1);
+    }
+
+    List<String> asList() {
+      return Collections.unmodifiableList(Arrays.asList(this.items).subList(0, this.size));
+    }
+  }
+}
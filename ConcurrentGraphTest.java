@@ -0,0 +1,385 @@
+import static org.junit.jupiter.api.Assertions.*; // org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Testing class for ConcurrentGraph
+ */
+public class ConcurrentGraphTest {
+
+  ConcurrentGraph testGraph;
+  ExecutorService executor;
+
+  /**
+   * Sets the up.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setUp() throws Exception {
+    testGraph = new ConcurrentGraph();
+    executor = Executors.newFixedThreadPool(8);
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    testGraph = null;
+  }
+
+  /**
+   * Single-threaded behaviour matches Graph
+   */
+  @Test
+  public void test000_addAndRemove() {
+
+    testGraph.addEdge("V1", "V3");
+    testGraph.addEdge("V1", "V4");
+    testGraph.addEdge("V1", "V4");
+    testGraph.addEdge("V3", "V1");
+    testGraph.addEdge("V3", "V3");
+
+    if (testGraph.size() != 4 || testGraph.order() != 3)
+      fail("Inncorrect size");
+
+    testGraph.removeVertex("V1");
+    if (testGraph.size() != 1 || testGraph.order() != 2)
+      fail("Inncorrect size after removal");
+    if (!testGraph.getIncomingVerticesOf("V4").isEmpty())
+      fail("Incoming edge wasn't removed");
+
+    testGraph.removeVertex("V3");
+    if (testGraph.size() != 0 || testGraph.order() != 1)
+      fail("Self-loop wasn't removed");
+  }
+
+  /**
+   * Concurrent writers add disjoint edges while resolvers query installation orders
+   */
+  @Test
+  public void test001_concurrentWritersAndReaders() throws Exception {
+
+    final int writers = 4;
+    final int edgesPerWriter = 2000;
+    final PackageManager manager = new PackageManager(testGraph);
+    List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+    // writer w builds the chain W<w>-0 -> W<w>-1 -> ... and every link also depends on ROOT
+    for (int w = 0; w < writers; w++) {
+      final String prefix = "W" + w + "-";
+      tasks.add(executor.submit(() -> {
+        for (int i = 0; i < edgesPerWriter; i++) {
+          testGraph.addEdge(prefix + i, prefix + (i + 1));
+          testGraph.addEdge(prefix + i, "ROOT");
+        }
+        return null;
+      }));
+    }
+
+    for (int r = 0; r < writers; r++) {
+      final String start = "W" + r + "-0";
+      tasks.add(executor.submit(() -> {
+        for (int i = 0; i < 200; i++) {
+          try {
+            List<String> order = manager.getInstallationOrder(start);
+            if (new HashSet<String>(order).size() != order.size())
+              throw new IllegalStateException("Duplicate package in " + order);
+          } catch (PackageNotFoundException e) {
+            // writer has not added it yet
+          }
+        }
+        return null;
+      }));
+    }
+
+    for (Future<?> task : tasks)
+      task.get(60, TimeUnit.SECONDS);
+
+    if (testGraph.size() != writers * edgesPerWriter * 2)
+      fail("Edges were lost: " + testGraph.size());
+    if (testGraph.order() != writers * (edgesPerWriter + 1) + 1)
+      fail("Vertices were lost: " + testGraph.order());
+    if (testGraph.getIncomingVerticesOf("ROOT").size() != writers * edgesPerWriter)
+      fail("Reverse edges were lost");
+    if (manager.getInstallationOrder("W0-0").size() != edgesPerWriter + 2)
+      fail("Stale installation order");
+  }
+
+  /**
+   * Reachability queries run while writers add edges, and see all of them once the writers are done
+   */
+  @Test
+  public void test002_dependsOnWhileWriting() throws Exception {
+
+    final int writers = 4;
+    final int edgesPerWriter = 2000;
+    final PackageManager manager = new PackageManager(testGraph);
+    List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+    for (int w = 0; w < writers; w++) {
+      final String prefix = "W" + w + "-";
+      tasks.add(executor.submit(() -> {
+        for (int i = 0; i < edgesPerWriter; i++) {
+          testGraph.addEdge(prefix + i, "ROOT");
+          testGraph.addEdge(prefix + (i + 1), prefix + i);
+        }
+        return null;
+      }));
+    }
+
+    for (int r = 0; r < writers; r++) {
+      final String prefix = "W" + r + "-";
+      tasks.add(executor.submit(() -> {
+        for (int i = 0; i < 2000; i++) {
+          try {
+            manager.dependsOn(prefix + (i % edgesPerWriter), "ROOT");
+          } catch (PackageNotFoundException e) {
+            // writer has not added it yet
+          }
+          if (i % 10 == 0)
+            testGraph.removeEdge(prefix + "0", "ROOT"); // forces a rebuild
+        }
+        return null;
+      }));
+    }
+
+    for (Future<?> task : tasks)
+      task.get(60, TimeUnit.SECONDS);
+
+    for (int w = 0; w < writers; w++) {
+      testGraph.addEdge("W" + w + "-0", "ROOT");
+      if (!manager.dependsOn("W" + w + "-" + edgesPerWriter, "ROOT")
+        || manager.dependsOn("ROOT", "W" + w + "-0"))
+        fail("Stale reachability");
+    }
+  }
+
+  /**
+   * An edge to a package the index has not numbered yet is added between the first and any later
+   * read of an adjacency list: the index is built from the first read and applies the edge later
+   */
+  @Test
+  public void test003_dependsOnEdgeAddedDuringRebuild() throws Exception {
+
+    InterleavedGraph graph = new InterleavedGraph("A", "A", "C");
+    graph.addEdge("A", "B");
+    graph.addVertex("C");
+    PackageManager manager = new PackageManager(graph);
+
+    if (!manager.dependsOn("A", "B"))
+      fail("Missing dependency");
+    graph.awaitWriter();
+    if (!manager.dependsOn("A", "C") || manager.dependsOn("C", "A"))
+      fail("Stale reachability");
+  }
+
+  /**
+   * Dependency counts are taken from the first read of an adjacency list when an edge is added
+   * before the second
+   */
+  @Test
+  public void test004_dependencyCountsEdgeAddedDuringCount() throws Exception {
+
+    InterleavedGraph graph = new InterleavedGraph("A", "A", "C");
+    graph.addEdge("A", "B");
+    graph.addVertex("C");
+    PackageManager manager = new PackageManager(graph);
+
+    Map<String, Integer> counts = manager.getDependencyCounts();
+    graph.awaitWriter();
+    if (counts.get("A") != 1 || counts.get("B") != 0 || counts.get("C") != 0)
+      fail("Invalid counts " + counts);
+    if (manager.getDependencyCounts().get("A") != 2)
+      fail("Added edge wasn't counted");
+  }
+
+  /**
+   * Parallel dependency counts are taken from the first read of an adjacency list when an edge is
+   * added before the second
+   */
+  @Test
+  public void test005_parallelCountsEdgeAddedDuringCount() throws Exception {
+
+    InterleavedGraph graph = new InterleavedGraph("A", "A", "C");
+    graph.addEdge("A", "B");
+    graph.addVertex("C");
+    try (PackageManager manager = new PackageManager(graph)) {
+      manager.setParallelism(2);
+
+      Map<String, Integer> counts = manager.getDependencyCounts();
+      graph.awaitWriter();
+      if (counts.get("A") != 1 || counts.get("B") != 0 || counts.get("C") != 0)
+        fail("Invalid counts " + counts);
+      if (manager.getDependencyCounts().get("A") != 2)
+        fail("Added edge wasn't counted");
+    }
+  }
+
+  /**
+   * A hub's adjacency follows many adds and removes, and earlier snapshots never change
+   */
+  @Test
+  public void test006_hubAdjacency() {
+
+    Random random = new Random(7);
+    List<String> expected = new ArrayList<String>();
+    List<String> snapshot = testGraph.getAdjacentVerticesOf("HUB");
+    List<String> snapshotExpected = new ArrayList<String>();
+    for (int i = 0; i < 20000; i++) {
+      String dep = "D" + random.nextInt(300);
+      if (random.nextInt(3) == 0) {
+        testGraph.removeEdge("HUB", dep);
+        expected.remove(dep);
+      } else {
+        testGraph.addEdge("HUB", dep);
+        if (!expected.contains(dep))
+          expected.add(dep);
+      }
+      if (i % 1000 == 0) {
+        if (snapshot != null && !snapshot.equals(snapshotExpected))
+          fail("Snapshot changed after " + i + " changes");
+        snapshot = testGraph.getAdjacentVerticesOf("HUB");
+        snapshotExpected = new ArrayList<String>(expected);
+        if (!snapshot.equals(expected))
+          fail("Invalid adjacency after " + i + " changes");
+      }
+    }
+    if (!testGraph.getAdjacentVerticesOf("HUB").equals(expected)
+      || testGraph.size() != expected.size())
+      fail("Invalid adjacency");
+
+    for (String dep : expected) {
+      if (!testGraph.getIncomingVerticesOf(dep).contains("HUB"))
+        fail("Invalid incoming vertices of " + dep);
+    }
+    testGraph.removeVertex("HUB");
+    if (testGraph.size() != 0 || !testGraph.getIncomingVerticesOf(expected.get(0)).isEmpty())
+      fail("Edges of a removed hub remain");
+  }
+
+  /**
+   * Threads add and remove the same few edges at once, both directions of every edge agree
+   */
+  @Test
+  public void test007_addAndRemoveSameEdges() throws Exception {
+
+    final String[] vertices = {"A", "B", "C", "D"};
+    for (String vertex : vertices)
+      testGraph.addVertex(vertex);
+    List<Future<?>> tasks = new ArrayList<Future<?>>();
+    for (int t = 0; t < 8; t++) {
+      final Random random = new Random(t);
+      tasks.add(executor.submit(() -> {
+        for (int i = 0; i < 50000; i++) {
+          String from = vertices[random.nextInt(vertices.length)];
+          String to = vertices[random.nextInt(vertices.length)];
+          if (random.nextBoolean())
+            testGraph.addEdge(from, to);
+          else
+            testGraph.removeEdge(from, to);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> task : tasks)
+      task.get(60, TimeUnit.SECONDS);
+
+    int out = 0;
+    int in = 0;
+    for (String vertex : vertices) {
+      List<String> adjacent = testGraph.getAdjacentVerticesOf(vertex);
+      if (new HashSet<String>(adjacent).size() != adjacent.size())
+        fail("Duplicate edge from " + vertex + ": " + adjacent);
+      for (String dep : adjacent) {
+        if (!testGraph.getIncomingVerticesOf(dep).contains(vertex))
+          fail("Missing incoming edge " + vertex + " -> " + dep);
+      }
+      out += adjacent.size();
+      in += testGraph.getIncomingVerticesOf(vertex).size();
+    }
+    if (out != in || out != testGraph.size())
+      fail("Edge counts disagree: out " + out + ", in " + in + ", size " + testGraph.size());
+  }
+
+  /**
+   * Installation layers are computed again when a dependency is added after the installation
+   * order was read
+   */
+  @Test
+  public void test008_layersEdgeAddedDuringOrder() throws Exception {
+
+    InterleavedGraph graph = new InterleavedGraph("A", "A", "C");
+    graph.addEdge("A", "B");
+    graph.addVertex("C");
+    PackageManager manager = new PackageManager(graph);
+
+    List<List<String>> layers = manager.getInstallationLayers("A");
+    graph.awaitWriter();
+    if (layers.size() != 2 || !layers.get(0).containsAll(Arrays.asList("B", "C"))
+      || !layers.get(1).equals(Arrays.asList("A")))
+      fail("Invalid layers " + layers);
+  }
+
+  /**
+   * ConcurrentGraph that adds the edge from -> to on another thread the first time the adjacency of
+   * a vertex is read, and returns the adjacency as it was before, once the edge is in the graph.
+   */
+  static class InterleavedGraph extends ConcurrentGraph {
+
+    private final String vertex;
+    private final String from;
+    private final String to;
+    private Thread writer;
+
+    InterleavedGraph(String vertex, String from, String to) {
+      this.vertex = vertex;
+      this.from = from;
+      this.to = to;
+    }
+
+    public List<String> getAdjacentVerticesOf(String v) {
+      List<String> adjacent = super.getAdjacentVerticesOf(v);
+      if (this.writer != null || !v.equals(this.vertex))
+        return adjacent;
+
+      // the writer blocks in listeners that wait for the reader: wait for the edge only
+      this.writer = new Thread(() -> addEdge(this.from, this.to));
+      this.writer.start();
+      while (!super.getAdjacentVerticesOf(this.from).contains(this.to))
+        Thread.yield();
+      return adjacent;
+    }
+
+    void awaitWriter() throws InterruptedException {
+      if (this.writer == null)
+        fail("Adjacency wasn't read");
+      this.writer.join(10000);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when no set of package versions satisfies all version requirements.
+ *
+ * Carries the package whose versions were all ruled out last and the
+ * requirements on it, e.g. "A 1.0 requires B<2".
+ */
+@SuppressWarnings("serial")
+public class ConflictException extends Exception {
+
+	private final String pkg;
+	private final List<String> requirements;
+
+	public ConflictException(String pkg, List<String> requirements) {
+		super("No version of " + pkg + " satisfies " + String.join(", ", requirements));
+		this.pkg = pkg;
+		this.requirements = Collections.unmodifiableList(requirements);
+	}
+
+	/**
+	 * Returns the package that has no acceptable version.
+	 *
+	 * @return the package name
+	 */
+	public String getPackage() {
+		return this.pkg;
+	}
+
+	/**
+	 * Returns the requirements on the package that could not all be met.
+	 *
+	 * @return the requirements, each as "dependent version requires range"
+	 */
+	public List<String> getRequirements() {
+		return this.requirements;
+	}
+}
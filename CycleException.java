@@ -1,5 +1,32 @@
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Thrown when a cycle of package dependencies prevents finding an installation order.
+ * 
+ * Carries every group of mutually dependent packages (strongly connected component) that was
+ * found, so all cycles can be fixed at once.
+ */
 @SuppressWarnings("serial")
 public class CycleException extends Exception {
-	
+
+	private final List<List<String>> cycles;
+
+	public CycleException() {
+		this(Collections.<List<String>>emptyList());
+	}
+
+	public CycleException(List<List<String>> cycles) {
+		super(cycles.isEmpty() ? null : "Dependency cycles: " + cycles);
+		this.cycles = Collections.unmodifiableList(cycles);
+	}
+
+	/**
+	 * Returns the groups of packages that depend on each other in a cycle.
+	 *
+	 * @return the cycle groups, empty if they are unknown
+	 */
+	public List<List<String>> getCycles() {
+		return this.cycles;
+	}
 }
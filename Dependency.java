@@ -0,0 +1,83 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A dependency on a package name with a version range, written as the name directly followed by
+ * the range, e.g. "B", "B>=2.1,<3" or "B ^1.2". A dependency without a range allows every version.
+ *
+ * Dependencies are immutable.
+ */
+public class Dependency {
+
+  private final String name;
+  private final VersionRange range;
+
+  /**
+   * Instantiates a dependency.
+   *
+   * @param name the package name
+   * @param range the allowed versions
+   */
+  public Dependency(String name, VersionRange range) {
+    this.name = name;
+    this.range = range;
+  }
+
+  /**
+   * Parses a dependency.
+   *
+   * @param dependency the dependency text, e.g. "B>=2.1,<3"
+   * @return the dependency
+   * @throws IllegalArgumentException if the range is not a version range
+   */
+  public static Dependency parse(String dependency) {
+    int end = nameLength(dependency);
+    String range = dependency.substring(end).trim();
+    return new Dependency(dependency.substring(0, end),
+      range.isEmpty() ? VersionRange.ANY : VersionRange.parse(range));
+  }
+
+  /**
+   * Returns the package name of a dependency text without its range, e.g. "B" for "B>=2.1,<3".
+   * Returns the text itself if it has no range, without copying it.
+   *
+   * @param dependency the dependency text
+   * @return the package name
+   */
+  public static String nameOf(String dependency) {
+    int end = nameLength(dependency);
+    return end == dependency.length() ? dependency : dependency.substring(0, end);
+  }
+
+  /**
+   * Returns the length of the package name at the start of a dependency text: everything up to the
+   * first whitespace or comparison character.
+   */
+  private static int nameLength(String dependency) {
+    for (int i = 0; i < dependency.length(); i++) {
+      char c = dependency.charAt(i);
+      if (c == '<' || c == '>' || c == '=' || c == '!' || c == '^' || c == '~'
+        || Character.isWhitespace(c))
+        return i;
+    }
+    return dependency.length();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public VersionRange getRange() {
+    return this.range;
+  }
+
+  public String toString() {
+    return this.range == VersionRange.ANY ? this.name : this.name + this.range;
+  }
+}
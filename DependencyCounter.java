@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Counts the transitive dependencies of every package in a single pass.
+ *
+ * The graph is condensed into its strongly connected components, which Tarjan's algorithm already
+ * emits dependencies first. Walking the components in that order, the closure of a component is the
+ * union of the closures of the components it depends on plus its own packages, so every edge is
+ * looked at once. Packages of one component share a closure, which makes the counts well defined
+ * on cyclic graphs too.
+ *
+ * Closures are either exact bit sets over dense vertex numbers or HyperLogLog sketches of 2^precision
+ * one-byte registers, whose union is the register-wise maximum and whose count has a standard error
+ * of about 1.04 / sqrt(2^precision). A closure is dropped as soon as its last dependent component
+ * has used it, and the last dependent takes it over instead of copying it, so long chains need a
+ * single closure at a time.
+ *
+ * The count of a package does not include the package itself.
+ */
+public class DependencyCounter {
+
+  /** Default HyperLogLog precision, 2^12 registers and about 1.6% standard error. */
+  public static final int DEFAULT_PRECISION = 12;
+
+  private DependencyCounter() {}
+
+  /**
+   * Returns the exact number of transitive dependencies of every package.
+   *
+   * @param graph the graph; packages a concurrent graph gains during the call may be left out
+   * @return the counts, in the iteration order of getAllVertices()
+   */
+  public static Map<String, Integer> count(GraphADT graph) {
+    return count(graph, 0);
+  }
+
+  /**
+   * Returns the approximate number of transitive dependencies of every package, using HyperLogLog
+   * sketches instead of exact sets. Memory per closure is 2^precision bytes instead of one bit per
+   * package in the graph.
+   *
+   * @param graph the graph
+   * @param precision the number of index bits of a sketch, 4 to 16
+   * @return the estimated counts, in the iteration order of getAllVertices()
+   */
+  public static Map<String, Integer> estimate(GraphADT graph, int precision) {
+    if (precision < 4 || precision > 16)
+      throw new IllegalArgumentException("Precision must be between 4 and 16: " + precision);
+    return count(graph, precision);
+  }
+
+  /**
+   * Returns the k packages with the highest counts, highest first. Equal counts keep the order of
+   * the given map.
+   *
+   * @param counts the counts, e.g. from count or estimate
+   * @param k the number of packages
+   * @return at most k packages
+   */
+  public static List<String> top(Map<String, Integer> counts, int k) {
+    if (k <= 0)
+      return new ArrayList<String>();
+
+    // rank in the map breaks ties, so the result does not depend on the heap
+    final Map<String, Integer> rank = new HashMap<String, Integer>();
+    for (String pkg : counts.keySet())
+      rank.put(pkg, rank.size());
+
+    final Map<String, Integer> c = counts;
+    Comparator<String> lowestFirst = new Comparator<String>() {
+      public int compare(String a, String b) {
+        int cmp = Integer.compare(c.get(a), c.get(b));
+        return cmp != 0 ? cmp : Integer.compare(rank.get(b), rank.get(a));
+      }
+    };
+
+    // min-heap of the k best packages seen so far
+    PriorityQueue<String> best =
+      new PriorityQueue<String>(Math.min(k, counts.size()) + 1, lowestFirst);
+    for (String pkg : counts.keySet()) {
+      best.add(pkg);
+      if (best.size() > k)
+        best.poll();
+    }
+
+    List<String> top = new ArrayList<String>(best);
+    Collections.sort(top, Collections.reverseOrder(lowestFirst));
+    return top;
+  }
+
+  /**
+   * Counts with exact closures if precision is 0 and with sketches otherwise.
+   */
+  private static Map<String, Integer> count(GraphADT graph, int precision) {
+    // the component DAG is built from the adjacency lists the search read, so that edges added to a
+    // concurrent graph in the meantime cannot point to vertices without a component
+    Map<String, List<String>> adjacency = new HashMap<String, List<String>>();
+    List<List<String>> components =
+      StronglyConnectedComponents.find(graph, graph.getAllVertices(), adjacency);
+
+    // dense numbers for vertices (bit positions) and components
+    Map<String, Integer> vertexNumber = new HashMap<String, Integer>();
+    Map<String, Integer> componentOf = new HashMap<String, Integer>();
+    for (int c = 0; c < components.size(); c++) {
+      for (String pkg : components.get(c)) {
+        vertexNumber.put(pkg, vertexNumber.size());
+        componentOf.put(pkg, c);
+      }
+    }
+
+    // distinct dependency components of every component, and how many components depend on each
+    int[][] dependencies = new int[components.size()][];
+    int[] dependents = new int[components.size()];
+    int[] seen = new int[components.size()];
+    int[] buffer = new int[16];
+    for (int c = 0; c < components.size(); c++) {
+      int size = 0;
+      for (String pkg : components.get(c)) {
+        for (String dep : adjacency.get(pkg)) {
+          int d = componentOf.get(dep);
+          if (d == c || seen[d] == c + 1)
+            continue;
+          seen[d] = c + 1;
+          if (size == buffer.length)
+            buffer = Arrays.copyOf(buffer, size * 2);
+          buffer[size++] = d;
+          dependents[d]++;
+        }
+      }
+      dependencies[c] = Arrays.copyOf(buffer, size);
+    }
+
+    Closure[] closures = new Closure[components.size()];
+    int[] componentCount = new int[components.size()];
+    for (int c = 0; c < components.size(); c++) {
+      // components without dependencies, most of all leaf packages, need no closure of their own:
+      // their dependents add their packages directly
+      if (dependencies[c].length == 0) {
+        componentCount[c] = components.get(c).size() - 1;
+        continue;
+      }
+
+      Closure closure = null;
+
+      // take over the closure of a dependency that nothing else needs any more
+      for (int d : dependencies[c]) {
+        if (dependents[d] == 1 && closures[d] != null) {
+          closure = closures[d];
+          break;
+        }
+      }
+      if (closure == null && precision == 0)
+        closure = new ExactClosure();
+      else if (closure == null)
+        closure = new SketchClosure(precision);
+
+      for (int d : dependencies[c]) {
+        if (dependencies[d].length == 0) {
+          for (String pkg : components.get(d))
+            closure.add(vertexNumber.get(pkg));
+        } else if (closures[d] != closure) {
+          closure.addAll(closures[d]);
+        }
+        if (--dependents[d] == 0)
+          closures[d] = null;
+      }
+      for (String pkg : components.get(c))
+        closure.add(vertexNumber.get(pkg));
+
+      componentCount[c] = Math.max(0, closure.count() - 1);
+      if (dependents[c] > 0)
+        closures[c] = closure;
+    }
+
+    Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+    for (String pkg : graph.getAllVertices()) {
+      Integer c = componentOf.get(pkg);
+      if (c != null) // null for a package added since the search
+        counts.put(pkg, componentCount[c]);
+    }
+    return counts;
+  }
+
+  /**
+   * A set of vertex numbers that supports union and counting.
+   */
+  private interface Closure {
+
+    void add(int vertex);
+
+    void addAll(Closure other);
+
+    int count();
+  }
+
+  /**
+   * Exact closure, one bit per vertex.
+   */
+  private static class ExactClosure implements Closure {
+
+    private final BitSet bits;
+
+    ExactClosure() {
+      this.bits = new BitSet();
+    }
+
+    public void add(int vertex) {
+      this.bits.set(vertex);
+    }
+
+    public void addAll(Closure other) {
+      this.bits.or(((ExactClosure) other).bits);
+    }
+
+    public int count() {
+      return this.bits.cardinality();
+    }
+  }
+
+  /**
+   * HyperLogLog sketch of a closure.
+   */
+  private static class SketchClosure implements Closure {
+
+    private final int precision;
+    private final byte[] registers;
+
+    SketchClosure(int precision) {
+      this.precision = precision;
+      this.registers = new byte[1 << precision];
+    }
+
+    public void add(int vertex) {
+      long hash = mix(vertex);
+      int index = (int) (hash >>> (64 - this.precision));
+      // position of the first one bit after the index bits, the sentinel bounds it
+      int rank =
+        Long.numberOfLeadingZeros((hash << this.precision) | (1L << (this.precision - 1))) + 1;
+      if (rank > this.registers[index])
+        this.registers[index] = (byte) rank;
+    }
+
+    public void addAll(Closure other) {
+      byte[] o = ((SketchClosure) other).registers;
+      for (int i = 0; i < this.registers.length; i++) {
+        if (o[i] > this.registers[i])
+          this.registers[i] = o[i];
+      }
+    }
+
+    public int count() {
+      int m = this.registers.length;
+      double sum = 0;
+      int zeros = 0;
+      for (byte register : this.registers) {
+        sum += 1.0 / (1L << register);
+        if (register == 0)
+          zeros++;
+      }
+
+      double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+      double estimate = alpha * m * m / sum;
+      if (estimate <= 2.5 * m && zeros > 0) // small range correction: linear counting
+        estimate = m * Math.log((double) m / zeros);
+      return (int) Math.round(estimate);
+    }
+
+    /**
+     * 64-bit finalizer of SplitMix64, spreads consecutive vertex numbers over all bits.
+     */
+    private static long mix(long z) {
+      z = (z + 0x9E3779B97F4A7C15L);
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+    }
+  }
+}
@@ -1,9 +1,12 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 
@@ -19,14 +22,24 @@ import java.util.Set;
 /**
  * 
  * Directed and unweighted graph implementation
+ * 
+ * The adjacency of every vertex, in both directions, is an AdjacencyList: a plain array while the
+ * vertex has few edges that gets a hash index once it has more, so adding, finding and removing an
+ * edge takes expected constant time even for hub packages with many thousands of dependents.
  */
 
-public class Graph implements GraphADT {
+public class Graph implements BidirectionalGraph, ObservableGraph {
+
+  /** Number of entries above which an adjacency list is indexed by a hash table. */
+  static final int INDEX_THRESHOLD = 8;
 
   private int numOfEdges;
   private int numOfVert;
   private Set<String> allVerticies;
-  private HashMap<String, LinkedList<String>> graph;
+  private HashMap<String, AdjacencyList> graph;
+  // reverse index: vertex -> vertices with an edge to it
+  private HashMap<String, AdjacencyList> incoming;
+  private List<GraphListener> listeners;
 
   /**
    * Instantiates a new graph.
@@ -38,7 +51,9 @@ public class Graph implements GraphADT {
     this.numOfEdges = 0;
     this.numOfVert = 0;
     this.allVerticies = new HashSet<String>();
-    this.graph = new HashMap<String, LinkedList<String>>();
+    this.graph = new HashMap<String, AdjacencyList>();
+    this.incoming = new HashMap<String, AdjacencyList>();
+    this.listeners = new ArrayList<GraphListener>();
   }
 
   /**
@@ -60,6 +75,7 @@ public class Graph implements GraphADT {
     if (vertexSet.contains(vertex))
       return;
 
+    fireVertexChanged(vertex);
     this.allVerticies.add(vertex);
     this.graph.put(vertex, null);
 
@@ -85,40 +101,29 @@ public class Graph implements GraphADT {
     if (!vertexSet.contains(vertex))
       return;
 
-    // remove all edges from vertex 
-    LinkedList<String> currentList = this.graph.get(vertex);
-    if (currentList != null) {
-      for(int i=0; i < currentList.size();) {
-        String e = currentList.get(i);
-        this.removeEdge(vertex, e);
-      }
+    fireVertexChanged(vertex);
+
+    // remove all edges from vertex
+    AdjacencyList outList = this.graph.get(vertex);
+    if (outList != null) {
+      for (String to : outList)
+        this.incoming.get(to).remove(vertex);
+      this.numOfEdges -= outList.size();
     }
-    
-    //remove vertex from all vertices
-    this.allVerticies.remove(vertex);
-    
-    
-
-    //remove all edges that contains vertex
-    for (Iterator<String> it = vertexSet.iterator(); it.hasNext(); ) {
-      String f = it.next();
- 
-      List<String> currentAdjacentVertices = this.getAdjacentVerticesOf(f);
-      
-      if(currentAdjacentVertices !=null && currentAdjacentVertices.contains(vertex)) {
-        System.out.println("FOUND:" + vertex + " edged with " + f);
-        
-        this.removeEdge(f, vertex);
-        
-      }
-      
-      
+
+    // remove all edges to vertex, found through the reverse index
+    AdjacencyList inList = this.incoming.get(vertex);
+    if (inList != null) {
+      for (String from : inList)
+        this.graph.get(from).remove(vertex);
+      this.numOfEdges -= inList.size();
     }
-    
 
+    //remove vertex from all vertices
+    this.allVerticies.remove(vertex);
 
     this.graph.remove(vertex);
-
+    this.incoming.remove(vertex);
 
     this.numOfVert--;
   }
@@ -149,16 +154,23 @@ public class Graph implements GraphADT {
 
 
 // get edges
-    LinkedList<String> currentList = this.graph.get(vertex1);
-    if (currentList == null)
-      currentList = new LinkedList<String>();
-    else if (currentList.contains(vertex2)) // check if edge exist
+    AdjacencyList currentList = this.graph.get(vertex1);
+    if (currentList == null) {
+      currentList = new AdjacencyList();
+      this.graph.put(vertex1, currentList);
+    }
+    if (!currentList.addIfAbsent(vertex2)) // edge exists
       return;
 
-    currentList.add(vertex2);
-    this.graph.put(vertex1, currentList);
+    AdjacencyList reverseList = this.incoming.get(vertex2);
+    if (reverseList == null) {
+      reverseList = new AdjacencyList();
+      this.incoming.put(vertex2, reverseList);
+    }
+    reverseList.add(vertex1);
 
     this.numOfEdges++;
+    fireVertexChanged(vertex1);
   }
 
   /**
@@ -182,14 +194,14 @@ public class Graph implements GraphADT {
       return;
 
     // return if edge doesn't exisits
-    List<String> currentAdjacentVertices = this.getAdjacentVerticesOf(vertex1);
-    
-    if (!currentAdjacentVertices.contains(vertex2))
+    AdjacencyList currentAdjacentVertices = this.graph.get(vertex1);
+
+    if (currentAdjacentVertices == null || !currentAdjacentVertices.remove(vertex2))
       return;
-   
-    currentAdjacentVertices.remove(vertex2);
+
+    this.incoming.get(vertex2).remove(vertex1);
     this.numOfEdges--;
-    
+    fireVertexChanged(vertex1);
   }
 
   /**
@@ -211,18 +223,54 @@ public class Graph implements GraphADT {
    * graph structure, this could be either the predecessors or successors of A.
    * 
    * @param vertex the specified vertex
-   * @return an List<String> of all the adjacent vertices for specified vertex
+   * @return a read-only view of all the adjacent vertices for specified vertex
    */
   public List<String> getAdjacentVerticesOf(String vertex) {
 
-    LinkedList<String> currentList = this.graph.get(vertex);
+    AdjacencyList currentList = this.graph.get(vertex);
     if (currentList == null)
       return null;
     else {
-      return currentList;
+      return Collections.unmodifiableList(currentList);
     }
   }
 
+  /**
+   * Get all the vertices that have an edge to a vertex, i.e. the packages that depend on it.
+   *
+   * @param vertex the specified vertex
+   * @return a read-only view of all the vertices with an edge to the specified vertex, or null if
+   *         there are none
+   */
+  public List<String> getIncomingVerticesOf(String vertex) {
+    AdjacencyList inList = this.incoming.get(vertex);
+    return inList == null ? null : Collections.unmodifiableList(inList);
+  }
+
+  /**
+   * Registers a listener that is notified about every change to this graph.
+   *
+   * @param listener the listener
+   */
+  public void addGraphListener(GraphListener listener) {
+    if (!this.listeners.contains(listener))
+      this.listeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeGraphListener(GraphListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  private void fireVertexChanged(String vertex) {
+    for (GraphListener listener : this.listeners)
+      listener.vertexChanged(vertex);
+  }
+
   /**
    * Returns the number of edges in this graph.
    *
@@ -240,4 +288,151 @@ public class Graph implements GraphADT {
   public int order() {
     return this.numOfVert;
   }
+
+  /**
+   * Adjacency of a vertex without duplicates.
+   * 
+   * Entries are kept at the front of an array in insertion order. Lists with more than
+   * INDEX_THRESHOLD entries also keep an open addressing table from every entry to its position, so
+   * contains, addIfAbsent and remove take expected constant time instead of a scan. Removing from
+   * such a list moves its last entry into the free position instead of shifting the entries after
+   * it; a short list shifts them. Only writers change the array or the table, so reading a list
+   * never changes it and any number of readers can share it while no writer runs.
+   */
+  private static final class AdjacencyList extends AbstractList<String> implements RandomAccess {
+
+    private static final String[] EMPTY = new String[0];
+    private static final int REMOVED = -1; // a table slot whose entry was removed
+
+    private String[] items = EMPTY; // entries in items[0 .. size - 1]
+    private int size; // number of entries
+    private int[] index; // position + 1 of the entry in each slot, 0 if free; null if not indexed
+    private int usedSlots; // slots of the table that are not free, including removed entries
+
+    public int size() {
+      return this.size;
+    }
+
+    public String get(int i) {
+      if (i < 0 || i >= this.size)
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size);
+      return this.items[i];
+    }
+
+    public boolean contains(Object o) {
+      return o instanceof String && position((String) o) >= 0;
+    }
+
+    public int indexOf(Object o) {
+      return o instanceof String ? position((String) o) : -1;
+    }
+
+    public boolean add(String vertex) {
+      if (this.size == this.items.length)
+        grow();
+      this.items[this.size] = vertex;
+      if (this.index != null)
+        insert(vertex, this.size);
+      this.size++;
+      this.modCount++;
+      // index a list that grew big; rebuilding also frees the slots of removed entries
+      if (this.index == null ? this.size > INDEX_THRESHOLD
+        : this.usedSlots * 4 > this.index.length * 3)
+        rebuildIndex(this.items.length);
+      return true;
+    }
+
+    /**
+     * Appends a vertex unless it is already in the list.
+     *
+     * @param vertex the vertex
+     * @return true if it was appended
+     */
+    boolean addIfAbsent(String vertex) {
+      return position(vertex) < 0 && add(vertex);
+    }
+
+    public boolean remove(Object o) {
+      if (!(o instanceof String))
+        return false;
+      int position = position((String) o);
+      if (position < 0)
+        return false;
+
+      int last = this.size - 1;
+      if (this.index == null) {
+        System.arraycopy(this.items, position + 1, this.items, position, last - position);
+      } else {
+        this.index[slotOf((String) o)] = REMOVED;
+        if (position != last) { // the last entry takes the free position
+          this.items[position] = this.items[last];
+          this.index[slotOf(this.items[position])] = position + 1;
+        }
+      }
+      this.items[last] = null;
+      this.size = last;
+      this.modCount++;
+      return true;
+    }
+
+    /**
+     * Returns the position of a vertex in items, or -1 if it is not in the list.
+     */
+    private int position(String vertex) {
+      if (this.index == null) {
+        for (int i = 0; i < this.size; i++) {
+          if (vertex.equals(this.items[i]))
+            return i;
+        }
+        return -1;
+      }
+      int slot = slotOf(vertex);
+      return slot < 0 ? -1 : this.index[slot] - 1;
+    }
+
+    /**
+     * Returns the table slot that holds a vertex, or -1 if it is not in the list.
+     */
+    private int slotOf(String vertex) {
+      int mask = this.index.length - 1;
+      for (int slot = hash(vertex) & mask;; slot = (slot + 1) & mask) {
+        int entry = this.index[slot];
+        if (entry == 0)
+          return -1;
+        if (entry != REMOVED && vertex.equals(this.items[entry - 1]))
+          return slot;
+      }
+    }
+
+    private void insert(String vertex, int position) {
+      int mask = this.index.length - 1;
+      int slot = hash(vertex) & mask;
+      while (this.index[slot] > 0)
+        slot = (slot + 1) & mask;
+      if (this.index[slot] == 0)
+        this.usedSlots++;
+      this.index[slot] = position + 1;
+    }
+
+    private void grow() {
+      this.items = Arrays.copyOf(this.items, Math.max(4, this.items.length * 2));
+      if (this.index != null)
+        rebuildIndex(this.items.length);
+    }
+
+    /**
+     * Builds a table with room for the given number of entries at most half full.
+     */
+    private void rebuildIndex(int capacity) {
+      this.index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+      this.usedSlots = 0;
+      for (int i = 0; i < this.size; i++)
+        insert(this.items[i], i);
+    }
+
+    private static int hash(String vertex) {
+      int h = vertex.hashCode();
+      return h ^ (h >>> 16);
+    }
+  }
 }
@@ -0,0 +1,32 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Receives change notifications from an ObservableGraph.
+ */
+public interface GraphListener {
+
+  /**
+   * Called when a vertex is added, whenever the adjacent vertices (dependencies) of a vertex
+   * change, and before a vertex is removed. In all three cases the edges into the vertex are still
+   * in the graph, so everything that transitively depends on the vertex can be found from it.
+   *
+   * @param vertex the vertex that changed
+   */
+  public void vertexChanged(String vertex);
+
+  /**
+   * Called after a vertex and its edges have been removed. Graphs that can be read while they are
+   * being changed call this in addition to vertexChanged, so listeners can discard anything derived
+   * from the graph during the removal.
+   *
+   * @param vertex the removed vertex
+   */
+  public default void vertexRemoved(String vertex) {}
+}
@@ -0,0 +1,461 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Read-only graph backed by a memory-mapped binary snapshot file.
+ *
+ * Opening a snapshot maps the file and creates a few buffer views; nothing is deserialized. Name
+ * lookups go through a hash table stored in the file, adjacency is read straight from the mapped
+ * CSR arrays, and vertex names are decoded (and cached) only when they are asked for.
+ *
+ * File layout (big-endian ints, n = vertices, m = edges, t = hash table size):
+ *
+ * <pre>
+ * header       MAGIC, VERSION, n, m, t, number of name bytes
+ * offsets      int[n + 1]  adjacency of v is targets[offsets[v] .. offsets[v + 1] - 1]
+ * targets      int[m]
+ * inOffsets    int[n + 1]  reverse adjacency of v is inTargets[inOffsets[v] .. inOffsets[v + 1] - 1]
+ * inTargets    int[m]
+ * nameOffsets  int[n + 1]  name of v is names[nameOffsets[v] .. nameOffsets[v + 1] - 1]
+ * table        int[t]      open addressing on String.hashCode(), holds id + 1 (0 = empty)
+ * names        byte[]      UTF-8
+ * </pre>
+ *
+ * The mutating GraphADT methods throw UnsupportedOperationException.
+ */
+public class GraphSnapshot implements IndexedGraph, BidirectionalGraph {
+
+  /** "PKGS" */
+  private static final int MAGIC = 0x504B4753;
+  private static final int VERSION = 2;
+  private static final int HEADER_INTS = 6;
+
+  private final int numOfVert;
+  private final int numOfEdges;
+  private final int tableMask;
+
+  private final IntBuffer offsets;
+  private final IntBuffer targets;
+  private final IntBuffer inOffsets;
+  private final IntBuffer inTargets;
+  private final IntBuffer nameOffsets;
+  private final IntBuffer table;
+  private final ByteBuffer names;
+
+  // names decoded so far
+  private final String[] nameCache;
+
+  /**
+   * Instantiates a snapshot over an already mapped file.
+   *
+   * @param buffer the snapshot bytes
+   * @throws IOException if the buffer is not a snapshot
+   */
+  private GraphSnapshot(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC)
+      throw new IOException("Not a package graph snapshot");
+    if (buffer.getInt(4) != VERSION)
+      throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+
+    this.numOfVert = buffer.getInt(8);
+    this.numOfEdges = buffer.getInt(12);
+    int tableSize = buffer.getInt(16);
+    int nameBytes = buffer.getInt(20);
+    this.tableMask = tableSize - 1;
+
+    // lookups need a power-of-two table with a free slot; every section must be in the file
+    if (this.numOfVert < 0 || this.numOfEdges < 0 || nameBytes < 0 || tableSize <= this.numOfVert
+      || Integer.bitCount(tableSize) != 1)
+      throw new IOException("Corrupt snapshot header");
+    long bytes = HEADER_INTS * 4L
+      + 4L * (3L * (this.numOfVert + 1) + 2L * this.numOfEdges + tableSize) + nameBytes;
+    if (buffer.capacity() != bytes)
+      throw new IOException(
+        "Truncated or corrupt snapshot: " + buffer.capacity() + " bytes, expected " + bytes);
+
+    int position = HEADER_INTS * 4;
+    this.offsets = intSection(buffer, position, this.numOfVert + 1);
+    position += (this.numOfVert + 1) * 4;
+    this.targets = intSection(buffer, position, this.numOfEdges);
+    position += this.numOfEdges * 4;
+    this.inOffsets = intSection(buffer, position, this.numOfVert + 1);
+    position += (this.numOfVert + 1) * 4;
+    this.inTargets = intSection(buffer, position, this.numOfEdges);
+    position += this.numOfEdges * 4;
+    this.nameOffsets = intSection(buffer, position, this.numOfVert + 1);
+    position += (this.numOfVert + 1) * 4;
+    this.table = intSection(buffer, position, tableSize);
+    position += tableSize * 4;
+    this.names = section(buffer, position, nameBytes);
+
+    this.nameCache = new String[this.numOfVert];
+  }
+
+  /**
+   * Memory-maps a snapshot file.
+   *
+   * @param path the snapshot file
+   * @return the graph stored in the file
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  public static GraphSnapshot open(String path) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE)
+        throw new IOException("Snapshot larger than 2 GB: " + path);
+
+      // the mapping stays valid after the channel is closed
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new GraphSnapshot(buffer);
+    }
+  }
+
+  /**
+   * Writes a snapshot of a graph to a file. Vertex IDs are assigned densely in the iteration order
+   * of getAllVertices().
+   *
+   * The snapshot is written to a temporary file next to the target and then moved over it, so
+   * processes that still map the old file keep reading the old version.
+   *
+   * @param graph the graph
+   * @param path the snapshot file, replaced if it exists
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(GraphADT graph, String path) throws IOException {
+    Set<String> vertices = graph.getAllVertices();
+    int n = vertices.size();
+
+    String[] vertexNames = new String[n];
+    byte[][] encoded = new byte[n][];
+    Map<String, Integer> ids = new HashMap<String, Integer>();
+    int nameBytes = 0;
+    for (String vertex : vertices) {
+      int id = ids.size();
+      ids.put(vertex, id);
+      vertexNames[id] = vertex;
+      encoded[id] = vertex.getBytes(StandardCharsets.UTF_8);
+      nameBytes += encoded[id].length;
+    }
+
+    // forward adjacency as ids, and the in-degree of every vertex for the reverse adjacency
+    int[][] adjacency = new int[n][];
+    int[] inOffsets = new int[n + 1];
+    int m = 0;
+    for (int id = 0; id < n; id++) {
+      List<String> adjacent = graph.getAdjacentVerticesOf(vertexNames[id]);
+      adjacency[id] = new int[adjacent == null ? 0 : adjacent.size()];
+      for (int i = 0; i < adjacency[id].length; i++) {
+        adjacency[id][i] = ids.get(adjacent.get(i));
+        inOffsets[adjacency[id][i] + 1]++;
+      }
+      m += adjacency[id].length;
+    }
+
+    for (int id = 0; id < n; id++)
+      inOffsets[id + 1] += inOffsets[id];
+    int[] inTargets = new int[m];
+    int[] next = Arrays.copyOf(inOffsets, n);
+    for (int id = 0; id < n; id++) {
+      for (int to : adjacency[id])
+        inTargets[next[to]++] = id;
+    }
+
+    int tableSize = Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1;
+    int[] table = new int[tableSize];
+    for (int id = 0; id < n; id++) {
+      int slot = spread(vertexNames[id].hashCode()) & (tableSize - 1);
+      while (table[slot] != 0)
+        slot = (slot + 1) & (tableSize - 1);
+      table[slot] = id + 1;
+    }
+
+    Path target = Paths.get(path).toAbsolutePath();
+    Path temporary = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+    try {
+      writeTo(temporary, n, m, tableSize, nameBytes, adjacency, inOffsets, inTargets, encoded,
+        table);
+      try {
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Writes the snapshot sections to a new file.
+   */
+  private static void writeTo(Path path, int n, int m, int tableSize, int nameBytes,
+    int[][] adjacency, int[] inOffsets, int[] inTargets, byte[][] encoded, int[] table)
+    throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(n);
+      out.writeInt(m);
+      out.writeInt(tableSize);
+      out.writeInt(nameBytes);
+
+      int offset = 0;
+      for (int[] adjacent : adjacency) {
+        out.writeInt(offset);
+        offset += adjacent.length;
+      }
+      out.writeInt(offset);
+
+      for (int[] adjacent : adjacency) {
+        for (int to : adjacent)
+          out.writeInt(to);
+      }
+
+      for (int inOffset : inOffsets)
+        out.writeInt(inOffset);
+      for (int from : inTargets)
+        out.writeInt(from);
+
+      offset = 0;
+      for (byte[] name : encoded) {
+        out.writeInt(offset);
+        offset += name.length;
+      }
+      out.writeInt(offset);
+
+      for (int slot : table)
+        out.writeInt(slot);
+
+      for (byte[] name : encoded)
+        out.write(name);
+    }
+  }
+
+  public void addVertex(String vertex) {
+    throw new UnsupportedOperationException("Graph snapshots are read-only");
+  }
+
+  public void removeVertex(String vertex) {
+    throw new UnsupportedOperationException("Graph snapshots are read-only");
+  }
+
+  public void addEdge(String vertex1, String vertex2) {
+    throw new UnsupportedOperationException("Graph snapshots are read-only");
+  }
+
+  public void removeEdge(String vertex1, String vertex2) {
+    throw new UnsupportedOperationException("Graph snapshots are read-only");
+  }
+
+  /**
+   * Returns a read-only Set view of all the vertices.
+   *
+   * @return the all vertices
+   */
+  public Set<String> getAllVertices() {
+    return new AbstractSet<String>() {
+      public boolean contains(Object o) {
+        return o instanceof String && idOf((String) o) >= 0;
+      }
+
+      public int size() {
+        return numOfVert;
+      }
+
+      public Iterator<String> iterator() {
+        return new Iterator<String>() {
+          private int next = 0;
+
+          public boolean hasNext() {
+            return this.next < numOfVert;
+          }
+
+          public String next() {
+            if (!hasNext())
+              throw new NoSuchElementException();
+            return nameOf(this.next++);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Get all the neighbor (adjacent) vertices of a vertex, as a read-only view over the mapped
+   * adjacency.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the adjacent vertices, or null if the vertex does not exist
+   */
+  public List<String> getAdjacentVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new NameList(this.offsets, this.targets, id);
+  }
+
+  /**
+   * Get all the vertices that have an edge to a vertex, as a read-only view over the mapped
+   * reverse adjacency.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the vertices with an edge to the specified vertex, or null if
+   *         the vertex does not exist
+   */
+  public List<String> getIncomingVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new NameList(this.inOffsets, this.inTargets, id);
+  }
+
+  public int size() {
+    return this.numOfEdges;
+  }
+
+  public int order() {
+    return this.numOfVert;
+  }
+
+  public int idOf(String vertex) {
+    if (vertex == null || this.numOfVert == 0)
+      return -1;
+
+    int slot = spread(vertex.hashCode()) & this.tableMask;
+    int entry;
+    while ((entry = this.table.get(slot)) != 0) {
+      if (nameEquals(entry - 1, vertex))
+        return entry - 1;
+      slot = (slot + 1) & this.tableMask;
+    }
+    return -1;
+  }
+
+  public String nameOf(int id) {
+    if (id < 0 || id >= this.numOfVert)
+      return null;
+
+    String name = this.nameCache[id];
+    if (name == null) {
+      int start = this.nameOffsets.get(id);
+      byte[] bytes = new byte[this.nameOffsets.get(id + 1) - start];
+      for (int i = 0; i < bytes.length; i++)
+        bytes[i] = this.names.get(start + i);
+      name = new String(bytes, StandardCharsets.UTF_8);
+      this.nameCache[id] = name;
+    }
+    return name;
+  }
+
+  public int idBound() {
+    return this.numOfVert;
+  }
+
+  public int outDegree(int id) {
+    if (id < 0 || id >= this.numOfVert)
+      return 0;
+    return this.offsets.get(id + 1) - this.offsets.get(id);
+  }
+
+  public int adjacentId(int id, int index) {
+    return this.targets.get(this.offsets.get(id) + index);
+  }
+
+  /**
+   * Read-only view of one mapped adjacency list as vertex names.
+   */
+  private class NameList extends AbstractList<String> {
+
+    private final IntBuffer listOffsets;
+    private final IntBuffer listTargets;
+    private final int id;
+
+    NameList(IntBuffer listOffsets, IntBuffer listTargets, int id) {
+      this.listOffsets = listOffsets;
+      this.listTargets = listTargets;
+      this.id = id;
+    }
+
+    public String get(int index) {
+      if (index < 0 || index >= size())
+        throw new IndexOutOfBoundsException("Index: " + index);
+      return nameOf(this.listTargets.get(this.listOffsets.get(this.id) + index));
+    }
+
+    public int size() {
+      return this.listOffsets.get(this.id + 1) - this.listOffsets.get(this.id);
+    }
+  }
+
+  /**
+   * Returns whether the name of a vertex is a string, comparing the string as it would be encoded
+   * in UTF-8 (unpaired surrogates as '?', like String.getBytes) with the mapped name bytes.
+   */
+  private boolean nameEquals(int id, String key) {
+    int position = this.nameOffsets.get(id);
+    int end = this.nameOffsets.get(id + 1);
+
+    for (int i = 0; i < key.length(); i++) {
+      int c = key.codePointAt(i);
+      if (c >= Character.MIN_SUPPLEMENTARY_CODE_POINT)
+        i++;
+      else if (Character.isSurrogate((char) c))
+        c = '?';
+
+      int count = c < 0x80 ? 1 : c < 0x800 ? 2 : c < Character.MIN_SUPPLEMENTARY_CODE_POINT ? 3 : 4;
+      if (end - position < count)
+        return false;
+      // lead byte: count - 1 continuation bytes of 6 bits follow
+      int lead = count == 1 ? c : (0xF00 >> count) & 0xFF | c >> 6 * (count - 1);
+      if ((this.names.get(position) & 0xFF) != lead)
+        return false;
+      for (int k = 1; k < count; k++) {
+        if ((this.names.get(position + k) & 0xFF) != (0x80 | (c >> 6 * (count - 1 - k)) & 0x3F))
+          return false;
+      }
+      position += count;
+    }
+    return position == end;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static ByteBuffer section(ByteBuffer buffer, int position, int bytes) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(position);
+    view.limit(position + bytes);
+    return view.slice();
+  }
+
+  private static IntBuffer intSection(ByteBuffer buffer, int position, int ints) {
+    return section(buffer, position, ints * 4).asIntBuffer();
+  }
+}
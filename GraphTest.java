@@ -1,5 +1,7 @@
 import static org.junit.jupiter.api.Assertions.*; // org.junit.Assert.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -271,7 +273,87 @@ public class GraphTest {
      if (testGraph.order() != 3)
        fail("Inncorrect vertex size");
    }
-  
-  
-  
+
+  /**
+   * Random edge changes on a hub keep its adjacency without duplicates, and every dependency is
+   * found at the position it is listed at
+   */
+  @Test
+  public void test013_hubAdjacency() {
+
+    Random random = new Random(7);
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 20000; i++) {
+      String dep = "D" + random.nextInt(300);
+      if (random.nextInt(3) == 0) {
+        testGraph.removeEdge("HUB", dep);
+        expected.remove(dep);
+      } else {
+        testGraph.addEdge("HUB", dep);
+        if (!expected.contains(dep))
+          expected.add(dep);
+      }
+      List<String> adjacent = testGraph.getAdjacentVerticesOf("HUB");
+      int position = adjacent.indexOf(dep);
+      if (expected.contains(dep) ? position < 0 || !adjacent.get(position).equals(dep)
+        : position >= 0)
+        fail("Invalid position of " + dep + " after " + i + " changes");
+      if (i % 1000 == 0 && (adjacent.size() != expected.size()
+        || !new HashSet<String>(adjacent).equals(new HashSet<String>(expected))))
+        fail("Invalid adjacency after " + i + " changes");
+    }
+    List<String> adjacent = testGraph.getAdjacentVerticesOf("HUB");
+    if (adjacent.size() != expected.size()
+      || !new HashSet<String>(adjacent).equals(new HashSet<String>(expected))
+      || testGraph.size() != expected.size())
+      fail("Invalid adjacency");
+
+    for (String dep : expected) {
+      if (!testGraph.getIncomingVerticesOf(dep).contains("HUB"))
+        fail("Invalid incoming vertices of " + dep);
+    }
+    testGraph.removeVertex("HUB");
+    if (testGraph.size() != 0 || !testGraph.getIncomingVerticesOf(expected.get(0)).isEmpty())
+      fail("Edges of a removed hub remain");
+  }
+
+  /**
+   * Reading a hub after removals doesn't change it, so readers on several threads see the same
+   * adjacency
+   */
+  @Test
+  public void test014_concurrentReaders() throws Exception {
+
+    Set<String> expected = new HashSet<String>();
+    for (int i = 0; i < 20000; i++) {
+      testGraph.addEdge("HUB", "D" + i);
+      expected.add("D" + i);
+    }
+    for (int i = 0; i < 20000; i += 3) {
+      testGraph.removeEdge("HUB", "D" + i);
+      expected.remove("D" + i);
+    }
+
+    List<Thread> readers = new ArrayList<Thread>();
+    final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+    for (int t = 0; t < 8; t++) {
+      Thread reader = new Thread(() -> {
+        for (int round = 0; round < 20; round++) {
+          List<String> adjacent = testGraph.getAdjacentVerticesOf("HUB");
+          Set<String> seen = new HashSet<String>();
+          for (int i = 0; i < adjacent.size(); i++)
+            seen.add(adjacent.get(i));
+          if (!seen.equals(expected) || adjacent.indexOf("D1") < 0)
+            failures.add("round " + round);
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+    for (Thread reader : readers)
+      reader.join(60000);
+    if (!failures.isEmpty() || testGraph.getAdjacentVerticesOf("HUB").size() != expected.size())
+      fail("Readers saw a different adjacency " + failures);
+  }
+
 }
@@ -0,0 +1,851 @@
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Immutable, frozen copy of a graph.
+ *
+ * The copy is made once by copyOf and never changes afterwards: vertex names are interned to dense
+ * IDs and both adjacency directions are packed into CSR arrays. All fields are final, so an
+ * ImmutableGraph can be handed to any number of threads without locking, and a reader always sees
+ * the whole version it started with while a newer version is being built.
+ *
+ * A new version is made with edit(). It shares the CSR arrays and keeps only its changes in a layer
+ * on top of them: the new dependency list of every changed vertex, and the dependents it gained and
+ * lost. Publishing a version thus takes time proportional to the size of its changes, not to the
+ * size of the graph, even if a hub gains a dependent. All versions edited from one copy share the
+ * layer; every entry is tagged with the version that made it, and a version ignores entries of
+ * newer ones. Once the layer holds more than a quarter as many entries as the CSR arrays, the next
+ * version is packed into a fresh copy instead.
+ *
+ * The mutating GraphADT methods throw UnsupportedOperationException.
+ */
+public class ImmutableGraph implements IndexedGraph, BidirectionalGraph {
+
+  private static final int[] EMPTY = new int[0];
+
+  // entries the layer may hold before a version is packed again, whatever the size of the graph
+  private static final int MIN_LAYER_WEIGHT = 1024;
+
+  private final String[] names;
+  private final Map<String, Integer> ids;
+
+  // adjacency of v is targets[offsets[v] .. offsets[v + 1] - 1], reverse adjacency likewise
+  private final int[] offsets;
+  private final int[] targets;
+  private final int[] inOffsets;
+  private final int[] inTargets;
+
+  // changes of the versions edited from the CSR arrays, null for the copy itself
+  private final Layer layer;
+  private final int version;
+
+  private final int numOfVert;
+  private final int numOfEdges;
+  private final int idBound;
+
+  /**
+   * Instantiates a graph over packed arrays and a vertex dictionary with dense IDs, which it takes
+   * over: none of them may change afterwards.
+   */
+  ImmutableGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets,
+    int[] inOffsets, int[] inTargets) {
+    this.names = names;
+    this.ids = ids;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.inOffsets = inOffsets;
+    this.inTargets = inTargets;
+    this.layer = null;
+    this.version = 0;
+    this.numOfVert = names.length;
+    this.numOfEdges = targets.length;
+    this.idBound = names.length;
+  }
+
+  /**
+   * Instantiates a version that reads the packed arrays of base through a layer.
+   */
+  private ImmutableGraph(ImmutableGraph base, Layer layer, int version, int numOfVert,
+    int numOfEdges, int idBound) {
+    this.names = base.names;
+    this.ids = base.ids;
+    this.offsets = base.offsets;
+    this.targets = base.targets;
+    this.inOffsets = base.inOffsets;
+    this.inTargets = base.inTargets;
+    this.layer = layer;
+    this.version = version;
+    this.numOfVert = numOfVert;
+    this.numOfEdges = numOfEdges;
+    this.idBound = idBound;
+  }
+
+  /**
+   * Returns an immutable copy of a graph. Vertex IDs are assigned densely in the iteration order of
+   * getAllVertices(). The graph must not change while it is copied.
+   *
+   * @param graph the graph
+   * @return the copy, or the graph itself if it already is an ImmutableGraph
+   */
+  public static ImmutableGraph copyOf(GraphADT graph) {
+    if (graph instanceof ImmutableGraph)
+      return (ImmutableGraph) graph;
+
+    return pack(graph);
+  }
+
+  /**
+   * Packs a graph into new CSR arrays, see copyOf.
+   *
+   * @param graph the graph
+   * @return the copy
+   */
+  private static ImmutableGraph pack(GraphADT graph) {
+    Set<String> vertices = graph.getAllVertices();
+    int n = vertices.size();
+
+    String[] names = new String[n];
+    Map<String, Integer> ids = new HashMap<String, Integer>(n * 4 / 3 + 1);
+    for (String vertex : vertices) {
+      names[ids.size()] = vertex;
+      ids.put(vertex, ids.size());
+    }
+
+    int[] offsets = new int[n + 1];
+    int[] inOffsets = new int[n + 1];
+    for (int id = 0; id < n; id++) {
+      List<String> adjacent = graph.getAdjacentVerticesOf(names[id]);
+      int degree = adjacent == null ? 0 : adjacent.size();
+      offsets[id + 1] = offsets[id] + degree;
+      for (int i = 0; i < degree; i++)
+        inOffsets[ids.get(adjacent.get(i)) + 1]++;
+    }
+
+    int m = offsets[n];
+    int[] targets = new int[m];
+    for (int id = 0; id < n; id++) {
+      List<String> adjacent = graph.getAdjacentVerticesOf(names[id]);
+      for (int i = offsets[id]; i < offsets[id + 1]; i++)
+        targets[i] = ids.get(adjacent.get(i - offsets[id]));
+    }
+
+    for (int id = 0; id < n; id++)
+      inOffsets[id + 1] += inOffsets[id];
+    int[] inTargets = new int[m];
+    int[] next = Arrays.copyOf(inOffsets, n);
+    for (int id = 0; id < n; id++) {
+      for (int i = offsets[id]; i < offsets[id + 1]; i++)
+        inTargets[next[targets[i]]++] = id;
+    }
+
+    return new ImmutableGraph(names, ids, offsets, targets, inOffsets, inTargets);
+  }
+
+  /**
+   * Starts a new version of this graph. The changes made through the returned editor are only
+   * visible in the graph returned by its toImmutableGraph(); this graph never changes. Editing a
+   * version that already has a newer one packs it into a fresh copy first.
+   *
+   * @return the editor
+   */
+  Editor edit() {
+    if (this.layer != null && this.layer.latest() != this.version)
+      return pack(this).new Editor();
+    return new Editor();
+  }
+
+  /**
+   * Returns the number of adjacency entries this version keeps on top of its packed arrays, 0 for
+   * a fresh copy.
+   *
+   * @return the weight of the layer
+   */
+  long layerWeight() {
+    return this.layer == null ? 0 : this.layer.weightOf(this.version);
+  }
+
+  public void addVertex(String vertex) {
+    throw new UnsupportedOperationException("Immutable graphs are read-only");
+  }
+
+  public void removeVertex(String vertex) {
+    throw new UnsupportedOperationException("Immutable graphs are read-only");
+  }
+
+  public void addEdge(String vertex1, String vertex2) {
+    throw new UnsupportedOperationException("Immutable graphs are read-only");
+  }
+
+  public void removeEdge(String vertex1, String vertex2) {
+    throw new UnsupportedOperationException("Immutable graphs are read-only");
+  }
+
+  /**
+   * Returns a read-only Set view of all the vertices.
+   *
+   * @return the all vertices
+   */
+  public Set<String> getAllVertices() {
+    return new AbstractSet<String>() {
+      public boolean contains(Object o) {
+        return o instanceof String && idOf((String) o) >= 0;
+      }
+
+      public int size() {
+        return numOfVert;
+      }
+
+      public Iterator<String> iterator() {
+        return new Iterator<String>() {
+          private int next = skipFree(0);
+
+          public boolean hasNext() {
+            return this.next < idBound;
+          }
+
+          public String next() {
+            if (!hasNext())
+              throw new NoSuchElementException();
+            String vertex = name(this.next);
+            this.next = skipFree(this.next + 1);
+            return vertex;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Get all the neighbor (adjacent) vertices of a vertex, as a read-only view.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the adjacent vertices, or null if the vertex does not exist
+   */
+  public List<String> getAdjacentVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    if (id < 0)
+      return null;
+
+    Change change = changeOf(id);
+    if (change != null && change.out != null)
+      return new NameList(change.out, 0, change.out.length);
+    return new NameList(this.targets, this.offsets[id], this.offsets[id + 1]);
+  }
+
+  /**
+   * Get all the vertices that have an edge to a vertex, as a read-only view.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the vertices with an edge to the specified vertex, or null if
+   *         the vertex does not exist
+   */
+  public List<String> getIncomingVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    if (id < 0)
+      return null;
+
+    Change change = changeOf(id);
+    if (change != null) {
+      int[] dependents = dependentsOf(change, id);
+      return new NameList(dependents, 0, dependents.length);
+    }
+    return new NameList(this.inTargets, this.inOffsets[id], this.inOffsets[id + 1]);
+  }
+
+  public int size() {
+    return this.numOfEdges;
+  }
+
+  public int order() {
+    return this.numOfVert;
+  }
+
+  public int idOf(String vertex) {
+    if (vertex == null)
+      return -1;
+
+    Integer id = this.ids.get(vertex);
+    if (id == null && this.layer != null)
+      id = this.layer.addedIds.get(vertex);
+    return id != null && isAssigned(id) ? id : -1;
+  }
+
+  public String nameOf(int id) {
+    return isAssigned(id) ? name(id) : null;
+  }
+
+  public int idBound() {
+    return this.idBound;
+  }
+
+  public int outDegree(int id) {
+    if (id < 0 || id >= this.idBound)
+      return 0;
+
+    Change change = changeOf(id);
+    if (change != null && change.out != null)
+      return change.out.length;
+    return id < this.names.length ? this.offsets[id + 1] - this.offsets[id] : 0;
+  }
+
+  public int adjacentId(int id, int index) {
+    Change change = changeOf(id);
+    if (change != null && change.out != null)
+      return change.out[index];
+    return this.targets[this.offsets[id] + index];
+  }
+
+  /**
+   * Returns the newest change of a vertex up to this version, or null if this version reads it
+   * from the packed arrays.
+   */
+  private Change changeOf(int id) {
+    if (this.layer == null || id < this.names.length && !this.layer.touched[id])
+      return null;
+
+    Change change = this.layer.changes.get(id);
+    while (change != null && change.version > this.version)
+      change = change.previous;
+    return change;
+  }
+
+  private boolean isAssigned(int id) {
+    if (id < 0 || id >= this.idBound)
+      return false;
+
+    Change change = changeOf(id);
+    return change == null ? id < this.names.length : !change.removed;
+  }
+
+  /**
+   * Returns the name an ID was assigned, whether or not the vertex is in this version.
+   */
+  private String name(int id) {
+    return id < this.names.length ? this.names[id] : this.layer.addedNames.get(id);
+  }
+
+  private int skipFree(int id) {
+    while (id < this.idBound && !isAssigned(id))
+      id++;
+    return id;
+  }
+
+  /**
+   * Returns a copy of the dependency IDs of a vertex in this version.
+   */
+  private int[] outIds(int id) {
+    Change change = changeOf(id);
+    if (change != null && change.out != null)
+      return change.out.clone();
+    if (id >= this.names.length)
+      return EMPTY;
+    return Arrays.copyOfRange(this.targets, this.offsets[id], this.offsets[id + 1]);
+  }
+
+  /**
+   * Returns the dependent IDs of a vertex in this version. The array must not be changed.
+   */
+  private int[] inIds(int id) {
+    Change change = changeOf(id);
+    if (change != null)
+      return dependentsOf(change, id);
+    if (id >= this.names.length)
+      return EMPTY;
+    return Arrays.copyOfRange(this.inTargets, this.inOffsets[id], this.inOffsets[id + 1]);
+  }
+
+  /**
+   * Returns the dependent IDs of a vertex as of one of its changes. They are worked out the first
+   * time they are asked for, from the newest older change that knows them, or else from the packed
+   * arrays. Only the newest known list of a vertex is kept, older versions work theirs out again.
+   */
+  private int[] dependentsOf(Change change, int id) {
+    int[] dependents = change.in;
+    if (dependents != null)
+      return dependents;
+
+    ArrayDeque<Change> pending = new ArrayDeque<Change>();
+    Change known = change;
+    while (known != null && (dependents = known.in) == null) {
+      pending.push(known);
+      known = known.previous;
+    }
+    if (known == null)
+      dependents = id < this.names.length
+        ? Arrays.copyOfRange(this.inTargets, this.inOffsets[id], this.inOffsets[id + 1]) : EMPTY;
+
+    while (!pending.isEmpty()) {
+      Change next = pending.pop();
+      dependents = apply(dependents, next.inRemoved, next.inAdded);
+      next.in = dependents;
+    }
+    if (known != null)
+      known.in = null;
+    return dependents;
+  }
+
+  /**
+   * Returns a list without the removed entries, which it must all contain, and with the added
+   * entries appended, which it must not contain.
+   */
+  private static int[] apply(int[] list, int[] removed, int[] added) {
+    if (removed.length == 0 && added.length == 0)
+      return list;
+
+    int[] sorted = removed.clone();
+    Arrays.sort(sorted);
+    int[] result = new int[list.length - removed.length + added.length];
+    int next = 0;
+    for (int value : list) {
+      if (Arrays.binarySearch(sorted, value) < 0)
+        result[next++] = value;
+    }
+    System.arraycopy(added, 0, result, next, added.length);
+    return result;
+  }
+
+  /**
+   * Read-only view of one range of packed vertex IDs as vertex names.
+   */
+  private class NameList extends AbstractList<String> {
+
+    private final int[] list;
+    private final int from;
+    private final int to;
+
+    NameList(int[] list, int from, int to) {
+      this.list = list;
+      this.from = from;
+      this.to = to;
+    }
+
+    public String get(int index) {
+      if (index < 0 || index >= size())
+        throw new IndexOutOfBoundsException("Index: " + index);
+      return name(this.list[this.from + index]);
+    }
+
+    public int size() {
+      return this.to - this.from;
+    }
+  }
+
+  /**
+   * The changed vertices of all versions edited from one packed copy.
+   *
+   * Entries are only added, by the editor that publishes the next version while holding the lock
+   * of the layer. A version becomes visible to other threads only after its entries were added, so
+   * a reader finds every entry of its own version and skips those of newer ones.
+   */
+  private static class Layer {
+
+    // whether a vertex of the packed arrays has any change; a stale false is only read by versions
+    // that are older than the change
+    private final boolean[] touched;
+
+    // newest change of every changed vertex, and IDs of vertices that are not in the packed arrays
+    private final Map<Integer, Change> changes = new ConcurrentHashMap<Integer, Change>();
+    private final Map<String, Integer> addedIds = new ConcurrentHashMap<String, Integer>();
+    private final Map<Integer, String> addedNames = new ConcurrentHashMap<Integer, String>();
+
+    // newest version and the entries held by each version, guarded by the lock of the layer
+    private int latest;
+    private long[] weights = new long[8];
+
+    Layer(int packed) {
+      this.touched = new boolean[packed];
+    }
+
+    synchronized int latest() {
+      return this.latest;
+    }
+
+    synchronized long weightOf(int version) {
+      return this.weights[version];
+    }
+  }
+
+  /**
+   * The state of a vertex from some version on: its dependencies (null if they still are those of
+   * the packed arrays), the dependents it lost and gained since its previous change, and that
+   * change.
+   */
+  private static class Change {
+
+    private final int version;
+    private final boolean removed;
+    private final int[] out;
+    private final int[] inRemoved;
+    private final int[] inAdded;
+    private final Change previous;
+
+    // all dependents as of this change once worked out, see dependentsOf
+    private volatile int[] in;
+
+    Change(int version, boolean removed, int[] out, int[] inRemoved, int[] inAdded,
+      Change previous) {
+      this.version = version;
+      this.removed = removed;
+      this.out = out;
+      this.inRemoved = inRemoved;
+      this.inAdded = inAdded;
+      this.previous = previous;
+    }
+  }
+
+  /**
+   * Growable list of vertex IDs in insertion order.
+   */
+  private static class IdList {
+
+    private int[] items;
+    private int size;
+
+    IdList(int[] items) {
+      this.items = items;
+      this.size = items.length;
+    }
+
+    int indexOf(int value) {
+      for (int i = 0; i < this.size; i++) {
+        if (this.items[i] == value)
+          return i;
+      }
+      return -1;
+    }
+
+    void add(int value) {
+      if (this.size == this.items.length)
+        this.items = Arrays.copyOf(this.items, Math.max(4, this.size * 2));
+      this.items[this.size++] = value;
+    }
+
+    boolean remove(int value) {
+      int i = indexOf(value);
+      if (i < 0)
+        return false;
+      System.arraycopy(this.items, i + 1, this.items, i, this.size - i - 1);
+      this.size--;
+      return true;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(this.items, this.size);
+    }
+  }
+
+  /**
+   * Dependents a vertex gained and lost in one version. A vertex is only in removed if it was a
+   * dependent before, and only in added if it was not.
+   */
+  private static class Dependents {
+
+    private final IdList removed = new IdList(EMPTY);
+    private final IdList added = new IdList(EMPTY);
+
+    void add(int dependent) {
+      if (!this.removed.remove(dependent))
+        this.added.add(dependent);
+    }
+
+    void remove(int dependent) {
+      if (!this.added.remove(dependent))
+        this.removed.add(dependent);
+    }
+  }
+
+  /**
+   * Changes to one version of the graph that become the next version. The editor is a mutable
+   * GraphADT view of that next version; the version it was made from does not change. Like
+   * CompactGraph, adding an edge adds missing vertices.
+   *
+   * An editor is used by one thread, and only toImmutableGraph() touches the shared layer, so an
+   * editor that is dropped half-way changes nothing.
+   */
+  class Editor implements GraphADT {
+
+    // vertices that are new to the layer, with IDs from ImmutableGraph.this.idBound on
+    private final Map<String, Integer> newIds = new HashMap<String, Integer>();
+    private final List<String> newNames = new ArrayList<String>();
+
+    // changed dependency lists and dependents, and vertices that were added (true) or removed
+    private final Map<Integer, IdList> out = new HashMap<Integer, IdList>();
+    private final Map<Integer, Dependents> in = new HashMap<Integer, Dependents>();
+    private final Map<Integer, Boolean> assigned = new HashMap<Integer, Boolean>();
+
+    private int numOfVert = ImmutableGraph.this.numOfVert;
+    private int numOfEdges = ImmutableGraph.this.numOfEdges;
+
+    public void addVertex(String vertex) {
+      if (vertex != null)
+        intern(vertex);
+    }
+
+    public void removeVertex(String vertex) {
+      int id = idOf(vertex);
+      if (id < 0)
+        return;
+
+      // remove all edges from vertex, then all edges to it; a self-loop is gone after the first
+      IdList dependencies = outList(id);
+      for (int i = 0; i < dependencies.size; i++)
+        dependents(dependencies.items[i]).remove(id);
+      this.numOfEdges -= dependencies.size;
+      this.out.put(id, new IdList(EMPTY));
+
+      Dependents changed = this.in.get(id);
+      int[] dependents = changed == null ? inIds(id)
+        : apply(inIds(id), changed.removed.toArray(), changed.added.toArray());
+      for (int dependent : dependents) {
+        outList(dependent).remove(id);
+        dependents(id).remove(dependent);
+      }
+      this.numOfEdges -= dependents.length;
+
+      this.assigned.put(id, false);
+      this.numOfVert--;
+    }
+
+    public void addEdge(String vertex1, String vertex2) {
+      if (vertex1 == null || vertex2 == null)
+        return;
+
+      int from = intern(vertex1);
+      int to = intern(vertex2);
+      IdList dependencies = outList(from);
+      if (dependencies.indexOf(to) >= 0)
+        return;
+
+      dependencies.add(to);
+      dependents(to).add(from);
+      this.numOfEdges++;
+    }
+
+    public void removeEdge(String vertex1, String vertex2) {
+      int from = idOf(vertex1);
+      int to = idOf(vertex2);
+      if (from < 0 || to < 0 || !outList(from).remove(to))
+        return;
+
+      dependents(to).remove(from);
+      this.numOfEdges--;
+    }
+
+    public Set<String> getAllVertices() {
+      return new AbstractSet<String>() {
+        public boolean contains(Object o) {
+          return o instanceof String && idOf((String) o) >= 0;
+        }
+
+        public int size() {
+          return numOfVert;
+        }
+
+        public Iterator<String> iterator() {
+          return new Iterator<String>() {
+            private int next = skipFree(0);
+
+            public boolean hasNext() {
+              return this.next < bound();
+            }
+
+            public String next() {
+              if (!hasNext())
+                throw new NoSuchElementException();
+              String vertex = nameOf(this.next);
+              this.next = skipFree(this.next + 1);
+              return vertex;
+            }
+          };
+        }
+      };
+    }
+
+    public List<String> getAdjacentVerticesOf(String vertex) {
+      int id = idOf(vertex);
+      if (id < 0)
+        return null;
+
+      final IdList changed = this.out.get(id);
+      if (changed == null)
+        return ImmutableGraph.this.getAdjacentVerticesOf(vertex);
+
+      return new AbstractList<String>() {
+        public String get(int index) {
+          if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index);
+          return nameOf(changed.items[index]);
+        }
+
+        public int size() {
+          return changed.size;
+        }
+      };
+    }
+
+    public int size() {
+      return this.numOfEdges;
+    }
+
+    public int order() {
+      return this.numOfVert;
+    }
+
+    /**
+     * Publishes the changes as the next version of the graph. The editor must not be used
+     * afterwards.
+     *
+     * @return the new version
+     */
+    ImmutableGraph toImmutableGraph() {
+      ImmutableGraph source = ImmutableGraph.this;
+      Layer layer = source.layer != null ? source.layer : new Layer(source.names.length);
+      Set<Integer> changedIds = new HashSet<Integer>(this.out.keySet());
+      changedIds.addAll(this.in.keySet());
+      changedIds.addAll(this.assigned.keySet());
+
+      synchronized (layer) {
+        long weight = layer.weights[source.version];
+        for (Integer id : changedIds) {
+          IdList dependencies = this.out.get(id);
+          Dependents dependents = this.in.get(id);
+          weight += 1 + (dependencies == null ? 0 : dependencies.size)
+            + (dependents == null ? 0 : dependents.removed.size + dependents.added.size);
+        }
+
+        // pack again once the layer is large, or if another version was published meanwhile
+        long packed = (long) source.names.length + source.targets.length;
+        if (layer.latest != source.version || weight > Math.max(MIN_LAYER_WEIGHT, packed / 4))
+          return pack(this);
+
+        int version = layer.latest + 1;
+        for (int i = 0; i < this.newNames.size(); i++) {
+          layer.addedIds.put(this.newNames.get(i), source.idBound + i);
+          layer.addedNames.put(source.idBound + i, this.newNames.get(i));
+        }
+        for (Integer id : changedIds) {
+          Change previous = layer.changes.get(id);
+          IdList dependencies = this.out.get(id);
+          Dependents dependents = this.in.get(id);
+          int[] out = dependencies != null ? dependencies.toArray()
+            : previous != null ? previous.out : null;
+          int[] inRemoved = dependents != null ? dependents.removed.toArray() : EMPTY;
+          int[] inAdded = dependents != null ? dependents.added.toArray() : EMPTY;
+          layer.changes.put(id,
+            new Change(version, !isAssigned(id), out, inRemoved, inAdded, previous));
+          if (id < layer.touched.length)
+            layer.touched[id] = true;
+        }
+
+        if (version == layer.weights.length)
+          layer.weights = Arrays.copyOf(layer.weights, version * 2);
+        layer.weights[version] = weight;
+        layer.latest = version;
+        return new ImmutableGraph(source, layer, version, this.numOfVert, this.numOfEdges,
+          bound());
+      }
+    }
+
+    private int bound() {
+      return ImmutableGraph.this.idBound + this.newNames.size();
+    }
+
+    private int idOf(String vertex) {
+      int id = knownId(vertex);
+      return id >= 0 && isAssigned(id) ? id : -1;
+    }
+
+    private String nameOf(int id) {
+      int source = ImmutableGraph.this.idBound;
+      return id < source ? name(id) : this.newNames.get(id - source);
+    }
+
+    /**
+     * Returns the ID a vertex was ever assigned up to the next version, or -1.
+     */
+    private int knownId(String vertex) {
+      if (vertex == null)
+        return -1;
+
+      Integer id = ids.get(vertex);
+      if (id == null && layer != null) {
+        id = layer.addedIds.get(vertex);
+        if (id != null && id >= ImmutableGraph.this.idBound) // added by an unrelated editor
+          id = null;
+      }
+      if (id == null)
+        id = this.newIds.get(vertex);
+      return id == null ? -1 : id;
+    }
+
+    private boolean isAssigned(int id) {
+      Boolean changed = this.assigned.get(id);
+      return changed != null ? changed : ImmutableGraph.this.isAssigned(id);
+    }
+
+    private int skipFree(int id) {
+      while (id < bound() && !isAssigned(id))
+        id++;
+      return id;
+    }
+
+    /**
+     * Returns the ID of a vertex, adding the vertex first if it is not in the next version. A
+     * removed vertex that is added again gets its old ID back.
+     */
+    private int intern(String vertex) {
+      int id = knownId(vertex);
+      if (id >= 0 && isAssigned(id))
+        return id;
+
+      if (id < 0) {
+        id = bound();
+        this.newIds.put(vertex, id);
+        this.newNames.add(vertex);
+      }
+      this.out.put(id, new IdList(EMPTY));
+      this.assigned.put(id, true);
+      this.numOfVert++;
+      return id;
+    }
+
+    private IdList outList(int id) {
+      IdList list = this.out.get(id);
+      if (list == null) {
+        list = new IdList(outIds(id));
+        this.out.put(id, list);
+      }
+      return list;
+    }
+
+    private Dependents dependents(int id) {
+      Dependents dependents = this.in.get(id);
+      if (dependents == null) {
+        dependents = new Dependents();
+        this.in.put(id, dependents);
+      }
+      return dependents;
+    }
+  }
+}
@@ -0,0 +1,245 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Metrics kept in memory: a latency histogram per operation, traversal counters, the installation
+ * order cache hit rate and the load throughput.
+ *
+ * Recording never locks. Counters are LongAdders and histograms have one atomic counter per
+ * power-of-two latency bucket, so percentiles are accurate to within a factor of two.
+ */
+public class InMemoryMetrics implements Metrics {
+
+  private final ConcurrentHashMap<String, Histogram> latencies;
+
+  private final LongAdder traversals;
+  private final LongAdder visitedVertices;
+  private final LongAdder followedEdges;
+
+  private final LongAdder cacheHits;
+  private final LongAdder cacheMisses;
+
+  private final LongAdder loadedPackages;
+  private final LongAdder loadedDependencies;
+  private final LongAdder loadNanos;
+
+  /**
+   * Instantiates empty metrics.
+   */
+  public InMemoryMetrics() {
+    this.latencies = new ConcurrentHashMap<String, Histogram>();
+    this.traversals = new LongAdder();
+    this.visitedVertices = new LongAdder();
+    this.followedEdges = new LongAdder();
+    this.cacheHits = new LongAdder();
+    this.cacheMisses = new LongAdder();
+    this.loadedPackages = new LongAdder();
+    this.loadedDependencies = new LongAdder();
+    this.loadNanos = new LongAdder();
+  }
+
+  public void recordLatency(String operation, long nanos) {
+    Histogram histogram = this.latencies.get(operation);
+    if (histogram == null)
+      histogram = this.latencies.computeIfAbsent(operation, key -> new Histogram());
+    histogram.record(nanos);
+  }
+
+  public void recordTraversal(long vertices, long edges) {
+    this.traversals.increment();
+    this.visitedVertices.add(vertices);
+    this.followedEdges.add(edges);
+  }
+
+  public void recordCacheLookup(boolean hit) {
+    if (hit)
+      this.cacheHits.increment();
+    else
+      this.cacheMisses.increment();
+  }
+
+  public void recordLoad(long packages, long dependencies, long nanos) {
+    this.loadedPackages.add(packages);
+    this.loadedDependencies.add(dependencies);
+    this.loadNanos.add(nanos);
+  }
+
+  /**
+   * Returns the latency histogram of an operation.
+   *
+   * @param operation the name of the PackageManager method
+   * @return the histogram, or null if the operation was never recorded
+   */
+  public Histogram getLatency(String operation) {
+    return this.latencies.get(operation);
+  }
+
+  /**
+   * Returns the latency histograms of all recorded operations, sorted by name.
+   *
+   * @return the histograms by operation
+   */
+  public Map<String, Histogram> getLatencies() {
+    return new TreeMap<String, Histogram>(this.latencies);
+  }
+
+  public long getTraversals() {
+    return this.traversals.sum();
+  }
+
+  public long getVisitedVertices() {
+    return this.visitedVertices.sum();
+  }
+
+  public long getFollowedEdges() {
+    return this.followedEdges.sum();
+  }
+
+  public long getCacheHits() {
+    return this.cacheHits.sum();
+  }
+
+  public long getCacheMisses() {
+    return this.cacheMisses.sum();
+  }
+
+  /**
+   * Returns the share of cache lookups that found an installation order.
+   *
+   * @return the hit rate between 0 and 1, 0 if there were no lookups
+   */
+  public double getCacheHitRate() {
+    long hits = getCacheHits();
+    long lookups = hits + getCacheMisses();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public long getLoadedPackages() {
+    return this.loadedPackages.sum();
+  }
+
+  public long getLoadedDependencies() {
+    return this.loadedDependencies.sum();
+  }
+
+  /**
+   * Returns the load throughput over all loads.
+   *
+   * @return loaded package entries per second, 0 if nothing was loaded
+   */
+  public double getLoadThroughput() {
+    long nanos = this.loadNanos.sum();
+    return nanos == 0 ? 0 : getLoadedPackages() * 1e9 / nanos;
+  }
+
+  /**
+   * Discards everything recorded so far.
+   */
+  public void reset() {
+    this.latencies.clear();
+    this.traversals.reset();
+    this.visitedVertices.reset();
+    this.followedEdges.reset();
+    this.cacheHits.reset();
+    this.cacheMisses.reset();
+    this.loadedPackages.reset();
+    this.loadedDependencies.reset();
+    this.loadNanos.reset();
+  }
+
+  /**
+   * Returns a multi-line report of all metrics.
+   */
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    for (Map.Entry<String, Histogram> latency : getLatencies().entrySet())
+      report.append(latency.getKey()).append(": ").append(latency.getValue()).append('\n');
+
+    report.append(String.format("traversals: %d, %d vertices, %d edges%n", getTraversals(),
+      getVisitedVertices(), getFollowedEdges()));
+    report.append(String.format("cache: %d hits, %d misses, %.1f%% hit rate%n", getCacheHits(),
+      getCacheMisses(), 100 * getCacheHitRate()));
+    report.append(String.format("load: %d packages, %d dependencies, %.0f packages/s",
+      getLoadedPackages(), getLoadedDependencies(), getLoadThroughput()));
+    return report.toString();
+  }
+
+  /**
+   * Latency histogram with power-of-two nanosecond buckets.
+   */
+  public static class Histogram {
+
+    // bucket i counts latencies in [2^(i - 1), 2^i) ns, bucket 0 counts 0 ns
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+      nanos = Math.max(0, nanos);
+      this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+      this.count.increment();
+      this.total.add(nanos);
+      this.max.accumulate(nanos);
+    }
+
+    public long getCount() {
+      return this.count.sum();
+    }
+
+    public long getTotalNanos() {
+      return this.total.sum();
+    }
+
+    public long getMaxNanos() {
+      return this.max.get();
+    }
+
+    public double getMeanNanos() {
+      long count = getCount();
+      return count == 0 ? 0 : (double) getTotalNanos() / count;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, at most twice the exact value.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+      long count = 0;
+      for (int i = 0; i < 64; i++)
+        count += this.buckets.get(i);
+      if (count == 0)
+        return 0;
+
+      long rank = (long) Math.ceil(percentile / 100 * count);
+      long seen = 0;
+      for (int i = 0; i < 64; i++) {
+        seen += this.buckets.get(i);
+        if (seen >= Math.max(1, rank))
+          return Math.min(i == 0 ? 0 : (1L << i) - 1, getMaxNanos());
+      }
+      return getMaxNanos();
+    }
+
+    public String toString() {
+      return String.format("%d calls, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+        getCount(), getMeanNanos() / 1e3, getPercentileNanos(50) / 1e3,
+        getPercentileNanos(99) / 1e3, getMaxNanos() / 1e3);
+    }
+  }
+}
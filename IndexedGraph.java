@@ -0,0 +1,58 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A graph whose vertices are interned to dense int IDs.
+ *
+ * IDs are in the range [0, idBound()). An ID that is not currently assigned to a vertex has a null
+ * name and no adjacent vertices. Traversals can use the IDs to index arrays and bit sets directly
+ * instead of hashing vertex names.
+ */
+public interface IndexedGraph extends GraphADT {
+
+  /**
+   * Returns the ID of a vertex.
+   *
+   * @param vertex the vertex name
+   * @return the ID of the vertex, or -1 if the vertex is null or not in the graph
+   */
+  public int idOf(String vertex);
+
+  /**
+   * Returns the name of the vertex with the given ID.
+   *
+   * @param id the vertex ID
+   * @return the vertex name, or null if the ID is not assigned
+   */
+  public String nameOf(int id);
+
+  /**
+   * Returns an exclusive upper bound on all vertex IDs in this graph.
+   *
+   * @return the ID bound
+   */
+  public int idBound();
+
+  /**
+   * Returns the number of adjacent vertices (dependencies) of a vertex.
+   *
+   * @param id the vertex ID
+   * @return the out-degree of the vertex
+   */
+  public int outDegree(int id);
+
+  /**
+   * Returns the ID of the index-th adjacent vertex of a vertex.
+   *
+   * @param id the vertex ID
+   * @param index position in the adjacency of the vertex, 0 <= index < outDegree(id)
+   * @return the ID of the adjacent vertex
+   */
+  public int adjacentId(int id, int index);
+}
@@ -0,0 +1,53 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Receives measurements from the PackageManager hot paths.
+ *
+ * Implementations are called on the querying threads, so they must be thread-safe and should be
+ * cheap. Every method does nothing by default; NONE, the default of a PackageManager, records
+ * nothing. InMemoryMetrics keeps histograms and counters.
+ */
+public interface Metrics {
+
+  /** Records nothing. */
+  public static final Metrics NONE = new Metrics() {};
+
+  /**
+   * Records how long an operation took.
+   *
+   * @param operation the name of the PackageManager method, e.g. "getInstallationOrder"
+   * @param nanos the elapsed time in nanoseconds
+   */
+  public default void recordLatency(String operation, long nanos) {}
+
+  /**
+   * Records the size of one dependency graph traversal.
+   *
+   * @param vertices the number of packages visited
+   * @param edges the number of dependency edges followed
+   */
+  public default void recordTraversal(long vertices, long edges) {}
+
+  /**
+   * Records a lookup in the installation order cache.
+   *
+   * @param hit true if the installation order was cached
+   */
+  public default void recordCacheLookup(boolean hit) {}
+
+  /**
+   * Records a package file or delta that was loaded.
+   *
+   * @param packages the number of package entries read
+   * @param dependencies the number of dependency entries read
+   * @param nanos the elapsed time in nanoseconds
+   */
+  public default void recordLoad(long packages, long dependencies, long nanos) {}
+}
@@ -0,0 +1,28 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A graph that notifies listeners about every change to its vertices and edges.
+ */
+public interface ObservableGraph extends GraphADT {
+
+  /**
+   * Registers a listener. Adding the same listener twice has no effect.
+   *
+   * @param listener the listener
+   */
+  public void addGraphListener(GraphListener listener);
+
+  /**
+   * Unregisters a listener. Does nothing if the listener is not registered.
+   *
+   * @param listener the listener
+   */
+  public void removeGraphListener(GraphListener listener);
+}
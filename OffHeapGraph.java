@@ -0,0 +1,683 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Directed and unweighted graph implementation that keeps its vertex records and adjacency lists
+ * outside the Java heap, so that even a graph with many millions of edges gives the garbage
+ * collector next to nothing to trace or copy. Only the name dictionary (vertex name -> ID and
+ * ID -> vertex name) stays on the heap.
+ *
+ * Every vertex ID owns a fixed-size record in a direct buffer: the handle, degree and size class
+ * of its dependency list and of its dependent list. The lists themselves are int blocks carved
+ * out of 1 MiB direct slabs by a slab allocator with power-of-two size classes; a list that runs
+ * full moves to a block of the next class and its old block goes onto the free list of its class.
+ * Free lists and free vertex IDs are linked through the freed memory itself.
+ *
+ * Like the lists of Graph, a list with more than Graph.INDEX_THRESHOLD entries also keeps an open
+ * addressing table from every entry to its position, in a block of twice the size of its list
+ * block, so finding, adding and removing an edge take expected constant time even on a hub.
+ * Removing from such a list moves its last entry into the free position; a short list shifts the
+ * entries after it. Removing a vertex thus takes expected time linear in its own degree.
+ *
+ * Off-heap memory is reserved as the graph grows and returned once the graph is garbage
+ * collected; removed vertices and edges make room for later ones but do not shrink it.
+ */
+public class OffHeapGraph implements IndexedGraph, BidirectionalGraph, ObservableGraph {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static final int NONE = -1;
+
+  // vertex record: dependency list, then dependent list, each as handle, degree and size class of
+  // its block and handle of its table (NONE while the list is short)
+  private static final int OUT = 0;
+  private static final int IN = 4;
+  private static final int HANDLE = 0;
+  private static final int DEGREE = 1;
+  private static final int SIZE_CLASS = 2;
+  private static final int TABLE = 3;
+  private static final int RECORD_INTS = 8;
+
+  private int numOfEdges;
+  private int numOfVert;
+
+  // vertex name -> ID, and ID -> vertex name (null if the ID is free)
+  private HashMap<String, Integer> ids;
+  private String[] names;
+  private int idBound;
+
+  // off-heap vertex records; a free ID keeps the next free ID in its first int
+  private IntBuffer records;
+  private int freeId;
+
+  private Slabs slabs;
+
+  private List<GraphListener> listeners;
+
+  /**
+   * Instantiates a new, empty graph.
+   */
+  public OffHeapGraph() {
+    this.numOfEdges = 0;
+    this.numOfVert = 0;
+    this.ids = new HashMap<String, Integer>();
+    this.names = new String[INITIAL_CAPACITY];
+    this.idBound = 0;
+    this.records = Slabs.direct(INITIAL_CAPACITY * RECORD_INTS);
+    this.freeId = NONE;
+    this.slabs = new Slabs();
+    this.listeners = new ArrayList<GraphListener>();
+  }
+
+  /**
+   * Add new vertex to the graph.
+   *
+   * If vertex is null or already exists, method ends without adding a vertex or throwing an
+   * exception.
+   *
+   * @param vertex the vertex
+   */
+  public void addVertex(String vertex) {
+    if (vertex == null || this.ids.containsKey(vertex))
+      return;
+
+    intern(vertex);
+  }
+
+  /**
+   * Remove a vertex and all associated edges from the graph.
+   *
+   * If vertex is null or does not exist, method ends without removing a vertex, edges, or throwing an
+   * exception.
+   *
+   * @param vertex the vertex
+   */
+  public void removeVertex(String vertex) {
+    int id = idOf(vertex);
+    if (id < 0)
+      return;
+
+    fireVertexChanged(vertex);
+
+    // remove all edges from vertex: only the other ends need to change, its own lists are freed
+    int out = degree(id, OUT);
+    for (int i = 0; i < out; i++)
+      remove(get(id, OUT, i), IN, id);
+
+    // remove all edges to vertex; a self-loop was already dropped from its dependents above
+    int in = degree(id, IN);
+    for (int i = 0; i < in; i++)
+      remove(get(id, IN, i), OUT, id);
+    this.numOfEdges -= out + in;
+
+    release(id, OUT);
+    release(id, IN);
+
+    this.ids.remove(vertex);
+    this.names[id] = null;
+    this.records.put(id * RECORD_INTS, this.freeId);
+    this.freeId = id;
+
+    this.numOfVert--;
+  }
+
+  /**
+   * Add the edge from vertex1 to vertex2 to this graph. (edge is directed and unweighted) If either
+   * vertex does not exist, add the non-existing vertex to the graph and then create an edge. If the
+   * edge exists in the graph, no edge is added and no exception is thrown.
+   *
+   * @param vertex1 the vertex 1
+   * @param vertex2 the vertex 2
+   */
+  public void addEdge(String vertex1, String vertex2) {
+    if (vertex1 == null || vertex2 == null)
+      return;
+
+    addEdge(intern(vertex1), intern(vertex2));
+  }
+
+  /**
+   * Adds the edge from ID from to ID to, unless it already exists.
+   *
+   * @param from the source vertex ID
+   * @param to the destination vertex ID
+   * @return true if the edge was added
+   */
+  public boolean addEdge(int from, int to) {
+    if (!isAssigned(from) || !isAssigned(to))
+      return false;
+
+    // check if edge exist, scanning the shorter of the two lists
+    if (degree(from, OUT) <= degree(to, IN) ? indexOf(from, OUT, to) >= 0
+      : indexOf(to, IN, from) >= 0)
+      return false;
+
+    add(from, OUT, to);
+    add(to, IN, from);
+
+    this.numOfEdges++;
+    fireVertexChanged(this.names[from]);
+    return true;
+  }
+
+  /**
+   * Remove the edge from vertex1 to vertex2 from this graph. (edge is directed and unweighted) If
+   * either vertex does not exist, or if an edge from vertex1 to vertex2 does not exist, no edge is
+   * removed and no exception is thrown.
+   *
+   * @param vertex1 the vertex 1
+   * @param vertex2 the vertex 2
+   */
+  public void removeEdge(String vertex1, String vertex2) {
+    int from = idOf(vertex1);
+    int to = idOf(vertex2);
+    if (from < 0 || to < 0)
+      return;
+
+    removeEdge(from, to);
+  }
+
+  /**
+   * Removes the edge from ID from to ID to, if it exists.
+   *
+   * @param from the source vertex ID
+   * @param to the destination vertex ID
+   * @return true if the edge was removed
+   */
+  public boolean removeEdge(int from, int to) {
+    if (!isAssigned(from) || !isAssigned(to))
+      return false;
+
+    if (!remove(from, OUT, to))
+      return false;
+
+    remove(to, IN, from);
+    this.numOfEdges--;
+    fireVertexChanged(this.names[from]);
+    return true;
+  }
+
+  /**
+   * Returns a Set that contains all the vertices. The set is a read-only view.
+   *
+   * @return the all vertices
+   */
+  public Set<String> getAllVertices() {
+    return Collections.unmodifiableSet(this.ids.keySet());
+  }
+
+  /**
+   * Get all the neighbor (adjacent) vertices of a vertex. The list is a read-only view backed by
+   * the off-heap adjacency of the vertex.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the adjacent vertices, or null if the vertex does not exist
+   */
+  public List<String> getAdjacentVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new NameList(id, OUT);
+  }
+
+  /**
+   * Get all the vertices that have an edge to a vertex. The list is a read-only view backed by the
+   * off-heap reverse adjacency of the vertex.
+   *
+   * @param vertex the specified vertex
+   * @return an List<String> of all the vertices with an edge to the specified vertex, or null if
+   *         the vertex does not exist
+   */
+  public List<String> getIncomingVerticesOf(String vertex) {
+    int id = idOf(vertex);
+    return id < 0 ? null : new NameList(id, IN);
+  }
+
+  /**
+   * Registers a listener that is notified about every change to this graph.
+   *
+   * @param listener the listener
+   */
+  public void addGraphListener(GraphListener listener) {
+    if (!this.listeners.contains(listener))
+      this.listeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeGraphListener(GraphListener listener) {
+    this.listeners.remove(listener);
+  }
+
+  private void fireVertexChanged(String vertex) {
+    for (GraphListener listener : this.listeners)
+      listener.vertexChanged(vertex);
+  }
+
+  /**
+   * Returns the number of edges in this graph.
+   *
+   * @return the int
+   */
+  public int size() {
+    return this.numOfEdges;
+  }
+
+  /**
+   * Returns the number of vertices in this graph.
+   *
+   * @return the int
+   */
+  public int order() {
+    return this.numOfVert;
+  }
+
+  public int idOf(String vertex) {
+    if (vertex == null)
+      return -1;
+
+    Integer id = this.ids.get(vertex);
+    return id == null ? -1 : id;
+  }
+
+  public String nameOf(int id) {
+    return id >= 0 && id < this.idBound ? this.names[id] : null;
+  }
+
+  public int idBound() {
+    return this.idBound;
+  }
+
+  public int outDegree(int id) {
+    return isAssigned(id) ? degree(id, OUT) : 0;
+  }
+
+  public int adjacentId(int id, int index) {
+    return get(id, OUT, index);
+  }
+
+  /**
+   * Returns the number of vertices with an edge to a vertex.
+   *
+   * @param id the vertex ID
+   * @return the in-degree of the vertex
+   */
+  public int inDegree(int id) {
+    return isAssigned(id) ? degree(id, IN) : 0;
+  }
+
+  /**
+   * Returns the ID of the index-th vertex with an edge to a vertex.
+   *
+   * @param id the vertex ID
+   * @param index position in the reverse adjacency of the vertex, 0 <= index < inDegree(id)
+   * @return the ID of the dependent vertex
+   */
+  public int incomingId(int id, int index) {
+    return get(id, IN, index);
+  }
+
+  /**
+   * Returns the off-heap memory reserved by this graph: vertex records and adjacency slabs.
+   *
+   * @return the number of bytes
+   */
+  public long getOffHeapBytes() {
+    return 4L * this.records.capacity() + this.slabs.bytes();
+  }
+
+  /**
+   * Returns the ID of a vertex, adding the vertex first if it is not in the graph.
+   *
+   * @param vertex the vertex, non-null
+   * @return the ID of the vertex
+   */
+  private int intern(String vertex) {
+    Integer existing = this.ids.get(vertex);
+    if (existing != null)
+      return existing;
+
+    fireVertexChanged(vertex);
+
+    int id;
+    if (this.freeId != NONE) {
+      id = this.freeId;
+      this.freeId = this.records.get(id * RECORD_INTS);
+    } else {
+      if (this.idBound == this.names.length) {
+        int capacity = this.names.length * 2;
+        this.names = Arrays.copyOf(this.names, capacity);
+        IntBuffer grown = Slabs.direct(capacity * RECORD_INTS);
+        this.records.clear(); // records are only read and written by index: copy all of them
+        grown.put(this.records);
+        this.records = grown;
+      }
+      id = this.idBound++;
+    }
+
+    int record = id * RECORD_INTS;
+    for (int dir = OUT; dir <= IN; dir += IN) {
+      this.records.put(record + dir + HANDLE, NONE);
+      this.records.put(record + dir + DEGREE, 0);
+      this.records.put(record + dir + SIZE_CLASS, 0);
+      this.records.put(record + dir + TABLE, NONE);
+    }
+
+    this.ids.put(vertex, id);
+    this.names[id] = vertex;
+    this.numOfVert++;
+    return id;
+  }
+
+  private boolean isAssigned(int id) {
+    return id >= 0 && id < this.idBound && this.names[id] != null;
+  }
+
+  private int degree(int id, int dir) {
+    return this.records.get(id * RECORD_INTS + dir + DEGREE);
+  }
+
+  private int get(int id, int dir, int index) {
+    return this.slabs.get(this.records.get(id * RECORD_INTS + dir + HANDLE), index);
+  }
+
+  private int indexOf(int id, int dir, int value) {
+    int record = id * RECORD_INTS + dir;
+    int handle = this.records.get(record + HANDLE);
+    int table = this.records.get(record + TABLE);
+    if (table != NONE) {
+      int slot = slotOf(handle, table, this.records.get(record + SIZE_CLASS), value);
+      return this.slabs.get(table, slot) - 1;
+    }
+
+    int deg = this.records.get(record + DEGREE);
+    for (int i = 0; i < deg; i++) {
+      if (this.slabs.get(handle, i) == value)
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Appends value to the list of id, moving the list to a block of the next size class if it is
+   * full.
+   */
+  private void add(int id, int dir, int value) {
+    int record = id * RECORD_INTS + dir;
+    int handle = this.records.get(record + HANDLE);
+    int deg = this.records.get(record + DEGREE);
+    int sizeClass = this.records.get(record + SIZE_CLASS);
+    int table = this.records.get(record + TABLE);
+
+    if (handle == NONE) {
+      handle = this.slabs.allocate(0);
+      sizeClass = 0;
+    } else if (deg == Slabs.blockInts(sizeClass)) {
+      int grown = this.slabs.allocate(sizeClass + 1);
+      this.slabs.copy(handle, grown, deg);
+      this.slabs.free(handle, sizeClass);
+      if (table != NONE) // rebuilt for the larger block below
+        this.slabs.free(table, sizeClass + 1);
+      table = NONE;
+      handle = grown;
+      sizeClass++;
+    }
+
+    this.slabs.put(handle, deg, value);
+    if (table != NONE)
+      this.slabs.put(table, slotOf(handle, table, sizeClass, value), deg + 1);
+    else if (deg + 1 > Graph.INDEX_THRESHOLD)
+      table = buildTable(handle, sizeClass, deg + 1);
+
+    this.records.put(record + HANDLE, handle);
+    this.records.put(record + DEGREE, deg + 1);
+    this.records.put(record + SIZE_CLASS, sizeClass);
+    this.records.put(record + TABLE, table);
+  }
+
+  /**
+   * Removes value from the list of id. Only a list with a table may change its order.
+   */
+  private boolean remove(int id, int dir, int value) {
+    int i = indexOf(id, dir, value);
+    if (i < 0)
+      return false;
+
+    int record = id * RECORD_INTS + dir;
+    int handle = this.records.get(record + HANDLE);
+    int last = this.records.get(record + DEGREE) - 1;
+    int table = this.records.get(record + TABLE);
+    if (table == NONE) {
+      for (; i < last; i++)
+        this.slabs.put(handle, i, this.slabs.get(handle, i + 1));
+    } else {
+      int sizeClass = this.records.get(record + SIZE_CLASS);
+      clearSlot(handle, table, sizeClass, slotOf(handle, table, sizeClass, value));
+      if (i != last) { // the last entry takes the free position
+        int moved = this.slabs.get(handle, last);
+        this.slabs.put(table, slotOf(handle, table, sizeClass, moved), i + 1);
+        this.slabs.put(handle, i, moved);
+      }
+    }
+    this.records.put(record + DEGREE, last);
+    return true;
+  }
+
+  /**
+   * Returns the blocks of a list to the allocator.
+   */
+  private void release(int id, int dir) {
+    int record = id * RECORD_INTS + dir;
+    int handle = this.records.get(record + HANDLE);
+    int sizeClass = this.records.get(record + SIZE_CLASS);
+    if (handle != NONE)
+      this.slabs.free(handle, sizeClass);
+    int table = this.records.get(record + TABLE);
+    if (table != NONE)
+      this.slabs.free(table, sizeClass + 1);
+    this.records.put(record + HANDLE, NONE);
+    this.records.put(record + DEGREE, 0);
+    this.records.put(record + TABLE, NONE);
+  }
+
+  /**
+   * Allocates and fills the table of a list. A table slot holds the position + 1 of an entry, or
+   * 0 if it is free.
+   */
+  private int buildTable(int handle, int sizeClass, int deg) {
+    int table = this.slabs.allocate(sizeClass + 1);
+    for (int slot = 0; slot < Slabs.blockInts(sizeClass + 1); slot++)
+      this.slabs.put(table, slot, 0);
+    for (int i = 0; i < deg; i++)
+      this.slabs.put(table, slotOf(handle, table, sizeClass, this.slabs.get(handle, i)), i + 1);
+    return table;
+  }
+
+  /**
+   * Returns the table slot of value, or the free slot where it would go.
+   */
+  private int slotOf(int handle, int table, int sizeClass, int value) {
+    int mask = Slabs.blockInts(sizeClass + 1) - 1;
+    for (int slot = hash(value) & mask;; slot = (slot + 1) & mask) {
+      int entry = this.slabs.get(table, slot);
+      if (entry == 0 || this.slabs.get(handle, entry - 1) == value)
+        return slot;
+    }
+  }
+
+  /**
+   * Frees a table slot, moving later entries of its probe run back so every entry stays reachable
+   * from its home slot.
+   */
+  private void clearSlot(int handle, int table, int sizeClass, int slot) {
+    int mask = Slabs.blockInts(sizeClass + 1) - 1;
+    for (int next = (slot + 1) & mask;; next = (next + 1) & mask) {
+      int entry = this.slabs.get(table, next);
+      if (entry == 0)
+        break;
+      int home = hash(this.slabs.get(handle, entry - 1)) & mask;
+      // the entry stays if its home lies cyclically after the free slot, up to its own slot
+      if (slot <= next ? slot < home && home <= next : slot < home || home <= next)
+        continue;
+      this.slabs.put(table, slot, entry);
+      slot = next;
+    }
+    this.slabs.put(table, slot, 0);
+  }
+
+  private static int hash(int value) {
+    int hash = value * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Slab allocator for int blocks of 4, 8, 16, ... ints. A handle addresses a block as slab index
+   * and int offset within the slab. Blocks up to SLAB_INTS are bump allocated from shared slabs;
+   * larger blocks get a slab of their own. Freed blocks are kept on one free list per size class,
+   * linked through their first int.
+   */
+  private static class Slabs {
+
+    private static final int SLAB_SHIFT = 18;
+    private static final int SLAB_INTS = 1 << SLAB_SHIFT; // 1 MiB
+    private static final int OFFSET_MASK = SLAB_INTS - 1;
+    private static final int MAX_SLABS = 1 << (31 - SLAB_SHIFT);
+    private static final int MIN_BLOCK_SHIFT = 2;
+
+    private IntBuffer[] slabs = new IntBuffer[INITIAL_CAPACITY];
+    private int numOfSlabs;
+    private long bytes;
+
+    // shared slab that blocks are bump allocated from, and its first unused int
+    private int current = NONE;
+    private int top;
+
+    private final int[] freeLists = filled(32 - MIN_BLOCK_SHIFT);
+
+    static IntBuffer direct(int ints) {
+      return ByteBuffer.allocateDirect(4 * ints).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    static int blockInts(int sizeClass) {
+      return 1 << (sizeClass + MIN_BLOCK_SHIFT);
+    }
+
+    int get(int handle, int index) {
+      return this.slabs[handle >>> SLAB_SHIFT].get((handle & OFFSET_MASK) + index);
+    }
+
+    void put(int handle, int index, int value) {
+      this.slabs[handle >>> SLAB_SHIFT].put((handle & OFFSET_MASK) + index, value);
+    }
+
+    void copy(int from, int to, int length) {
+      for (int i = 0; i < length; i++)
+        put(to, i, get(from, i));
+    }
+
+    long bytes() {
+      return this.bytes;
+    }
+
+    int allocate(int sizeClass) {
+      int handle = this.freeLists[sizeClass];
+      if (handle != NONE) {
+        this.freeLists[sizeClass] = get(handle, 0);
+        return handle;
+      }
+
+      int ints = blockInts(sizeClass);
+      if (ints > SLAB_INTS)
+        return newSlab(ints) << SLAB_SHIFT;
+
+      if (this.current == NONE || this.top + ints > SLAB_INTS) {
+        retireTail();
+        this.current = newSlab(SLAB_INTS);
+        this.top = 0;
+      }
+      handle = this.current << SLAB_SHIFT | this.top;
+      this.top += ints;
+      return handle;
+    }
+
+    void free(int handle, int sizeClass) {
+      put(handle, 0, this.freeLists[sizeClass]);
+      this.freeLists[sizeClass] = handle;
+    }
+
+    /**
+     * Hands the unused end of the current slab to the free lists, largest blocks first.
+     */
+    private void retireTail() {
+      if (this.current == NONE)
+        return;
+
+      for (int sizeClass = SLAB_SHIFT - MIN_BLOCK_SHIFT; sizeClass >= 0; sizeClass--) {
+        while (this.top + blockInts(sizeClass) <= SLAB_INTS) {
+          free(this.current << SLAB_SHIFT | this.top, sizeClass);
+          this.top += blockInts(sizeClass);
+        }
+      }
+    }
+
+    private int newSlab(int ints) {
+      if (this.numOfSlabs == MAX_SLABS)
+        throw new IllegalStateException("Off-heap adjacency exceeds " + MAX_SLABS + " slabs");
+      if (this.numOfSlabs == this.slabs.length)
+        this.slabs = Arrays.copyOf(this.slabs, this.slabs.length * 2);
+
+      this.slabs[this.numOfSlabs] = direct(ints);
+      this.bytes += 4L * ints;
+      return this.numOfSlabs++;
+    }
+
+    private static int[] filled(int length) {
+      int[] array = new int[length];
+      Arrays.fill(array, NONE);
+      return array;
+    }
+  }
+
+  /**
+   * Read-only view of one adjacency list as vertex names.
+   */
+  private class NameList extends AbstractList<String> {
+
+    private final int id;
+    private final int dir;
+
+    NameList(int id, int dir) {
+      this.id = id;
+      this.dir = dir;
+    }
+
+    public String get(int index) {
+      if (index < 0 || index >= size())
+        throw new IndexOutOfBoundsException("Index: " + index);
+      return nameOf(OffHeapGraph.this.get(this.id, this.dir, index));
+    }
+
+    public int size() {
+      return isAssigned(this.id) ? degree(this.id, this.dir) : 0;
+    }
+  }
+}
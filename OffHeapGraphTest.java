@@ -0,0 +1,207 @@
+import static org.junit.jupiter.api.Assertions.*; // org.junit.Assert.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Testing class for OffHeapGraph
+ */
+public class OffHeapGraphTest {
+
+  OffHeapGraph testGraph;
+  String vertex1 = new String("V1");
+  String vertex2 = new String("V2");
+  String vertex3 = new String("V3");
+  String vertex4 = new String("V4");
+
+  /**
+   * Sets the up.
+   *
+   * @throws Exception the exception
+   */
+  @Before
+  public void setUp() throws Exception {
+    testGraph = new OffHeapGraph();
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws Exception the exception
+   */
+  @After
+  public void tearDown() throws Exception {
+    testGraph = null;
+  }
+
+  /**
+   * Try adding edges, including a duplicate and edges to non-existing vertices
+   */
+  @Test
+  public void test000_addEdge() {
+
+    testGraph.addVertex(vertex1);
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex1, vertex2);
+    testGraph.addEdge(vertex1, vertex3);
+
+    if (testGraph.size() != 2)
+      fail("Edge size is different");
+    if (testGraph.order() != 3)
+      fail("Vertex size is different");
+
+    List<String> adjacent = testGraph.getAdjacentVerticesOf(vertex1);
+    if (adjacent.size() != 2 || !adjacent.contains(vertex2) || !adjacent.contains(vertex3))
+      fail("Correct vertexes doesn't exsits");
+  }
+
+  /**
+   * Removing a vertex removes its incoming and outgoing edges and frees its ID for reuse
+   */
+  @Test
+  public void test001_removeVertex() {
+
+    testGraph.addEdge(vertex1, vertex3);
+    testGraph.addEdge(vertex1, vertex4);
+    testGraph.addEdge(vertex3, vertex1);
+
+    int id = testGraph.idOf(vertex1);
+    testGraph.removeVertex(vertex1);
+
+    if (testGraph.size() != 0)
+      fail("Inncorrect edge size");
+    if (testGraph.order() != 2)
+      fail("Inncorrect vertex size");
+
+    Set<String> allVerticies = testGraph.getAllVertices();
+    if (allVerticies.contains(vertex1) || testGraph.idOf(vertex1) != -1)
+      fail("Vertex wasn't deleted");
+
+    testGraph.addVertex(vertex2);
+    if (testGraph.idOf(vertex2) != id || !vertex2.equals(testGraph.nameOf(id)))
+      fail("Free ID wasn't reused");
+  }
+
+  /**
+   * A hub list grows through many size classes and slabs, and freed blocks are reused
+   */
+  @Test
+  public void test002_growAdjacency() {
+
+    // one int past a shared slab, so the hub's last block is a slab of its own
+    int n = (1 << 18) + 1;
+    for (int i = 0; i < n; i++)
+      testGraph.addEdge(vertex1, "D" + i);
+    for (int i = 0; i < 100; i++)
+      testGraph.addEdge("D" + i, "D" + (i + 1));
+    testGraph.addEdge("D0", vertex1);
+    testGraph.addEdge(vertex1, vertex1);
+
+    int id = testGraph.idOf(vertex1);
+    if (testGraph.size() != n + 102 || testGraph.outDegree(id) != n + 1)
+      fail("Edge size is different");
+    for (int i = 0; i < n; i += 997) {
+      if (!testGraph.nameOf(testGraph.adjacentId(id, i)).equals("D" + i))
+        fail("Adjacency order is different");
+    }
+    if (testGraph.inDegree(testGraph.idOf("D1")) != 2)
+      fail("Incoming vertexes are different");
+
+    long bytes = testGraph.getOffHeapBytes();
+    testGraph.removeVertex(vertex1);
+    if (testGraph.size() != 100 || testGraph.inDegree(testGraph.idOf("D1")) != 1
+      || !testGraph.getAdjacentVerticesOf("D0").equals(Arrays.asList("D1")))
+      fail("Edges of the removed vertex remain");
+    for (int i = 0; i < n; i++)
+      testGraph.addEdge(vertex2, "D" + i);
+
+    if (testGraph.size() != n + 100 || testGraph.getAdjacentVerticesOf(vertex2).size() != n)
+      fail("Edge size is different");
+    if (testGraph.getOffHeapBytes() != bytes)
+      fail("Freed blocks weren't reused");
+  }
+
+  /**
+   * Reverse adjacency follows edge insertion and removal
+   */
+  @Test
+  public void test003_incomingVertices() {
+
+    testGraph.addEdge(vertex1, vertex3);
+    testGraph.addEdge(vertex2, vertex3);
+    testGraph.addEdge(vertex3, vertex4);
+
+    List<String> incoming = testGraph.getIncomingVerticesOf(vertex3);
+    if (incoming.size() != 2 || !incoming.contains(vertex1) || !incoming.contains(vertex2))
+      fail("Incoming vertexes are different");
+
+    testGraph.removeVertex(vertex2);
+    testGraph.removeEdge(vertex3, vertex4);
+
+    if (testGraph.getIncomingVerticesOf(vertex3).size() != 1
+      || !testGraph.getIncomingVerticesOf(vertex4).isEmpty())
+      fail("Incoming vertexes weren't removed");
+  }
+
+  /**
+   * Dependents of a hub are found and removed through its table, in any order, and random edge
+   * changes on the hub keep both directions consistent
+   */
+  @Test
+  public void test004_removeHubDependents() {
+
+    int n = 200000;
+    Set<String> expected = new HashSet<String>();
+    for (int i = 0; i < n; i++) {
+      testGraph.addEdge("L" + i, vertex1);
+      testGraph.addEdge(vertex2, "L" + i);
+      expected.add("L" + i);
+    }
+
+    Random random = new Random(4);
+    for (int i = 0; i < n - 10; i++) {
+      String leaf = "L" + random.nextInt(n);
+      if (i % 2 == 0) {
+        testGraph.removeVertex(leaf);
+        expected.remove(leaf);
+      } else if (expected.contains(leaf)) {
+        testGraph.removeEdge(leaf, vertex1);
+        testGraph.removeEdge(vertex2, leaf);
+        testGraph.addEdge(leaf, vertex1); // back at the end of the lists
+        testGraph.addEdge(vertex2, leaf);
+      }
+    }
+
+    List<String> dependents = testGraph.getIncomingVerticesOf(vertex1);
+    List<String> dependencies = testGraph.getAdjacentVerticesOf(vertex2);
+    if (dependents.size() != expected.size() || dependencies.size() != expected.size()
+      || !new HashSet<String>(dependents).equals(expected)
+      || !new HashSet<String>(dependencies).equals(expected)
+      || testGraph.size() != 2 * expected.size())
+      fail("Invalid adjacency of the hub");
+    for (String leaf : expected) {
+      testGraph.addEdge(leaf, vertex1);
+      if (testGraph.size() != 2 * expected.size())
+        fail("Duplicate edge from " + leaf + " was added");
+    }
+
+    testGraph.removeVertex(vertex1);
+    testGraph.removeVertex(vertex2);
+    if (testGraph.size() != 0 || testGraph.order() != expected.size())
+      fail("Edges of the removed hubs remain");
+  }
+}
@@ -8,9 +8,13 @@
  * A package is a package name and an array of the names of other packages
  * that this package depends upon.
  * 
+ * A package may also carry a version, e.g. "2.1", and its dependencies may
+ * carry version ranges, e.g. "B>=2.1,<3" (see Dependency).
+ * 
  */
 public class Package {
 	private String name;	
+	private String version; // null if not given
 	private String[] dependencies;
 	
 	public Package() {
@@ -22,10 +26,20 @@ public class Package {
 		this.dependencies = dependencies;
 	}
 	
+	public Package(String name, String version, String[] dependencies) {
+		this.name = name;
+		this.version = version;
+		this.dependencies = dependencies;
+	}
+	
 	public String getName() {
 		return this.name;
 	}
 	
+	public String getVersion() {
+		return this.version;
+	}
+	
 	public String[] getDependencies() {
 		return this.dependencies;
 	}
@@ -34,6 +48,10 @@ public class Package {
 		this.name = name;
 	}
 
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
 	public void setDependencies(String[] dependencies) {
 		this.dependencies = dependencies;
 	}
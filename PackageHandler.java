@@ -0,0 +1,21 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Receives packages one at a time while a json package file is being read.
+ */
+public interface PackageHandler {
+
+  /**
+   * Called once for every package entry, as soon as the entry has been read.
+   *
+   * @param pkg the package, never null; its dependencies are never null
+   */
+  public void handlePackage(Package pkg);
+}
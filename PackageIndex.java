@@ -0,0 +1,142 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * All versions of all packages with the version ranges of their dependencies, as read from json
+ * package files where the same package name may appear once per version:
+ *
+ * <pre>
+ * { "packages": [ { "name": "A", "version": "1.0", "dependencies": ["B>=2.1,<3"] },
+ *                 { "name": "A", "version": "1.1", "dependencies": ["B^3"] }, ... ] }
+ * </pre>
+ *
+ * Packages without a version get Version.ZERO. A later entry for the same name and version
+ * replaces the earlier one. Used by the VersionResolver; not thread-safe while it is being changed.
+ */
+public class PackageIndex implements PackageHandler {
+
+  // versions of every package, oldest first
+  private final Map<String, TreeMap<Version, Dependency[]>> packages;
+  private int size;
+  private int modifications;
+
+  /**
+   * Instantiates an empty index.
+   */
+  public PackageIndex() {
+    this.packages = new HashMap<String, TreeMap<Version, Dependency[]>>();
+  }
+
+  /**
+   * Reads an index from a json package file.
+   *
+   * @param jsonFilepath the name of json data file with versioned package information
+   * @return the index
+   * @throws FileNotFoundException if file path is incorrect
+   * @throws IOException if the give file cannot be read
+   * @throws ParseException if the given json cannot be parsed
+   * @throws IllegalArgumentException if a version or version range is invalid
+   */
+  public static PackageIndex load(String jsonFilepath)
+    throws FileNotFoundException, IOException, ParseException {
+    PackageIndex index = new PackageIndex();
+    PackageStreamReader.read(jsonFilepath, index);
+    return index;
+  }
+
+  /**
+   * Adds a version of a package.
+   *
+   * @param pkg the package
+   * @throws IllegalArgumentException if its version or a version range is invalid
+   */
+  public void add(Package pkg) {
+    Version version = pkg.getVersion() == null ? Version.ZERO : Version.parse(pkg.getVersion());
+    String[] deps = pkg.getDependencies();
+    Dependency[] dependencies = new Dependency[deps.length];
+    for (int i = 0; i < deps.length; i++)
+      dependencies[i] = Dependency.parse(deps[i]);
+
+    TreeMap<Version, Dependency[]> versions = this.packages.get(pkg.getName());
+    if (versions == null) {
+      versions = new TreeMap<Version, Dependency[]>();
+      this.packages.put(pkg.getName(), versions);
+    }
+    if (versions.put(version, dependencies) == null)
+      this.size++;
+    this.modifications++;
+  }
+
+  public void handlePackage(Package pkg) {
+    add(pkg);
+  }
+
+  /**
+   * Returns the names of all packages.
+   *
+   * @return the read-only package names
+   */
+  public Set<String> getPackages() {
+    return Collections.unmodifiableSet(this.packages.keySet());
+  }
+
+  /**
+   * Returns the versions of a package, newest first.
+   *
+   * @param name the package name
+   * @return the read-only versions, empty if the package is unknown
+   */
+  public NavigableSet<Version> getVersions(String name) {
+    TreeMap<Version, Dependency[]> versions = this.packages.get(name);
+    if (versions == null)
+      return Collections.emptyNavigableSet();
+    return Collections.unmodifiableNavigableSet(versions.descendingKeySet());
+  }
+
+  /**
+   * Returns the dependencies of a version of a package.
+   *
+   * @param name the package name
+   * @param version the version
+   * @return the dependencies, not to be changed; null if there is no such version
+   */
+  public Dependency[] getDependencies(String name, Version version) {
+    TreeMap<Version, Dependency[]> versions = this.packages.get(name);
+    return versions == null ? null : versions.get(version);
+  }
+
+  /**
+   * Returns the number of package versions.
+   *
+   * @return the number of distinct name and version pairs
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of changes made so far, so that results derived from the index can tell
+   * whether they are still valid.
+   *
+   * @return the modification count
+   */
+  public int getModifications() {
+    return this.modifications;
+  }
+}
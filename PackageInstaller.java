@@ -0,0 +1,23 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Installs a single package. Called by ParallelInstaller, possibly from several threads at once for
+ * packages of the same installation layer.
+ */
+public interface PackageInstaller {
+
+  /**
+   * Installs a package. All of its dependencies have already been installed.
+   *
+   * @param pkg the package
+   * @throws Exception if the installation failed
+   */
+  public void install(String pkg) throws Exception;
+}
@@ -1,13 +1,22 @@
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.json.simple.parser.ParseException;
 
 /**
@@ -36,19 +45,201 @@ import org.json.simple.parser.ParseException;
  * be installed before any given package can be installed. all of the packages in
  * 
  * You may add a main method, but we will test all methods with our own Test classes.
+ * 
+ * Queries may run concurrently from many threads, also while the graph is being updated, if the
+ * graph is thread-safe (a ConcurrentGraph) or read-only (an ImmutableGraph or a GraphSnapshot).
+ * 
+ * The current graph is held in an atomic reference. Every query reads it once and works on that
+ * version until it returns, so refresh and publish can build a new version off to the side and
+ * swap it in without ever blocking or disturbing queries that are already running. Methods that
+ * load or publish a graph are serialized by a lock that queries never take, so no change is lost
+ * to a concurrent one.
+ * 
+ * Loads and queries report their latency, traversal sizes and cache lookups to a pluggable Metrics
+ * (see setMetrics). Diagnostics go to a java.util.logging Logger named after this class, at FINE.
  */
 
-public class PackageManager {
+public class PackageManager implements AutoCloseable {
+
+  /** Default maximum number of cached installation orders. */
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private static final Logger LOG = Logger.getLogger(PackageManager.class.getName());
+
+  /** Installation orders tried for layers before giving up on a graph that keeps changing. */
+  private static final int LAYER_ATTEMPTS = 3;
+
+  /** The current graph together with its installation order cache. */
+  private final AtomicReference<Index> current;
+  private final int cacheSize;
+
+  /** Held by every method that loads, changes or publishes a graph. */
+  private final Object writeLock = new Object();
 
-  /** The graph. */
-  private Graph graph;
+  private volatile Metrics metrics = Metrics.NONE;
+
+  /** Resolves closures of many packages in parallel, null to resolve them on the calling thread. */
+  private volatile ParallelClosureEngine engine;
+
+  /** Picks package versions, null until a versioned index is loaded with constructIndex. */
+  private volatile VersionResolver resolver;
 
   /**
-   * Instantiates a new package manager.
+   * Instantiates a new package manager backed by a Graph. A Graph has no vertex IDs, so
+   * getInstallationOrder(String, int[]) needs a package manager backed by an IndexedGraph, e.g. a
+   * CompactGraph.
    */
 
   public PackageManager() {
-    this.graph = new Graph();
+    this(new Graph());
+  }
+
+  /**
+   * Instantiates a new package manager backed by the given graph implementation, e.g. a
+   * CompactGraph for very large package indexes, or an OffHeapGraph to keep them off the heap.
+   * Installation orders as vertex IDs (getInstallationOrder(String, int[])) need an IndexedGraph,
+   * such as these two.
+   *
+   * @param graph the empty graph to load packages into
+   */
+  public PackageManager(GraphADT graph) {
+    this(graph, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Instantiates a new package manager backed by the given graph implementation that caches up to
+   * cacheSize resolved installation orders.
+   * 
+   * The cache is only used when the graph reports its changes (an ObservableGraph) or cannot change
+   * (an ImmutableGraph or a GraphSnapshot); changing a graph invalidates only the affected packages.
+   *
+   * @param graph the empty graph to load packages into
+   * @param cacheSize the maximum number of cached installation orders, 0 to disable caching
+   */
+  public PackageManager(GraphADT graph, int cacheSize) {
+    this.cacheSize = cacheSize;
+    this.current = new AtomicReference<Index>(index(graph));
+  }
+
+  /**
+   * Returns the current package dependency graph.
+   *
+   * @return the graph
+   */
+  public GraphADT getGraph() {
+    return this.current.get().graph;
+  }
+
+  /**
+   * Sets the metrics that receive the latency of every load and query, the size of every traversal
+   * and every cache lookup.
+   *
+   * @param metrics the metrics, Metrics.NONE to record nothing
+   */
+  public void setMetrics(Metrics metrics) {
+    this.metrics = metrics == null ? Metrics.NONE : metrics;
+  }
+
+  /**
+   * Returns the metrics that measurements are recorded to.
+   *
+   * @return the metrics
+   */
+  public Metrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Sets the number of threads used by the queries that resolve many packages at once
+   * (getInstallationOrders, the dependency counts and loading many files with constructGraph). With
+   * more than one thread they run on a ForkJoinPool of that parallelism (see ParallelClosureEngine),
+   * which close shuts down. A replaced pool is shut down once the queries running on it are done.
+   *
+   * @param parallelism the number of threads, 1 to resolve on the calling thread
+   */
+  public synchronized void setParallelism(int parallelism) {
+    ParallelClosureEngine previous = this.engine;
+    this.engine = parallelism > 1 ? new ParallelClosureEngine(parallelism) : null;
+    // queries that picked up the previous engine but submit after this resolve on their own thread
+    if (previous != null)
+      previous.close();
+  }
+
+  /**
+   * Returns the number of threads used by the queries that resolve many packages at once.
+   *
+   * @return the parallelism, 1 if they run on the calling thread
+   */
+  public int getParallelism() {
+    ParallelClosureEngine engine = this.engine;
+    return engine == null ? 1 : engine.getParallelism();
+  }
+
+  /**
+   * Shuts down the pool of a parallelism set with setParallelism, once the queries running on it
+   * are done. Later queries resolve on the calling thread, as with a parallelism of 1, and so do
+   * queries that already picked up the pool but had not submitted their work to it yet.
+   */
+  public synchronized void close() {
+    ParallelClosureEngine engine = this.engine;
+    this.engine = null;
+    if (engine != null)
+      engine.close();
+  }
+
+  /**
+   * Atomically replaces the package dependency graph. Queries that are already running finish on
+   * the graph they started with, queries that start afterwards see the new graph. The new graph
+   * should not be changed afterwards unless it is thread-safe, e.g. pass an ImmutableGraph.
+   *
+   * @param graph the new graph
+   */
+  public void publish(GraphADT graph) {
+    synchronized (this.writeLock) {
+      swap(graph);
+    }
+  }
+
+  /**
+   * Replaces the package dependency graph, see publish. Must be called while holding writeLock.
+   *
+   * @param graph the new graph
+   */
+  private void swap(GraphADT graph) {
+    Index previous = this.current.getAndSet(index(graph));
+
+    if (previous.graph instanceof ObservableGraph) {
+      ObservableGraph observable = (ObservableGraph) previous.graph;
+      if (previous.cache != null)
+        observable.removeGraphListener(previous.cache);
+      synchronized (previous) {
+        previous.retired = true;
+        if (previous.reachability != null)
+          observable.removeGraphListener(previous.reachability);
+      }
+    }
+  }
+
+  /**
+   * Sets up the installation order cache for a graph.
+   * 
+   * The cache is only used when the graph reports its changes (an ObservableGraph) or cannot change
+   * (an ImmutableGraph or a GraphSnapshot).
+   *
+   * @param graph the graph
+   * @return the graph and its cache
+   */
+  private Index index(GraphADT graph) {
+    ClosureCache cache = null;
+
+    if (this.cacheSize > 0 && (graph instanceof ObservableGraph || graph instanceof ImmutableGraph
+      || graph instanceof GraphSnapshot)) {
+      cache = new ClosureCache(graph, this.cacheSize);
+      if (graph instanceof ObservableGraph)
+        ((ObservableGraph) graph).addGraphListener(cache);
+    }
+
+    return new Index(graph, cache);
   }
 
   /**
@@ -62,51 +253,324 @@ public class PackageManager {
   public void constructGraph(String jsonFilepath)
     throws FileNotFoundException, IOException, ParseException {
 
-    JSONParser parser = new JSONParser();
-    String depName;
+    synchronized (this.writeLock) {
+      long start = System.nanoTime();
+      GraphADT graph = getGraph();
+      LoadCounter counter = new LoadCounter();
 
-    try {
-      Object obj = parser.parse(new FileReader(jsonFilepath));
+      // vertices and edges are added while the file is tokenized, no json tree is built
+      PackageStreamReader.read(jsonFilepath, counter.count(pkg -> addPackage(graph, pkg)));
 
-      JSONObject jsonObject = (JSONObject) obj;
+      // pack the interned adjacency once the whole file has been loaded
+      if (graph instanceof CompactGraph)
+        ((CompactGraph) graph).freeze();
 
-      // loop array
-      JSONArray packages = (JSONArray) jsonObject.get("packages");
+      loaded("constructGraph", jsonFilepath, counter, start);
+    }
+  }
 
+  /**
+   * Takes in the file paths or glob patterns of many json package files, e.g. "index/*.json", and
+   * builds the package dependency graph from all of them, as if they were loaded one after the other
+   * with constructGraph. With a parallelism set (see setParallelism) the files are parsed in parallel
+   * (see ShardedLoader). The graph is only changed once all files have been parsed.
+   * 
+   * @param jsonFilepaths the json data files with package dependency information, or glob patterns
+   * @throws FileNotFoundException if a file path is incorrect or a pattern matches no file
+   * @throws IOException if a given file cannot be read
+   * @throws ParseException if a given json cannot be parsed
+   */
+  public void constructGraph(Collection<String> jsonFilepaths)
+    throws FileNotFoundException, IOException, ParseException {
 
-      for (int i = 0; i < packages.size(); i++) {
-        JSONObject packageItem = (JSONObject) packages.get(i); 
+    synchronized (this.writeLock) {
+      long start = System.nanoTime();
+      GraphADT graph = getGraph();
+      ParallelClosureEngine engine = this.engine;
+      ShardedLoader loader = new ShardedLoader(engine == null ? null : engine.getPool());
+      loader.load(jsonFilepaths, graph);
 
-        String packageName = (String) packageItem.get("name"); // gets each packgename
-        JSONArray dependencies = (JSONArray) packageItem.get("dependencies"); // gets each dependencies
+      if (graph instanceof CompactGraph)
+        ((CompactGraph) graph).freeze();
 
-        System.out.println("Package name: " + packageName);
+      LoadCounter counter = new LoadCounter();
+      counter.packages = loader.getPackages();
+      counter.dependencies = loader.getDependencies();
+      loaded("constructGraph", loader.getFiles() + " files", counter, start);
+    }
+  }
 
-        this.graph.addVertex(packageName); // adds to graph
+  /**
+   * Takes in a file path for a json file with versioned packages and builds both the package
+   * dependency graph and a PackageIndex of all versions from it, in a single pass. The graph has
+   * one vertex per package name with the dependencies of all its versions; the index is used by
+   * resolveVersions.
+   * 
+   * @param jsonFilepath the name of json data file with versioned package information
+   * @throws FileNotFoundException if file path is incorrect
+   * @throws IOException if the give file cannot be read
+   * @throws ParseException if the given json cannot be parsed
+   * @throws IllegalArgumentException if a version or version range is invalid
+   */
+  public void constructIndex(String jsonFilepath)
+    throws FileNotFoundException, IOException, ParseException {
 
-        for (int j = 0; j < dependencies.size(); j++) {
-          depName = (String) dependencies.get(j);
+    synchronized (this.writeLock) {
+      long start = System.nanoTime();
+      GraphADT graph = getGraph();
+      PackageIndex packageIndex = new PackageIndex();
+      LoadCounter counter = new LoadCounter();
 
-          this.graph.addEdge(packageName, depName); // adds edge to graph, if dependency doesn't exist, 
-                                                      //create a new vertex
-          System.out.println("\t" + depName);
+      PackageStreamReader.read(jsonFilepath, counter.count(pkg -> {
+        packageIndex.add(pkg);
+        addVersionedPackage(graph, pkg);
+      }));
 
-        }
+      if (graph instanceof CompactGraph)
+        ((CompactGraph) graph).freeze();
+
+      this.resolver = new VersionResolver(packageIndex);
+      loaded("constructIndex", jsonFilepath, counter, start);
+    }
+  }
+
+  /**
+   * Builds a new package dependency graph from a json file and publishes it as an ImmutableGraph
+   * in a single swap. Queries keep running on the previous graph while the file is loaded and
+   * never see a partially loaded graph. If the file cannot be read, the current graph is kept. The
+   * ImmutableGraph takes over the arrays the file was loaded into, it does not copy them.
+   *
+   * @param jsonFilepath the name of json data file with package dependency information
+   * @throws FileNotFoundException if file path is incorrect
+   * @throws IOException if the give file cannot be read
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public void refresh(String jsonFilepath)
+    throws FileNotFoundException, IOException, ParseException {
+
+    synchronized (this.writeLock) {
+      long start = System.nanoTime();
+      CompactGraph next = new CompactGraph();
+      LoadCounter counter = new LoadCounter();
+      PackageStreamReader.read(jsonFilepath, counter.count(pkg -> addPackage(next, pkg)));
+
+      publish(next.toImmutableGraph());
+      loaded("refresh", jsonFilepath, counter, start);
+    }
+  }
+
+  /**
+   * Builds a new package dependency graph from many json files or glob patterns, like
+   * constructGraph(Collection), and publishes it as an ImmutableGraph in a single swap, like
+   * refresh(String). If any file cannot be read, the current graph is kept.
+   *
+   * @param jsonFilepaths the json data files with package dependency information, or glob patterns
+   * @throws FileNotFoundException if a file path is incorrect or a pattern matches no file
+   * @throws IOException if a given file cannot be read
+   * @throws ParseException if a given json cannot be parsed
+   */
+  public void refresh(Collection<String> jsonFilepaths)
+    throws FileNotFoundException, IOException, ParseException {
+
+    synchronized (this.writeLock) {
+      long start = System.nanoTime();
+      CompactGraph next = new CompactGraph();
+      ParallelClosureEngine engine = this.engine;
+      ShardedLoader loader = new ShardedLoader(engine == null ? null : engine.getPool());
+      loader.load(jsonFilepaths, next);
+
+      publish(next.toImmutableGraph());
+      LoadCounter counter = new LoadCounter();
+      counter.packages = loader.getPackages();
+      counter.dependencies = loader.getDependencies();
+      loaded("refresh", loader.getFiles() + " files", counter, start);
+    }
+  }
+
+  /**
+   * Takes in a file path for a json delta file and applies it to the package dependency graph.
+   * 
+   * A delta file holds up to three package arrays in the same shape as a package file:
+   * 
+   * <pre>
+   * { "added":   [ { "name": "X", "dependencies": ["A"] }, ... ],
+   *   "changed": [ { "name": "A", "dependencies": ["C"] }, ... ],
+   *   "removed": [ { "name": "B" }, ... ] }
+   * </pre>
+   * 
+   * Added and changed packages get exactly the listed dependencies: edges to dependencies that are
+   * no longer listed are removed and new ones are added. Removed packages are removed with all their
+   * edges, so packages that depended on them lose that dependency. Entries are applied in file
+   * order.
+   * 
+   * The whole delta is read before the graph is changed, so a delta that cannot be read or parsed
+   * changes nothing.
+   * 
+   * A mutable graph is changed in place, so the work is proportional to the size of the delta and
+   * only the cached installation orders of affected packages are dropped. The first change to a
+   * CompactGraph after it was loaded unpacks its CSR arrays again (see CompactGraph.freeze), which
+   * takes time proportional to the whole graph once; later deltas do not pay for it again.
+   * 
+   * A read-only graph is not changed: the delta is published as a new version of it. For an
+   * ImmutableGraph the new version shares the packed arrays and only holds the changes of the
+   * delta, so publishing it is proportional to the delta as well, until enough changes piled up to
+   * pack the graph again (see ImmutableGraph.edit). A GraphSnapshot is copied into an ImmutableGraph
+   * by its first delta. Deltas, loads and refreshes never run at the same time, so none of them is
+   * lost.
+   *
+   * @param deltaFilepath the name of json delta file
+   * @throws FileNotFoundException if file path is incorrect
+   * @throws IOException if the give file cannot be read
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public void applyDelta(String deltaFilepath)
+    throws FileNotFoundException, IOException, ParseException {
+
+    try (Reader reader = PackageStreamReader.open(deltaFilepath)) {
+      applyDelta(reader);
+    }
+  }
+
+  /**
+   * Applies a json delta read from a character stream to the package dependency graph, see
+   * applyDelta(String). The reader is not closed.
+   *
+   * @param reader the json delta
+   * @throws IOException if the reader fails
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public void applyDelta(Reader reader) throws IOException, ParseException {
+    synchronized (this.writeLock) {
+      long start = System.nanoTime();
+      LoadCounter counter = new LoadCounter();
+      List<Package> packages = new ArrayList<Package>();
+      BitSet removals = new BitSet();
+      Map<String, PackageHandler> handlers = new HashMap<String, PackageHandler>();
+      handlers.put("added", counter.count(packages::add));
+      handlers.put("changed", counter.count(packages::add));
+      handlers.put("removed", counter.count(pkg -> {
+        removals.set(packages.size());
+        packages.add(pkg);
+      }));
+      // the whole delta is read before any of it is applied
+      PackageStreamReader.read(reader, handlers);
+
+      GraphADT graph = getGraph();
+      if (graph instanceof GraphSnapshot)
+        graph = ImmutableGraph.copyOf(graph);
+      ImmutableGraph.Editor editor =
+        graph instanceof ImmutableGraph ? ((ImmutableGraph) graph).edit() : null;
+
+      GraphADT delta = editor != null ? editor : graph;
+      for (int i = 0; i < packages.size(); i++) {
+        if (removals.get(i))
+          delta.removeVertex(packages.get(i).getName());
+        else
+          updatePackage(delta, packages.get(i));
       }
 
-//      System.out.println("DONE!");
+      if (editor != null)
+        swap(editor.toImmutableGraph());
+      loaded("applyDelta", "delta", counter, start);
+    }
+  }
 
+  /**
+   * Records a finished load to the metrics and logs it.
+   *
+   * @param operation the loading method
+   * @param source the file or stream that was loaded
+   * @param counter the counted package entries
+   * @param start the System.nanoTime() the load started at
+   */
+  private void loaded(String operation, String source, LoadCounter counter, long start) {
+    long nanos = System.nanoTime() - start;
+    this.metrics.recordLatency(operation, nanos);
+    this.metrics.recordLoad(counter.packages, counter.dependencies, nanos);
+
+    if (LOG.isLoggable(Level.FINE))
+      LOG.fine(String.format("%s: %d packages, %d dependencies from %s in %.1f ms", operation,
+        counter.packages, counter.dependencies, source, nanos / 1e6));
+  }
 
-    } catch (FileNotFoundException e) {
-      throw new FileNotFoundException();
-    } catch (IOException e) {
-      throw new IOException();
-    } catch (ParseException e) {
-      throw new ParseException(0);
+  /**
+   * Sets the dependencies of a package in a graph to exactly the dependencies of the given package,
+   * adding the package first if it is not in the graph. Only edges that differ are touched.
+   *
+   * @param graph the graph
+   * @param pkg the package with its new dependencies
+   */
+  static void updatePackage(GraphADT graph, Package pkg) {
+    String packageName = pkg.getName();
+    graph.addVertex(packageName);
+
+    Set<String> added = new LinkedHashSet<String>(Arrays.asList(pkg.getDependencies()));
+    List<String> current = graph.getAdjacentVerticesOf(packageName);
+
+    if (current != null) {
+      // copied, the adjacency list may be a live view of the graph
+      for (String dep : new ArrayList<String>(current)) {
+        if (!added.remove(dep))
+          graph.removeEdge(packageName, dep);
+      }
     }
 
+    for (String depName : added)
+      graph.addEdge(packageName, depName);
+  }
+
+  /**
+   * Adds a package and an edge to each of its dependencies to a graph. Dependencies that are not in
+   * the graph yet are added as vertices.
+   *
+   * @param graph the graph
+   * @param pkg the package
+   */
+  static void addPackage(GraphADT graph, Package pkg) {
+    String packageName = pkg.getName();
+    graph.addVertex(packageName);
+
+    for (String dep : pkg.getDependencies())
+      graph.addEdge(packageName, dep);
+  }
+
+  /**
+   * Adds a versioned package like addPackage. Vertices are package names: version ranges of the
+   * dependencies are stripped, and the dependencies of several versions of a package are merged.
+   *
+   * @param graph the graph
+   * @param pkg the package
+   */
+  private static void addVersionedPackage(GraphADT graph, Package pkg) {
+    String packageName = pkg.getName();
+    graph.addVertex(packageName);
+
+    for (String dep : pkg.getDependencies())
+      graph.addEdge(packageName, Dependency.nameOf(dep));
+  }
+
+
+  /**
+   * Writes the package dependency graph to a binary snapshot file that can later be opened with
+   * openSnapshot instead of parsing the json file again.
+   *
+   * @param snapshotFilepath the snapshot file, overwritten if it exists
+   * @throws IOException if the file cannot be written
+   */
+  public void writeSnapshot(String snapshotFilepath) throws IOException {
+    GraphSnapshot.write(getGraph(), snapshotFilepath);
   }
 
+  /**
+   * Replaces the package dependency graph with a memory-mapped, read-only snapshot written by
+   * writeSnapshot. Queries are answered directly from the mapped file.
+   *
+   * @param snapshotFilepath the snapshot file
+   * @throws IOException if the file cannot be read or is not a snapshot
+   */
+  public void openSnapshot(String snapshotFilepath) throws IOException {
+    publish(GraphSnapshot.open(snapshotFilepath));
+  }
 
   /**
    * Helper method to get all packages in the graph.
@@ -114,7 +578,7 @@ public class PackageManager {
    * @return Set<String> of all the packages
    */
   public Set<String> getAllPackages() {
-    return this.graph.getAllVertices();
+    return getGraph().getAllVertices();
   }
 
   /**
@@ -133,67 +597,341 @@ public class PackageManager {
   public List<String> getInstallationOrder(String pkg)
     throws CycleException, PackageNotFoundException {
 
-    Set<String> packageList = getAllPackages();
+    long start = System.nanoTime();
+    try {
+      Index index = this.current.get();
 
-    if (!packageList.contains(pkg))
-      throw new PackageNotFoundException();
+      if (!index.graph.getAllVertices().contains(pkg))
+        throw new PackageNotFoundException();
 
-    List<String> installationOrder = new Stack<String>();
+      return new ArrayList<String>(resolve(index, pkg));
+    } finally {
+      this.metrics.recordLatency("getInstallationOrder", System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Given some package names, returns a valid installation order for each of them.
+   * 
+   * With a parallelism set (see setParallelism), the packages are resolved in parallel, each on a
+   * worker of the pool; the workers share the orders they complete with each other and through the
+   * installation order cache. Otherwise each package is resolved like getInstallationOrder.
+   *
+   * @param packages the packages
+   * @return Map<String, List<String>>, the installation order of every package
+   * @throws CycleException if you encounter a cycle in the graph while finding the installation order
+   *         of any of the packages
+   * @throws PackageNotFoundException if any of the packages passed do not exist in the dependency
+   *         graph.
+   */
+  public Map<String, List<String>> getInstallationOrders(Collection<String> packages)
+    throws CycleException, PackageNotFoundException {
 
-    //Recursion to keep adding to the order for all the dependency of the dependency
+    long start = System.nanoTime();
     try {
-      installationOrder = getInstallationOrderHelper(pkg, installationOrder);
-      // System.out.println(installationOrder);
+      Index index = this.current.get();
 
-    } catch (CycleException e) {
-      throw new CycleException();
+      if (!index.graph.getAllVertices().containsAll(packages))
+        throw new PackageNotFoundException();
+
+      ParallelClosureEngine engine = this.engine;
+      if (engine != null)
+        return engine.installationOrders(index.graph, packages, index.cache);
+
+      Map<String, List<String>> installationOrders = new LinkedHashMap<String, List<String>>();
+      for (String pkg : packages)
+        installationOrders.put(pkg, new ArrayList<String>(resolve(index, pkg)));
+      return installationOrders;
+    } finally {
+      this.metrics.recordLatency("getInstallationOrders", System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Given a package name, writes the IDs (see IndexedGraph) of a valid installation order into a
+   * caller-supplied buffer. Unlike getInstallationOrder this does not use the installation order
+   * cache and, once the calling thread has traversed a graph of this size, allocates nothing.
+   *
+   * The graph must be an IndexedGraph, e.g. a CompactGraph or an OffHeapGraph; the Graph of the
+   * default constructor has no vertex IDs. On any graph, getInstallationOrder(String, List) and
+   * visitInstallationOrder answer the same query without IDs.
+   *
+   * @param pkg the pkg
+   * @param buffer receives the first buffer.length vertex IDs of the installation order
+   * @return the length of the installation order, more than buffer.length if it did not fit
+   * @throws CycleException if you encounter a cycle in the graph while finding the installation order
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   * @throws IllegalStateException if the package manager is not backed by an IndexedGraph
+   */
+  public int getInstallationOrder(String pkg, int[] buffer)
+    throws CycleException, PackageNotFoundException {
+
+    long start = System.nanoTime();
+    try {
+      GraphADT graph = getGraph();
+      if (!(graph instanceof IndexedGraph))
+        throw new IllegalStateException("Vertex IDs need an IndexedGraph, e.g. a CompactGraph, not a "
+          + graph.getClass().getName());
+      if (((IndexedGraph) graph).idOf(pkg) < 0)
+        throw new PackageNotFoundException();
+
+      Traversal traversal = Traversal.acquire(graph);
+      try {
+        visit(traversal, pkg);
+        return traversal.copyIds(buffer);
+      } finally {
+        traversal.release();
+      }
+    } finally {
+      this.metrics.recordLatency("getInstallationOrder", System.nanoTime() - start);
     }
+  }
+
+  /**
+   * Given a package name, replaces the contents of a caller-supplied list with a valid installation
+   * order. Unlike getInstallationOrder this does not use the installation order cache, so a list
+   * that is reused for many queries is the only storage needed. Works on every graph; on an
+   * IndexedGraph the traversal itself allocates nothing once the calling thread has traversed a
+   * graph of this size.
+   *
+   * @param pkg the pkg
+   * @param installationOrder the list to clear and fill
+   * @throws CycleException if you encounter a cycle in the graph while finding the installation order
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   */
+  public void getInstallationOrder(String pkg, List<String> installationOrder)
+    throws CycleException, PackageNotFoundException {
 
+    long start = System.nanoTime();
+    try {
+      GraphADT graph = getGraph();
+      if (!contains(graph, pkg))
+        throw new PackageNotFoundException();
 
-    return installationOrder;
+      Traversal traversal = Traversal.acquire(graph);
+      try {
+        visit(traversal, pkg);
+        installationOrder.clear();
+        traversal.copyTo(installationOrder);
+      } finally {
+        traversal.release();
+      }
+    } finally {
+      this.metrics.recordLatency("getInstallationOrder", System.nanoTime() - start);
+    }
   }
 
   /**
-   * Gets the installation order helper.
+   * Given a package name, passes the packages of a valid installation order to a visitor, in order.
+   * Nothing is passed if there is a cycle. The visitor may run queries itself. Works on every graph;
+   * on an IndexedGraph the traversal itself allocates nothing once the calling thread has traversed
+   * a graph of this size.
    *
    * @param pkg the pkg
-   * @param installationOrder the installation order
-   * @return the installation order helper
-   * @throws CycleException the cycle exception
+   * @param visitor receives every package of the installation order
+   * @throws CycleException if you encounter a cycle in the graph while finding the installation order
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
    */
-  private List<String> getInstallationOrderHelper(String pkg, List<String> installationOrder)
-    throws CycleException {
+  public void visitInstallationOrder(String pkg, PackageVisitor visitor)
+    throws CycleException, PackageNotFoundException {
+
+    long start = System.nanoTime();
+    try {
+      GraphADT graph = getGraph();
+      if (!contains(graph, pkg))
+        throw new PackageNotFoundException();
 
+      Traversal traversal = Traversal.acquire(graph);
+      try {
+        visit(traversal, pkg);
+        for (int i = 0; i < traversal.size(); i++)
+          visitor.visit(traversal.get(i));
+      } finally {
+        traversal.release();
+      }
+    } finally {
+      this.metrics.recordLatency("visitInstallationOrder", System.nanoTime() - start);
+    }
+  }
 
-    List<String> packageDep = this.graph.getAdjacentVerticesOf(pkg);
+  /**
+   * Tells whether a package is in a graph, by its ID if the graph has IDs so that no view of the
+   * vertex set is created.
+   *
+   * @param graph the graph
+   * @param pkg the package
+   * @return true if the package is in the graph
+   */
+  private static boolean contains(GraphADT graph, String pkg) {
+    if (graph instanceof IndexedGraph)
+      return ((IndexedGraph) graph).idOf(pkg) >= 0;
+    return graph.getAllVertices().contains(pkg);
+  }
 
-    // base case
-    if (packageDep == null) {
-      if (!installationOrder.contains(pkg))
-        installationOrder.add(pkg);
+  /**
+   * Returns the installation order of a package from the cache, computing and caching it first if
+   * needed.
+   *
+   * @param index the graph version to resolve against
+   * @param pkg the package, must be in the graph
+   * @return the read-only installation order
+   * @throws CycleException if a cycle is reachable from the package
+   */
+  private List<String> resolve(Index index, String pkg) throws CycleException {
+    ClosureCache cache = index.cache;
+    if (cache == null) // explicit-stack DFS: no recursion depth limit, shared dependencies visited once
+      return topologicalOrder(index.graph, Collections.singletonList(pkg));
+
+    List<String> installationOrder = cache.get(pkg);
+    this.metrics.recordCacheLookup(installationOrder != null);
+    if (installationOrder != null)
       return installationOrder;
-    } else {
-      for (int i = 0; i < packageDep.size(); i++) {
-        String packageName = packageDep.get(i);
 
-        //get dependencies
-        List<String> packageDepofDep = this.graph.getAdjacentVerticesOf(packageName);
+    long version = cache.getVersion();
+    installationOrder = topologicalOrder(index.graph, Collections.singletonList(pkg));
+    return cache.put(pkg, installationOrder, version);
+  }
 
-        //if cycle
-        if (packageDepofDep != null && packageDepofDep.contains(pkg))
-          throw new CycleException();
+  /**
+   * Picks one version of every package needed by the requirements such that every version range is
+   * met, preferring newer versions (see VersionResolver). Conflicts learned while resolving are
+   * reused by later calls.
+   *
+   * @param requirements packages with optional version ranges, e.g. "A", "B>=2.1,<3"
+   * @return Map<String, Version>, the chosen version of every needed package
+   * @throws ConflictException if no set of versions meets all requirements
+   * @throws PackageNotFoundException if any of the required packages is not in the index.
+   * @throws IllegalStateException if no index was loaded with constructIndex
+   */
+  public Map<String, Version> resolveVersions(String... requirements)
+    throws ConflictException, PackageNotFoundException {
 
-        // call recursive method
-        installationOrder = getInstallationOrderHelper(packageDep.get(i), installationOrder);
+    long start = System.nanoTime();
+    try {
+      VersionResolver resolver = this.resolver;
+      if (resolver == null)
+        throw new IllegalStateException("No versioned package index, see constructIndex");
 
+      for (String requirement : requirements) {
+        if (resolver.getIndex().getVersions(Dependency.nameOf(requirement)).isEmpty())
+          throw new PackageNotFoundException();
       }
-      installationOrder.add(pkg);
+
+      return resolver.resolve(requirements);
+    } finally {
+      this.metrics.recordLatency("resolveVersions", System.nanoTime() - start);
     }
+  }
 
+  /**
+   * Returns whether package a depends on package b, directly or transitively, i.e. whether b is in
+   * the installation order of a. A package only depends on itself if it is part of a cycle.
+   * 
+   * The first call builds a ReachabilityIndex of the graph, after which a query is a bit test for
+   * graphs with up to ReachabilityIndex.DEFAULT_BITSET_LIMIT packages and an interval label check
+   * for larger ones. The index follows changes reported by an ObservableGraph, applying added
+   * dependencies in place and rebuilding after removals.
+   *
+   * @param a the dependent package
+   * @param b the dependency
+   * @return true if a depends on b
+   * @throws PackageNotFoundException if any of the packages passed do not exist in the dependency
+   *         graph.
+   */
+  public boolean dependsOn(String a, String b) throws PackageNotFoundException {
 
+    Index index = this.current.get();
+    Set<String> packageList = index.graph.getAllVertices();
 
-    return installationOrder;
+    if (!packageList.contains(a) || !packageList.contains(b))
+      throw new PackageNotFoundException();
+
+    ReachabilityIndex reachability = index.reachability;
+    if (reachability == null) {
+      synchronized (index) {
+        reachability = index.reachability;
+        if (reachability == null) {
+          reachability = new ReachabilityIndex(index.graph);
+          if (index.graph instanceof ObservableGraph && !index.retired)
+            ((ObservableGraph) index.graph).addGraphListener(reachability);
+          index.reachability = reachability;
+        }
+      }
+    }
 
+    return reachability.dependsOn(a, b);
+  }
+
+  /**
+   * Returns the packages that directly depend on the given package, i.e. the packages that break if
+   * it is removed.
+   *
+   * @param pkg the package
+   * @return List<String>, the immediate dependents of the package
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   */
+  public List<String> getDependents(String pkg) throws PackageNotFoundException {
+
+    GraphADT graph = getGraph();
+
+    if (!graph.getAllVertices().contains(pkg))
+      throw new PackageNotFoundException();
+
+    return new ArrayList<String>(dependentsOf(graph, pkg));
+  }
+
+  /**
+   * Returns every package that depends on the given package directly or transitively, nearest
+   * dependents first. The package itself is not included.
+   *
+   * @param pkg the package
+   * @return List<String>, all transitive dependents of the package
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   */
+  public List<String> getAllDependents(String pkg) throws PackageNotFoundException {
+
+    GraphADT graph = getGraph();
+
+    if (!graph.getAllVertices().contains(pkg))
+      throw new PackageNotFoundException();
+
+    // breadth-first walk over the reverse edges
+    Set<String> visited = new HashSet<String>();
+    List<String> dependents = new ArrayList<String>();
+    visited.add(pkg);
+    dependents.add(pkg);
+
+    for (int i = 0; i < dependents.size(); i++) {
+      for (String dependent : dependentsOf(graph, dependents.get(i))) {
+        if (visited.add(dependent))
+          dependents.add(dependent);
+      }
+    }
+
+    return dependents.subList(1, dependents.size());
+  }
+
+  /**
+   * Returns the immediate dependents of a package, from the reverse index of the graph when it has
+   * one and by scanning every package otherwise.
+   *
+   * @param graph the graph
+   * @param pkg the package
+   * @return the dependents, never null
+   */
+  private static List<String> dependentsOf(GraphADT graph, String pkg) {
+    if (graph instanceof BidirectionalGraph) {
+      List<String> incoming = ((BidirectionalGraph) graph).getIncomingVerticesOf(pkg);
+      return incoming == null ? Collections.<String>emptyList() : incoming;
+    }
+
+    List<String> dependents = new ArrayList<String>();
+    for (String other : graph.getAllVertices()) {
+      List<String> dependencies = graph.getAdjacentVerticesOf(other);
+      if (dependencies != null && dependencies.contains(pkg))
+        dependents.add(other);
+    }
+    return dependents;
   }
 
   /**
@@ -216,33 +954,165 @@ public class PackageManager {
   public List<String> toInstall(String newPkg, String installedPkg)
     throws CycleException, PackageNotFoundException {
 
-    Set<String> packageList = getAllPackages();
-    List<String> currDep, alreadyInstalled = null;
-    String currDepPack = null;
+    long start = System.nanoTime();
+    try {
+      Index index = this.current.get();
+      Set<String> packageList = index.graph.getAllVertices();
 
-    if (!packageList.contains(newPkg) || !packageList.contains(installedPkg))
-      throw new PackageNotFoundException();
+      if (!packageList.contains(newPkg) || !packageList.contains(installedPkg))
+        throw new PackageNotFoundException();
 
+      // everything in the installation order of the installed package is installed: mark it
+      // first, so the new package's traversal stops at the marked packages
+      List<List<String>> installedOrders =
+        installedOrders(index, Collections.singletonList(installedPkg));
+      Traversal traversal = Traversal.acquire(index.graph);
+      try {
+        skipInstalled(traversal, installedOrders, Collections.singletonList(installedPkg));
+        visit(traversal, newPkg);
+
+        List<String> installationOrder = new ArrayList<String>(traversal.size());
+        traversal.copyTo(installationOrder);
+        return installationOrder;
+      } finally {
+        traversal.release();
+      }
+    } finally {
+      this.metrics.recordLatency("toInstall", System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Given a package to be installed and some installed packages, replaces the contents of a
+   * caller-supplied list with the packages that need to be newly installed, in a valid installation
+   * order. Like toInstall(String, String), everything in the installation order of an installed
+   * package is taken to be installed. The installation orders of the installed packages, and of the
+   * new package if nothing is installed, come from the installation order cache, so a batch of
+   * queries with the same installed packages only traverses their dependencies once.
+   *
+   * @param newPkg the new pkg
+   * @param installedPkgs the installed pkgs
+   * @param toInstall the list to clear and fill
+   * @throws CycleException if you encounter a cycle in the graph while finding the dependencies of
+   *         the given packages.
+   * @throws PackageNotFoundException if any of the packages passed do not exist in the dependency
+   *         graph.
+   */
+  public void toInstall(String newPkg, Collection<String> installedPkgs, List<String> toInstall)
+    throws CycleException, PackageNotFoundException {
+
+    long start = System.nanoTime();
     try {
-      currDep = this.getInstallationOrder(newPkg);
-      alreadyInstalled = this.getInstallationOrder(installedPkg);
-
-      for (int i = 0; i < currDep.size(); i++) {
-        currDepPack = currDep.get(i);
-        
-        if (alreadyInstalled.contains(currDepPack)) {// if already installed, removing 
-          currDep.remove(i); // from current installation list of the new package being installed
-          i--;
-        }
+      Index index = this.current.get();
+      if (!contains(index.graph, newPkg))
+        throw new PackageNotFoundException();
+      for (String installedPkg : installedPkgs) {
+        if (!contains(index.graph, installedPkg))
+          throw new PackageNotFoundException();
       }
 
-    } catch (CycleException e) {
-      throw new CycleException();
+      if (installedPkgs.isEmpty()) {
+        List<String> installationOrder = resolve(index, newPkg);
+        toInstall.clear();
+        toInstall.addAll(installationOrder);
+        return;
+      }
+
+      List<List<String>> installedOrders = installedOrders(index, installedPkgs);
+      Traversal traversal = Traversal.acquire(index.graph);
+      try {
+        skipInstalled(traversal, installedOrders, installedPkgs);
+        visit(traversal, newPkg);
+
+        toInstall.clear();
+        traversal.copyTo(toInstall);
+      } finally {
+        traversal.release();
+      }
+    } finally {
+      this.metrics.recordLatency("toInstall", System.nanoTime() - start);
     }
+  }
 
-//    System.out.println(currDep);
+  /**
+   * Returns the cached installation orders of installed packages, computing and caching them first
+   * if needed, or null if the graph has no installation order cache. Called before a traversal is
+   * acquired, since computing an order takes a traversal of its own.
+   *
+   * @param index the graph version to resolve against
+   * @param installedPkgs the installed packages, in the graph
+   * @return the read-only installation orders, or null
+   * @throws CycleException if a cycle is reachable from an installed package
+   */
+  private List<List<String>> installedOrders(Index index, Collection<String> installedPkgs)
+    throws CycleException {
+    if (index.cache == null)
+      return null;
 
-    return currDep;
+    List<List<String>> installedOrders = new ArrayList<List<String>>(installedPkgs.size());
+    for (String installedPkg : installedPkgs)
+      installedOrders.add(resolve(index, installedPkg));
+    return installedOrders;
+  }
+
+  /**
+   * Marks everything in the installation orders of installed packages as visited, from their
+   * cached installation orders if there are any, else by visiting them and dropping the order.
+   *
+   * @param traversal the traversal, with nothing visited
+   * @param installedOrders the cached installation orders, or null
+   * @param installedPkgs the installed packages
+   * @throws CycleException if a cycle is reachable from an installed package
+   */
+  private void skipInstalled(Traversal traversal, List<List<String>> installedOrders,
+    Collection<String> installedPkgs) throws CycleException {
+    if (installedOrders != null) {
+      for (List<String> installationOrder : installedOrders) {
+        for (String pkg : installationOrder)
+          traversal.skip(pkg);
+      }
+      return;
+    }
+
+    // not recorded here: the query records its traversal once, when it is done
+    for (String installedPkg : installedPkgs) {
+      if (!traversal.visit(installedPkg))
+        throw cycleFound(traversal, Collections.singletonList(installedPkg));
+    }
+    traversal.clearOrder();
+  }
+
+  /**
+   * Given the packages requested for installation and the packages already installed on a host,
+   * return the packages that need to be newly installed, in a valid installation order.
+   * 
+   * The installed set is taken to be complete, i.e. every installed package has its dependencies
+   * installed too, so the search stops at installed packages. The dependency graph is traversed once
+   * for all requested packages together, so shared dependencies are only listed once.
+   *
+   * @param requested the packages to install
+   * @param installed the packages that are already installed
+   * @return List<String>, packages that need to be newly installed.
+   * @throws CycleException if you encounter a cycle in the graph while finding the dependencies of
+   *         the requested packages that are not installed.
+   * @throws PackageNotFoundException if any of the packages passed do not exist in the dependency
+   *         graph.
+   */
+  public List<String> toInstall(Set<String> requested, Set<String> installed)
+    throws CycleException, PackageNotFoundException {
+
+    long start = System.nanoTime();
+    try {
+      GraphADT graph = getGraph();
+      Set<String> packageList = graph.getAllVertices();
+
+      if (!packageList.containsAll(requested) || !packageList.containsAll(installed))
+        throw new PackageNotFoundException();
+
+      return topologicalOrder(graph, requested, installed);
+    } finally {
+      this.metrics.recordLatency("toInstall", System.nanoTime() - start);
+    }
   }
 
   /**
@@ -258,35 +1128,233 @@ public class PackageManager {
    */
   public List<String> getInstallationOrderForAllPackages() throws CycleException, PackageNotFoundException {
 
-    // union set of all the package installation order
-    Set<String> packageList = this.getAllPackages();
-    List<String> installOrder, finalInstallOrder = null;
-    String packageName, installPack;
-    boolean firstRun = false;
+    long start = System.nanoTime();
     try {
-      for (Iterator<String> it = packageList.iterator(); it.hasNext(); ) {
-        packageName = it.next();
-        installOrder = this.getInstallationOrder(packageName);
-        
-        if(!firstRun) {
-          finalInstallOrder = installOrder;
-          firstRun = true;
-        } else {
-          
-          for(int i=0; i <installOrder.size() ; i++ ) {
-            installPack = installOrder.get(i);
-            
-            if(!finalInstallOrder.contains(installPack))
-              finalInstallOrder.add(installPack);
-          }
-        }}
-    } catch (CycleException e) {
-      throw new CycleException();
+      // a single depth-first pass rooted at every package visits each vertex and edge once
+      GraphADT graph = getGraph();
+      return topologicalOrder(graph, graph.getAllVertices());
+    } finally {
+      this.metrics.recordLatency("getInstallationOrderForAllPackages", System.nanoTime() - start);
     }
+  }
 
-//System.out.println(finalInstallOrder);
-    
-    return finalInstallOrder;
+  /**
+   * Iterative three-color depth-first search that returns the given packages and all of their
+   * transitive dependencies in a valid installation order (post-order).
+   * 
+   * A package is "in progress" while it is on the explicit DFS stack and "done" once all of its
+   * dependencies have been emitted. Reaching an in-progress package again means a cycle.
+   *
+   * @param graph the graph
+   * @param roots the packages to start from
+   * @return List<String>, the installation order
+   * @throws CycleException if a cycle is reachable from any of the roots, with all such cycles
+   */
+  private List<String> topologicalOrder(GraphADT graph, Collection<String> roots)
+    throws CycleException {
+    return topologicalOrder(graph, roots, Collections.<String>emptySet());
+  }
+
+  /**
+   * Returns the given packages and all of their transitive dependencies that are not installed yet
+   * in a valid installation order. Installed packages start out "done", so the search never
+   * descends into them and every other package and edge is visited at most once.
+   *
+   * @param graph the graph
+   * @param roots the packages to start from
+   * @param installed the packages to prune, assumed to be installed with all their dependencies
+   * @return List<String>, the installation order without the installed packages
+   * @throws CycleException if a cycle is reachable from any of the roots, with all such cycles
+   */
+  private List<String> topologicalOrder(GraphADT graph, Collection<String> roots,
+    Set<String> installed) throws CycleException {
+
+    Traversal traversal = Traversal.acquire(graph);
+    try {
+      for (String pkg : installed)
+        traversal.skip(pkg);
+      visit(traversal, roots);
+
+      List<String> installationOrder = new ArrayList<String>(traversal.size());
+      traversal.copyTo(installationOrder);
+      return installationOrder;
+    } finally {
+      traversal.release();
+    }
+  }
+
+  /**
+   * Visits the given packages with a traversal and records its size.
+   *
+   * @param traversal the traversal, holding the installation order afterwards
+   * @param roots the packages to start from
+   * @throws CycleException if a cycle is reachable from any of the roots, with all such cycles
+   */
+  private void visit(Traversal traversal, Collection<String> roots) throws CycleException {
+    for (String root : roots) {
+      if (!traversal.visit(root))
+        throw cycleFound(traversal, roots);
+    }
+    this.metrics.recordTraversal(traversal.size(), traversal.getEdges());
+  }
+
+  /**
+   * Visits a package with a traversal and records its size.
+   *
+   * @param traversal the traversal, holding the installation order afterwards
+   * @param pkg the package to start from
+   * @throws CycleException if a cycle is reachable from the package, with all such cycles
+   */
+  private void visit(Traversal traversal, String pkg) throws CycleException {
+    if (!traversal.visit(pkg))
+      throw cycleFound(traversal, Collections.singletonList(pkg));
+    this.metrics.recordTraversal(traversal.size(), traversal.getEdges());
+  }
+
+  /**
+   * Records a traversal that found a cycle and returns the exception to throw.
+   *
+   * @param traversal the traversal
+   * @param roots the packages it started from
+   * @return the exception, with every cycle reachable from the roots
+   */
+  private CycleException cycleFound(Traversal traversal, Collection<String> roots) {
+    this.metrics.recordTraversal(traversal.size(), traversal.getEdges());
+    LOG.fine("Cycle found below " + roots);
+    return new CycleException(StronglyConnectedComponents.findCycles(traversal.getGraph(), roots));
+  }
+
+  /**
+   * Given a package name, returns its installation order as layers. Every package of a layer only
+   * depends on packages of earlier layers, so the packages of one layer can be installed at the
+   * same time (see ParallelInstaller). The last layer holds just the given package.
+   * 
+   * If a dependency is added to a thread-safe graph while the layers are computed, the layers are
+   * computed again from a new installation order.
+   *
+   * @param pkg the pkg
+   * @return List<List<String>>, the installation layers
+   * @throws CycleException if you encounter a cycle in the graph while finding the installation order
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   * @throws ConcurrentModificationException if dependencies were added while the layers were
+   *         computed every time they were tried
+   */
+  public List<List<String>> getInstallationLayers(String pkg)
+    throws CycleException, PackageNotFoundException {
+
+    Index index = this.current.get();
+
+    if (!index.graph.getAllVertices().contains(pkg))
+      throw new PackageNotFoundException();
+
+    for (int attempt = 1;; attempt++) {
+      List<List<String>> layers = layers(index.graph, resolve(index, pkg));
+      if (layers != null)
+        return layers;
+      if (attempt == LAYER_ATTEMPTS)
+        throw layersChanged();
+    }
+  }
+
+  /**
+   * Returns the installation order of all the packages in the dependency graph as layers, where
+   * every package of a layer only depends on packages of earlier layers.
+   *
+   * @return List<List<String>>, the installation layers
+   * @throws CycleException if you encounter a cycle in the graph
+   * @throws ConcurrentModificationException if dependencies were added while the layers were
+   *         computed every time they were tried
+   */
+  public List<List<String>> getInstallationLayersForAllPackages() throws CycleException {
+    GraphADT graph = getGraph();
+    for (int attempt = 1;; attempt++) {
+      List<List<String>> layers = layers(graph, topologicalOrder(graph, graph.getAllVertices()));
+      if (layers != null)
+        return layers;
+      if (attempt == LAYER_ATTEMPTS)
+        throw layersChanged();
+    }
+  }
+
+  private static ConcurrentModificationException layersChanged() {
+    return new ConcurrentModificationException(
+      "Dependencies kept being added while installation layers were computed");
+  }
+
+  /**
+   * Splits a valid installation order into layers: a package's layer is one more than the highest
+   * layer of its dependencies, and packages without dependencies are in layer 0.
+   *
+   * @param graph the graph
+   * @param installationOrder an installation order that was valid when it was computed
+   * @return the layers, or null if a package now has a dependency that is not before it in the
+   *         order, i.e. the graph changed since the order was computed
+   */
+  private static List<List<String>> layers(GraphADT graph, List<String> installationOrder) {
+    Map<String, Integer> layerOf = new HashMap<String, Integer>();
+    List<List<String>> layers = new ArrayList<List<String>>();
+
+    for (String pkg : installationOrder) {
+      int layer = 0;
+      List<String> dependencies = graph.getAdjacentVerticesOf(pkg);
+      if (dependencies != null) {
+        for (String dep : dependencies) {
+          Integer depLayer = layerOf.get(dep);
+          if (depLayer == null)
+            return null;
+          layer = Math.max(layer, depLayer + 1);
+        }
+      }
+
+      layerOf.put(pkg, layer);
+      if (layer == layers.size())
+        layers.add(new ArrayList<String>());
+      layers.get(layer).add(pkg);
+    }
+
+    return layers;
+  }
+
+  /**
+   * Returns every group of packages in the dependency graph that depend on each other in a cycle,
+   * found in a single pass.
+   *
+   * @return List<List<String>>, the cycle groups, empty if the graph is acyclic
+   */
+  public List<List<String>> getCycles() {
+    GraphADT graph = getGraph();
+    return StronglyConnectedComponents.findCycles(graph, graph.getAllVertices());
+  }
+
+  /**
+   * Given a package name, returns its installation order as groups of packages instead of failing
+   * on cycles. Packages that depend on each other in a cycle form one group and have to be installed
+   * together; every other group holds a single package. Each group is listed after all the groups
+   * it depends on.
+   *
+   * @param pkg the pkg
+   * @return List<List<String>>, order in which the package groups have to be installed
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   */
+  public List<List<String>> getInstallationGroups(String pkg) throws PackageNotFoundException {
+
+    GraphADT graph = getGraph();
+
+    if (!graph.getAllVertices().contains(pkg))
+      throw new PackageNotFoundException();
+
+    return StronglyConnectedComponents.find(graph, Collections.singletonList(pkg));
+  }
+
+  /**
+   * Returns an installation order of all the packages in the dependency graph as groups of packages,
+   * where packages that depend on each other in a cycle form one group and are installed together.
+   *
+   * @return List<List<String>>, order in which all the package groups have to be installed
+   */
+  public List<List<String>> getInstallationGroupsForAllPackages() {
+    GraphADT graph = getGraph();
+    return StronglyConnectedComponents.find(graph, graph.getAllVertices());
   }
 
   /**
@@ -304,42 +1372,98 @@ public class PackageManager {
    */
   public String getPackageWithMaxDependencies() throws CycleException {
 
-    Set<String> allPackages = this.graph.getAllVertices();
-    List<String> maxDep = null, currDep = null;
-    String maxDepPack = "", packageName = "";
-    boolean firstRun = false;
+    long start = System.nanoTime();
+    try {
+      GraphADT graph = getGraph();
+
+      // every package is counted, so any cycle would show up in some installation order
+      List<List<String>> cycles =
+        StronglyConnectedComponents.findCycles(graph, graph.getAllVertices());
+      if (!cycles.isEmpty())
+        throw new CycleException(cycles);
+
+      List<String> top = DependencyCounter.top(countDependencies(graph), 1);
+      return top.isEmpty() ? "" : top.get(0);
+    } finally {
+      this.metrics.recordLatency("getPackageWithMaxDependencies", System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Returns the k packages with the most transitive dependencies, most first. All counts are
+   * computed in a single pass over the dependency graph (see DependencyCounter). Packages that
+   * depend on each other in a cycle share their dependencies instead of failing.
+   *
+   * @param k the number of packages
+   * @return List<String>, at most k packages
+   */
+  public List<String> getPackagesWithMostDependencies(int k) {
+    return DependencyCounter.top(countDependencies(getGraph()), k);
+  }
 
-    for (Iterator<String> it = allPackages.iterator(); it.hasNext();) {
-      packageName = it.next();
-      try {
-        currDep = this.getInstallationOrder(packageName);
+  /**
+   * Returns the number of transitive dependencies of every package, not counting the package itself.
+   *
+   * @return Map<String, Integer>, the dependency count of every package
+   */
+  public Map<String, Integer> getDependencyCounts() {
+    return countDependencies(getGraph());
+  }
 
-        if (!firstRun) {
-          maxDep = currDep;
-          maxDepPack = packageName;
-          firstRun = true;
-        }
-      } catch (CycleException e) {
-        throw new CycleException();
-      } catch (PackageNotFoundException e) {
-        // This should never be thrown.
-        System.out
-          .println("This should never be thrown. Something went wrong with the laws of logic.");
-        e.printStackTrace();
-      }
+  /**
+   * Counts the transitive dependencies of every package, in parallel if a parallelism is set.
+   *
+   * @param graph the graph
+   * @return the counts
+   */
+  private Map<String, Integer> countDependencies(GraphADT graph) {
+    ParallelClosureEngine engine = this.engine;
+    return engine == null ? DependencyCounter.count(graph) : engine.count(graph);
+  }
 
-      if (maxDep.size() < currDep.size()) {
-        maxDep = currDep;
-        maxDepPack = packageName;
+  /**
+   * Returns an estimate of the number of transitive dependencies of every package, for graphs whose
+   * exact closures do not fit in memory.
+   *
+   * @param precision HyperLogLog precision, 4 to 16; DependencyCounter.DEFAULT_PRECISION is about
+   *        1.6% standard error
+   * @return Map<String, Integer>, the estimated dependency count of every package
+   */
+  public Map<String, Integer> estimateDependencyCounts(int precision) {
+    return DependencyCounter.estimate(getGraph(), precision);
+  }
 
-      }
+  /**
+   * Counts the package and dependency entries that are handed to package handlers.
+   */
+  private static final class LoadCounter {
 
+    long packages;
+    long dependencies;
+
+    PackageHandler count(PackageHandler handler) {
+      return pkg -> {
+        this.packages++;
+        this.dependencies += pkg.getDependencies().length;
+        handler.handlePackage(pkg);
+      };
     }
+  }
 
-    System.out.println("Found max dependencies" + maxDep + " for package: " + maxDepPack);
+  /**
+   * One published version of the graph and the installation order cache that belongs to it.
+   */
+  private static final class Index {
 
+    final GraphADT graph;
+    final ClosureCache cache; // null if caching is disabled for this graph
+    volatile ReachabilityIndex reachability; // created by the first dependsOn
+    boolean retired; // replaced by publish, guarded by this
 
-    return maxDepPack;
+    Index(GraphADT graph, ClosureCache cache) {
+      this.graph = graph;
+      this.cache = cache;
+    }
   }
 
   /**
@@ -358,7 +1482,7 @@ public class PackageManager {
 //    String jsonFilePath = "test.json";
      String jsonFilePath = "shared_dependencies.json";
 
-    System.out.println("PackageManager.main()");
+    LOG.fine("PackageManager.main()");
 
     PackageManager manager = new PackageManager();
 
@@ -371,23 +1495,17 @@ public class PackageManager {
       manager.getInstallationOrderForAllPackages();
 
     } catch (FileNotFoundException e) {
-      System.out.println("FILE WASN'T FOUND");
-      e.printStackTrace();
+      LOG.log(Level.SEVERE, "File was not found: " + jsonFilePath, e);
     } catch (IOException e) {
-      System.out.println("IO EXCEPTION");
-      e.printStackTrace();
+      LOG.log(Level.SEVERE, "Could not read " + jsonFilePath, e);
     } catch (ParseException e) {
-      System.out.println("PARSEEXCEPTION");
-      e.printStackTrace();
+      LOG.log(Level.SEVERE, "Could not parse " + jsonFilePath, e);
     } catch (CycleException e) {
-      System.out.println("CYCLEEXCEPTION");
-      e.printStackTrace();
+      LOG.log(Level.SEVERE, "Dependency cycle", e);
     } catch (PackageNotFoundException e) {
-      System.out.println("PackageNotFoundEXCEPTION");
-      e.printStackTrace();
+      LOG.log(Level.SEVERE, "Package not found", e);
     } catch (Exception e) {
-      System.out.println("LIFENOTFOUNDEXCEPTION: At this point. IDEK.");
-      e.printStackTrace();
+      LOG.log(Level.SEVERE, "Unexpected error", e);
     }
 
   }
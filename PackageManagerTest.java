@@ -1,12 +1,29 @@
 import static org.junit.jupiter.api.Assertions.*; // org.junit.Assert.*;
+import java.io.File;
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.json.simple.parser.ParseException;
 import org.junit.After;
 import org.junit.Before;
@@ -243,4 +260,1153 @@ public class PackageManagerTest {
   
   
   
+  /**
+   * Construct graph backed by a CompactGraph
+   */
+  @Test
+  public void test003_constructCompact() throws Exception {
+
+    manager = new PackageManager(new CompactGraph());
+    manager.constructGraph(jsonFilePathS);
+
+    if (manager.getAllPackages().size() != 4)
+      fail("Doesn't contain all as expected");
+
+    List<String> actualList = manager.getInstallationOrder("A");
+    if (actualList.size() != 4 || actualList.indexOf("D") > actualList.indexOf("B")
+      || actualList.indexOf("A") != 3)
+      fail("Invalid installation order " + actualList);
+
+    actualList = manager.toInstall("A", "B");
+    if (actualList.size() != 2 || !actualList.contains("A") || !actualList.contains("C"))
+      fail("Invalid packages to install " + actualList);
+  }
+
+  /**
+   * Global installation order lists every package once, after all of its dependencies
+   */
+  @Test
+  public void test004_installationOrderForAllPackages() throws Exception {
+
+    manager.constructGraph("test.json");
+
+    List<String> actualList = manager.getInstallationOrderForAllPackages();
+    if (actualList.size() != manager.getAllPackages().size())
+      fail("Doesn't contain all as expected " + actualList);
+
+    for (String pkg : actualList) {
+      for (String dep : manager.getInstallationOrder(pkg)) {
+        if (actualList.indexOf(dep) > actualList.indexOf(pkg))
+          fail(dep + " must be installed before " + pkg + " in " + actualList);
+      }
+    }
+  }
+
+  /**
+   * Global installation order of a cyclic graph throws
+   */
+  @Test
+  public void test005_installationOrderForAllPackagesCyclic() throws Exception {
+
+    manager.constructGraph(jsonFilePathC);
+
+    try {
+      manager.getInstallationOrderForAllPackages();
+      fail("Should receive cyclic error now");
+    } catch (CycleException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Installation order of a long dependency chain doesn't overflow the stack
+   */
+  @Test
+  public void test006_installationOrderDeepChain() throws Exception {
+
+    Graph graph = new Graph();
+    int length = 100000;
+    for (int i = 0; i < length - 1; i++)
+      graph.addEdge("P" + i, "P" + (i + 1));
+    manager = new PackageManager(graph);
+
+    List<String> actualList = manager.getInstallationOrder("P0");
+    if (actualList.size() != length || !actualList.get(0).equals("P" + (length - 1))
+      || !actualList.get(length - 1).equals("P0"))
+      fail("Invalid installation order");
+  }
+
+  /**
+   * Shared dependencies are listed once and longer cycles are detected
+   */
+  @Test
+  public void test007_installationOrderDiamondsAndCycle() throws Exception {
+
+    // ladder of diamonds: D(i) -> L(i), R(i) -> D(i + 1)
+    Graph graph = new Graph();
+    int diamonds = 64;
+    for (int i = 0; i < diamonds; i++) {
+      graph.addEdge("D" + i, "L" + i);
+      graph.addEdge("D" + i, "R" + i);
+      graph.addEdge("L" + i, "D" + (i + 1));
+      graph.addEdge("R" + i, "D" + (i + 1));
+    }
+    manager = new PackageManager(graph);
+
+    List<String> actualList = manager.getInstallationOrder("D0");
+    if (actualList.size() != graph.order() || new HashSet<String>(actualList).size() != graph.order())
+      fail("Each package should be listed exactly once");
+
+    graph.addEdge("D" + diamonds, "L3");
+    try {
+      manager.getInstallationOrder("D0");
+      fail("Should receive cyclic error now");
+    } catch (CycleException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Streaming reader hands out packages in file order, regardless of key order or unknown keys
+   */
+  @Test
+  public void test008_streamPackages() throws Exception {
+
+    String json = "{\"version\": 2, \"packages\": ["
+      + "{\"dependencies\": [\"B\", \"C\"], \"name\": \"A\", \"extra\": {\"name\": \"X\"}},"
+      + "{\"name\": \"B\", \"dependencies\": []}], \"other\": [{\"name\": \"Y\"}]}";
+
+    List<Package> packages = new ArrayList<Package>();
+    PackageStreamReader.read(new StringReader(json), "packages", packages::add);
+
+    if (packages.size() != 2)
+      fail("Expected two packages");
+    if (!packages.get(0).getName().equals("A") || packages.get(0).getDependencies().length != 2
+      || !packages.get(0).getDependencies()[1].equals("C"))
+      fail("First package is different");
+    if (!packages.get(1).getName().equals("B") || packages.get(1).getDependencies().length != 0)
+      fail("Second package is different");
+  }
+
+  /**
+   * A written snapshot reopens with the same packages and installation orders
+   */
+  @Test
+  public void test009_snapshot() throws Exception {
+
+    File snapshot = File.createTempFile("packages", ".snapshot");
+    snapshot.deleteOnExit();
+
+    manager.constructGraph("test.json");
+    manager.writeSnapshot(snapshot.getPath());
+    List<String> expected = manager.getInstallationOrder("F");
+
+    PackageManager reopened = new PackageManager();
+    reopened.openSnapshot(snapshot.getPath());
+
+    if (!reopened.getAllPackages().equals(manager.getAllPackages()))
+      fail("Doesn't contain all as expected");
+    if (!reopened.getInstallationOrder("F").equals(expected))
+      fail("Installation order is different");
+    if (!reopened.toInstall("F", "A").equals(manager.toInstall("F", "A")))
+      fail("Packages to install are different");
+
+    try {
+      reopened.getInstallationOrder("Z");
+      fail("Should receive package not found error now");
+    } catch (PackageNotFoundException e) {
+      // expected
+    }
+
+    // names are looked up in the mapped UTF-8 bytes
+    Graph unicode = new Graph();
+    String[] names = {"caf\u00e9", "\u65e5\u672c", "box\ud83d\udce6", "a\ud800b", "caf"};
+    for (String name : names)
+      unicode.addEdge(name, names[0]);
+    GraphSnapshot.write(unicode, snapshot.getPath());
+    GraphSnapshot mapped = GraphSnapshot.open(snapshot.getPath());
+    for (String name : names) {
+      // an unpaired surrogate is written as '?'
+      if (mapped.idOf(name) < 0
+        || !mapped.nameOf(mapped.idOf(name)).equals(name.replace('\ud800', '?')))
+        fail("Name wasn't found " + name);
+    }
+    if (mapped.idOf("\u65e5") >= 0 || mapped.idOf("caf\u00e9s") >= 0 || mapped.idOf("box") >= 0)
+      fail("Missing name was found");
+
+    // rewriting the file replaces it, so the open mapping still reads the old snapshot
+    manager.writeSnapshot(snapshot.getPath());
+    if (mapped.idOf("caf\u00e9") < 0 || mapped.getAllVertices().size() != names.length)
+      fail("Mapped snapshot changed under its reader");
+    if (!GraphSnapshot.open(snapshot.getPath()).getAllVertices().equals(manager.getAllPackages()))
+      fail("Snapshot wasn't replaced");
+    GraphSnapshot.write(unicode, snapshot.getPath());
+
+    // a truncated file is not a snapshot
+    File truncated = File.createTempFile("truncated", ".snapshot");
+    truncated.deleteOnExit();
+    byte[] bytes = Files.readAllBytes(snapshot.toPath());
+    Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+    try {
+      GraphSnapshot.open(truncated.getPath());
+      fail("Truncated snapshot was opened");
+    } catch (IOException e) {
+    }
+  }
+
+  /**
+   * Direct and transitive dependents come from the reverse index
+   */
+  @Test
+  public void test010_dependents() throws Exception {
+
+    manager.constructGraph("test.json");
+
+    List<String> actualList = manager.getDependents("B");
+    if (actualList.size() != 2 || !actualList.contains("A") || !actualList.contains("E"))
+      fail("Invalid dependents " + actualList);
+
+    actualList = manager.getAllDependents("D");
+    Set<String> expected = new HashSet<String>();
+    expected.add("B");
+    expected.add("A");
+    expected.add("E");
+    expected.add("F");
+    expected.add("I");
+    if (actualList.size() != expected.size() || !expected.containsAll(actualList))
+      fail("Invalid transitive dependents " + actualList);
+    if (!actualList.get(0).equals("B"))
+      fail("Nearest dependents should come first " + actualList);
+
+    if (!manager.getAllDependents("F").isEmpty())
+      fail("F has no dependents");
+  }
+
+  /**
+   * Cached installation orders are invalidated for the changed package and its dependents only
+   */
+  @Test
+  public void test011_cacheInvalidation() throws Exception {
+
+    Graph graph = new Graph();
+    manager = new PackageManager(graph, 2);
+    manager.constructGraph("test.json");
+
+    manager.getInstallationOrder("A");
+    manager.getInstallationOrder("I");
+    manager.getInstallationOrder("F"); // evicts A
+
+    List<String> actualList = manager.getInstallationOrder("F");
+    actualList.clear(); // callers get their own copy
+
+    graph.addEdge("C", "X");
+    if (!manager.getInstallationOrder("F").contains("X") || !manager.getInstallationOrder("A").contains("X"))
+      fail("Dependents of C should see the new dependency");
+
+    graph.removeVertex("X");
+    graph.addEdge("G", "Y");
+    if (manager.getInstallationOrder("A").contains("X") || !manager.getInstallationOrder("I").contains("Y"))
+      fail("Stale installation order");
+  }
+
+  /**
+   * All cycles are reported at once and can be installed as groups
+   */
+  @Test
+  public void test012_cycleGroups() throws Exception {
+
+    Graph graph = new Graph();
+    graph.addEdge("A", "B");
+    graph.addEdge("B", "C");
+    graph.addEdge("C", "A"); // 3-cycle
+    graph.addEdge("C", "D");
+    graph.addEdge("D", "E");
+    graph.addEdge("E", "D"); // 2-cycle
+    graph.addEdge("E", "F");
+    graph.addEdge("G", "G"); // self-loop
+    manager = new PackageManager(graph);
+
+    try {
+      manager.getInstallationOrder("A");
+      fail("Should receive cyclic error now");
+    } catch (CycleException e) {
+      if (e.getCycles().size() != 2)
+        fail("Both reachable cycles should be reported " + e.getCycles());
+    }
+
+    if (manager.getCycles().size() != 3)
+      fail("Expected three cycles " + manager.getCycles());
+
+    List<List<String>> groups = manager.getInstallationGroups("A");
+    if (groups.size() != 3 || groups.get(0).size() != 1 || !groups.get(0).get(0).equals("F")
+      || groups.get(1).size() != 2 || groups.get(2).size() != 3)
+      fail("Invalid installation groups " + groups);
+
+    if (manager.getInstallationGroupsForAllPackages().size() != 4)
+      fail("Invalid installation groups for all packages");
+  }
+
+  /**
+   * Installation layers only depend on earlier layers and can be installed in parallel
+   */
+  @Test
+  public void test013_installationLayers() throws Exception {
+
+    manager.constructGraph("test.json");
+
+    List<List<String>> layers = manager.getInstallationLayers("F");
+    if (layers.size() != 4 || layers.get(0).size() != 3 || !layers.get(3).equals(Arrays.asList("F")))
+      fail("Invalid installation layers " + layers);
+
+    layers = manager.getInstallationLayersForAllPackages();
+    final Map<String, List<String>> orders = new HashMap<String, List<String>>();
+    for (String pkg : manager.getAllPackages())
+      orders.put(pkg, manager.getInstallationOrder(pkg));
+
+    final Set<String> installed = Collections.synchronizedSet(new HashSet<String>());
+    try (ParallelInstaller installer = new ParallelInstaller(4)) {
+      installer.install(layers, pkg -> {
+        for (String dep : orders.get(pkg)) {
+          if (!dep.equals(pkg) && !installed.contains(dep))
+            throw new IllegalStateException(dep + " not installed before " + pkg);
+        }
+        installed.add(pkg);
+      });
+    }
+
+    if (!installed.equals(manager.getAllPackages()))
+      fail("Not all packages were installed");
+  }
+
+  /**
+   * Refreshing publishes a new immutable graph in one swap; lists already returned stay valid and
+   * queries afterwards see the new graph
+   */
+  @Test
+  public void test014_refresh() throws Exception {
+
+    manager.constructGraph(jsonFilePathS);
+    List<String> before = manager.getInstallationOrder("A");
+
+    manager.refresh("test.json");
+
+    if (!(manager.getGraph() instanceof ImmutableGraph))
+      fail("Refreshed graph isn't immutable");
+    if (!before.equals(Arrays.asList("D", "B", "C", "A")) && !before.equals(Arrays.asList("D", "C", "B", "A")))
+      fail("Previous installation order changed " + before);
+    if (!manager.getAllPackages().contains("G") || manager.getGraph().order() != 8)
+      fail("Refreshed graph is different");
+
+    List<String> order = manager.getInstallationOrder("A");
+    if (!order.equals(Arrays.asList("C", "D", "B", "A")) && !order.equals(Arrays.asList("D", "C", "B", "A")))
+      fail("Invalid installation order " + order);
+    if (!manager.getDependents("B").containsAll(Arrays.asList("A", "E")))
+      fail("Invalid dependents");
+
+    try {
+      manager.getGraph().addEdge("A", "F");
+      fail("Immutable graph was changed");
+    } catch (UnsupportedOperationException e) {
+    }
+
+    try {
+      manager.refresh("missing.json");
+      fail("Missing file wasn't reported");
+    } catch (FileNotFoundException e) {
+    }
+    if (!manager.getAllPackages().contains("F"))
+      fail("Failed refresh replaced the graph");
+  }
+
+  /**
+   * A delta adds, changes and removes packages and drops dependency edges that are no longer listed
+   */
+  @Test
+  public void test015_applyDelta() throws Exception {
+
+    manager.constructGraph(jsonFilePathS); // A->[B,C], B->[D], C->[D]
+    manager.getInstallationOrder("A");
+
+    String delta = "{\"added\": [{\"name\": \"X\", \"dependencies\": [\"A\", \"E\"]}],"
+      + " \"changed\": [{\"name\": \"A\", \"dependencies\": [\"C\", \"E\"]}],"
+      + " \"removed\": [{\"name\": \"B\"}]}";
+    manager.applyDelta(new StringReader(delta));
+
+    if (manager.getAllPackages().contains("B") || manager.getAllPackages().size() != 5)
+      fail("Invalid packages " + manager.getAllPackages());
+    if (manager.getGraph().size() != 5)
+      fail("Invalid number of dependencies " + manager.getGraph().size());
+
+    List<String> order = manager.getInstallationOrder("A");
+    if (order.size() != 4 || order.indexOf("D") > order.indexOf("C") || !order.contains("E")
+      || !order.get(3).equals("A"))
+      fail("Invalid installation order " + order);
+    if (manager.getInstallationOrder("X").size() != 5)
+      fail("Invalid installation order " + manager.getInstallationOrder("X"));
+
+    // the same delta shape against a published immutable graph
+    manager.refresh(jsonFilePathS);
+    manager.applyDelta(new StringReader("{\"changed\": [{\"name\": \"C\", \"dependencies\": []}]}"));
+
+    if (!(manager.getGraph() instanceof ImmutableGraph) || manager.getGraph().size() != 3)
+      fail("Delta wasn't published");
+    if (!manager.getInstallationOrder("C").equals(Arrays.asList("C")))
+      fail("Dropped dependency is still installed");
+
+    // concurrent deltas on a published graph all land, and a broken one changes nothing
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> tasks = new ArrayList<Future<?>>();
+      for (int i = 0; i < 40; i++) {
+        final String added = "{\"added\": [{\"name\": \"Y" + i + "\", \"dependencies\": [\"A\"]}]}";
+        tasks.add(pool.submit(() -> {
+          manager.applyDelta(new StringReader(added));
+          return null;
+        }));
+      }
+      for (Future<?> task : tasks)
+        task.get(60, TimeUnit.SECONDS);
+    } finally {
+      pool.shutdown();
+    }
+    try {
+      manager.applyDelta(new StringReader("{\"removed\": [{\"name\": \"A\"}], \"added\": ["));
+      fail("Broken delta wasn't reported");
+    } catch (ParseException e) {
+    }
+    manager.applyDelta(new StringReader("{\"added\": [{\"name\": \"Z\"}]}"));
+    if (manager.getAllPackages().size() != 45 || manager.getGraph().size() != 43
+      || !manager.getDependents("A").contains("Y39"))
+      fail("Concurrent deltas were lost " + manager.getAllPackages());
+  }
+
+  /**
+   * Batch toInstall stops at installed packages and lists shared dependencies once
+   */
+  @Test
+  public void test016_toInstallBatch() throws Exception {
+
+    manager.constructGraph("test.json");
+
+    List<String> order = manager.toInstall(new HashSet<String>(Arrays.asList("F", "I")),
+      new HashSet<String>(Arrays.asList("B", "C", "D")));
+    if (order.size() != 5 || !new HashSet<String>(order).equals(
+      new HashSet<String>(Arrays.asList("A", "E", "G", "F", "I"))))
+      fail("Invalid packages to install " + order);
+    if (order.indexOf("A") > order.indexOf("F") || order.indexOf("E") > order.indexOf("I"))
+      fail("Invalid installation order " + order);
+
+    if (!manager.toInstall(Collections.singleton("A"), new HashSet<String>(Arrays.asList("A", "B")))
+      .isEmpty())
+      fail("Installed package is installed again");
+
+    if (!manager.toInstall("F", "E").equals(Arrays.asList("A", "G", "F")))
+      fail("Invalid packages to install " + manager.toInstall("F", "E"));
+
+    try {
+      manager.toInstall(Collections.singleton("A"), Collections.singleton("Z"));
+      fail("Missing package wasn't reported");
+    } catch (PackageNotFoundException e) {
+    }
+  }
+
+  /**
+   * Dependency counts of all packages in one pass, top-K ranking and estimates
+   */
+  @Test
+  public void test017_dependencyCounts() throws Exception {
+
+    manager.constructGraph("test.json");
+
+    Map<String, Integer> counts = manager.getDependencyCounts();
+    if (counts.get("F") != 6 || counts.get("I") != 5 || counts.get("A") != 3 || counts.get("C") != 0)
+      fail("Invalid dependency counts " + counts);
+    if (!manager.getPackagesWithMostDependencies(2).equals(Arrays.asList("F", "I")))
+      fail("Invalid ranking " + manager.getPackagesWithMostDependencies(2));
+    if (!manager.getPackageWithMaxDependencies().equals("F"))
+      fail("Invalid max dependencies");
+
+    // diamonds share their dependencies, a chain of 5000 counts them exactly once
+    Graph graph = new Graph();
+    int length = 5000;
+    for (int i = 0; i < length - 1; i++) {
+      graph.addEdge("P" + i, "P" + (i + 1));
+      graph.addEdge("P" + i, "Q" + i);
+      graph.addEdge("Q" + i, "P" + (i + 1));
+    }
+    manager = new PackageManager(graph);
+
+    int expected = 2 * (length - 1);
+    if (manager.getDependencyCounts().get("P0") != expected)
+      fail("Invalid dependency count " + manager.getDependencyCounts().get("P0"));
+    int estimate = manager.estimateDependencyCounts(DependencyCounter.DEFAULT_PRECISION).get("P0");
+    if (Math.abs(estimate - expected) > expected / 10)
+      fail("Estimate is too far off " + estimate);
+
+    manager = new PackageManager();
+    manager.constructGraph(jsonFilePathC);
+    if (manager.getDependencyCounts().get("A") != 1)
+      fail("Invalid dependency count in a cycle");
+    try {
+      manager.getPackageWithMaxDependencies();
+      fail("Cycle wasn't detected");
+    } catch (CycleException e) {
+    }
+  }
+
+  /**
+   * Loads, queries, traversals and cache lookups are recorded to the metrics
+   */
+  @Test
+  public void test018_metrics() throws Exception {
+
+    InMemoryMetrics metrics = new InMemoryMetrics();
+    manager.setMetrics(metrics);
+
+    manager.constructGraph("test.json");
+    manager.getInstallationOrder("F");
+    manager.getInstallationOrder("F");
+    manager.toInstall("F", "E");
+    manager.getInstallationOrderForAllPackages();
+
+    if (metrics.getLoadedPackages() != 5 || metrics.getLoadedDependencies() != 9)
+      fail("Invalid load counters\n" + metrics);
+    if (metrics.getLatency("constructGraph").getCount() != 1
+      || metrics.getLatency("getInstallationOrder").getCount() != 2
+      || metrics.getLatency("toInstall").getCount() != 1
+      || metrics.getLatency("getInstallationOrderForAllPackages").getCount() != 1)
+      fail("Invalid latency counts\n" + metrics);
+    if (metrics.getCacheHits() < 1 || metrics.getCacheMisses() < 1)
+      fail("Invalid cache counters\n" + metrics);
+    if (metrics.getTraversals() < 3 || metrics.getVisitedVertices() < 8 + 7)
+      fail("Invalid traversal counters\n" + metrics);
+
+    InMemoryMetrics.Histogram latency = metrics.getLatency("getInstallationOrder");
+    if (latency.getPercentileNanos(50) > latency.getPercentileNanos(100)
+      || latency.getPercentileNanos(100) != latency.getMaxNanos())
+      fail("Invalid percentiles " + latency);
+
+    metrics.reset();
+    if (metrics.getLatency("constructGraph") != null || metrics.getCacheHitRate() != 0)
+      fail("Metrics weren't reset");
+
+    // without a cache the installed closures are traversed too, but the query is recorded once
+    PackageManager uncached = new PackageManager(new Graph(), 0);
+    uncached.setMetrics(metrics);
+    uncached.constructGraph("test.json");
+    List<String> toInstall = new ArrayList<String>();
+    uncached.toInstall("F", Arrays.asList("A", "E"), toInstall);
+    if (!toInstall.equals(Arrays.asList("G", "F")) || metrics.getTraversals() != 1
+      || metrics.getVisitedVertices() != 2 || metrics.getFollowedEdges() != 7)
+      fail("Invalid traversal counters\n" + metrics);
+  }
+
+  /**
+   * dependsOn answers from the reachability index and follows added and removed dependencies
+   */
+  @Test
+  public void test019_dependsOn() throws Exception {
+
+    manager.constructGraph("test.json");
+
+    if (!manager.dependsOn("F", "D") || !manager.dependsOn("I", "B") || manager.dependsOn("A", "E")
+      || manager.dependsOn("D", "A") || manager.dependsOn("A", "A"))
+      fail("Invalid dependsOn");
+
+    GraphADT graph = manager.getGraph();
+    graph.addEdge("D", "X");
+    graph.addEdge("G", "C");
+    if (!manager.dependsOn("F", "X") || !manager.dependsOn("I", "C") || manager.dependsOn("G", "X"))
+      fail("Added dependencies weren't applied");
+
+    graph.addEdge("X", "A"); // closes the cycle A -> B -> D -> X -> A
+    if (!manager.dependsOn("A", "A") || !manager.dependsOn("D", "B"))
+      fail("Cycle wasn't applied");
+
+    graph.removeEdge("B", "D");
+    graph.removeVertex("G");
+    if (manager.dependsOn("A", "X") || manager.dependsOn("A", "A") || !manager.dependsOn("I", "C"))
+      fail("Removed dependencies weren't applied");
+
+    // the interval labels of a large graph answer the same as the installation orders
+    Random random = new Random(7);
+    Graph large = new Graph();
+    for (int i = 0; i < 600; i++) {
+      large.addVertex("P" + i);
+      for (int j = 0; j < 2 && i > 0; j++)
+        large.addEdge("P" + i, "P" + random.nextInt(i));
+    }
+    ReachabilityIndex index = new ReachabilityIndex(large, 16);
+    if (index.usesBitsets())
+      fail("Interval labels weren't used");
+    manager = new PackageManager(large);
+    for (int q = 0; q < 2000; q++) {
+      String a = "P" + random.nextInt(600);
+      String b = "P" + random.nextInt(600);
+      boolean expected = !a.equals(b) && manager.getInstallationOrder(a).contains(b);
+      if (index.dependsOn(a, b) != expected || manager.dependsOn(a, b) != expected)
+        fail("Invalid dependsOn " + a + " " + b);
+    }
+  }
+
+  /**
+   * The parallel engine returns the same installation orders and counts as the sequential queries
+   */
+  @Test
+  public void test020_parallelClosures() throws Exception {
+
+    Random random = new Random(11);
+    Graph graph = new Graph();
+    for (int i = 0; i < 2000; i++) {
+      graph.addVertex("P" + i);
+      for (int j = 0; j < 3 && i > 0; j++)
+        graph.addEdge("P" + i, "P" + random.nextInt(i));
+    }
+    PackageManager sequential = new PackageManager(graph, 0);
+    Map<String, Integer> counts = sequential.getDependencyCounts();
+    Map<String, List<String>> orders = sequential.getInstallationOrders(graph.getAllVertices());
+
+    manager = new PackageManager(graph);
+    try {
+      manager.setParallelism(4);
+      if (manager.getParallelism() != 4)
+        fail("Parallelism wasn't set");
+      if (!manager.getDependencyCounts().equals(counts))
+        fail("Parallel dependency counts are different");
+
+      // workers append the orders other workers completed, which gives the same orders
+      Map<String, List<String>> parallel = manager.getInstallationOrders(manager.getAllPackages());
+      if (!parallel.equals(orders))
+        fail("Parallel installation orders are different");
+      if (!manager.getInstallationOrders(manager.getAllPackages()).equals(orders)
+        || !manager.getInstallationOrder("P1999").equals(orders.get("P1999")))
+        fail("Cached parallel installation orders are different");
+
+      PackageManager indexed = new PackageManager(ImmutableGraph.copyOf(graph));
+      indexed.setParallelism(4);
+      try {
+        if (!indexed.getInstallationOrders(graph.getAllVertices()).equals(orders))
+          fail("Parallel installation orders by ID are different");
+      } finally {
+        indexed.close();
+      }
+      for (String pkg : manager.getAllPackages()) {
+        List<String> order = parallel.get(pkg);
+        if (!new HashSet<String>(order).equals(new HashSet<String>(orders.get(pkg)))
+          || order.size() != orders.get(pkg).size() || !order.get(order.size() - 1).equals(pkg))
+          fail("Invalid parallel installation order of " + pkg);
+        for (int i = 1; i < order.size(); i++) {
+          List<String> dependencies = graph.getAdjacentVerticesOf(order.get(i));
+          for (int j = 0; dependencies != null && j < dependencies.size(); j++) {
+            if (order.indexOf(dependencies.get(j)) > i)
+              fail(dependencies.get(j) + " installed after " + order.get(i));
+          }
+        }
+      }
+    } finally {
+      manager.close();
+    }
+
+    // a closed engine resolves on the calling thread
+    ParallelClosureEngine closed = new ParallelClosureEngine(2);
+    closed.close();
+    if (!closed.installationOrders(graph, graph.getAllVertices()).equals(orders)
+      || !closed.count(graph).equals(counts))
+      fail("Closed engine gave different results");
+
+    // replacing or closing the pool never fails queries that are running meanwhile
+    final PackageManager shared = new PackageManager(ImmutableGraph.copyOf(graph));
+    final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+    ExecutorService clients = Executors.newFixedThreadPool(2);
+    try {
+      for (int i = 0; i < 2; i++) {
+        clients.execute(() -> {
+          for (int j = 0; j < 50; j++) {
+            try {
+              if (!shared.getInstallationOrders(Arrays.asList("P1999", "P1000")).get("P1999")
+                .equals(orders.get("P1999")) || !shared.getDependencyCounts().equals(counts))
+                failures.add(new IllegalStateException("Different results"));
+            } catch (Exception e) {
+              failures.add(e);
+            }
+          }
+        });
+      }
+      for (int i = 0; i < 50; i++) {
+        shared.setParallelism(2 + i % 2);
+        if (i % 5 == 0)
+          shared.close();
+      }
+    } finally {
+      clients.shutdown();
+      clients.awaitTermination(1, TimeUnit.MINUTES);
+      shared.close();
+    }
+    if (!failures.isEmpty())
+      fail("Queries failed while the pool was replaced " + failures);
+
+    manager = new PackageManager();
+    manager.constructGraph(jsonFilePathC);
+    manager.setParallelism(2);
+    try {
+      manager.getInstallationOrders(Arrays.asList("A"));
+      fail("Cycle wasn't detected");
+    } catch (CycleException e) {
+    } finally {
+      manager.close();
+    }
+  }
+
+  /**
+   * Versions and ranges parse and compare; the resolver backtracks to a consistent version set and
+   * reports unsatisfiable requirements
+   */
+  @Test
+  public void test021_resolveVersions() throws Exception {
+
+    if (!Version.parse("2.1").equals(Version.parse("2.1.0"))
+      || Version.parse("1.10").compareTo(Version.parse("1.9")) <= 0)
+      fail("Invalid version order");
+    if (!VersionRange.parse("^1.2").contains(Version.parse("1.9"))
+      || VersionRange.parse("^1.2").contains(Version.parse("2.0"))
+      || !VersionRange.parse("~1.2").contains(Version.parse("1.2.5"))
+      || VersionRange.parse("~1.2").contains(Version.parse("1.3"))
+      || !VersionRange.parse(">=1,<2 || 3").contains(Version.parse("3.0"))
+      || VersionRange.parse(">=1,<2 || 3").contains(Version.parse("2.5")))
+      fail("Invalid version ranges");
+    if (!Dependency.parse("B>=2.1,<3").getName().equals("B")
+      || !Dependency.nameOf("D ~1.5").equals("D"))
+      fail("Invalid dependency names");
+
+    try {
+      manager.resolveVersions("A");
+      fail("Resolved without an index");
+    } catch (IllegalStateException e) {
+    }
+
+    // plain package files take dependency names as they are, ranges are only parsed by
+    // constructIndex
+    File plain = File.createTempFile("plain", ".json");
+    plain.deleteOnExit();
+    Files.write(plain.toPath(),
+      "{\"packages\": [{\"name\": \"A\", \"dependencies\": [\"foo=bar\"]}]}".getBytes("UTF-8"));
+    PackageManager unversioned = new PackageManager();
+    unversioned.constructGraph(plain.getPath());
+    unversioned.constructGraph(Arrays.asList(plain.getPath()));
+    if (!unversioned.getAllPackages().equals(new HashSet<String>(Arrays.asList("A", "foo=bar"))))
+      fail("Dependency name was cut at its range " + unversioned.getAllPackages());
+
+    manager.constructIndex("versions.json");
+    if (manager.getAllPackages().size() != 6 || !manager.getInstallationOrder("A").contains("D"))
+      fail("Invalid graph of versioned packages");
+
+    // A 2.0 with B 2.1 needs D 2, which no C allows: back to B 2.0
+    Map<String, Version> solution = manager.resolveVersions("A");
+    if (!solution.toString().equals("{A=2.0, B=2.0, C=1.1, D=1.5}"))
+      fail("Invalid resolution " + solution);
+
+    solution = manager.resolveVersions("A", "D>=2");
+    if (!solution.toString().equals("{A=1.0, B=1.5, D=2.0}"))
+      fail("Invalid resolution " + solution);
+
+    try {
+      manager.resolveVersions("E");
+      fail("Conflict wasn't detected");
+    } catch (ConflictException e) {
+      if (!e.getPackage().equals("B") && !e.getPackage().equals("A") && !e.getPackage().equals("F"))
+        fail("Invalid conflict " + e.getMessage());
+    }
+
+    try {
+      manager.resolveVersions("Z");
+      fail("Missing package wasn't reported");
+    } catch (PackageNotFoundException e) {
+    }
+
+    // conflicts that do not involve the requirements are kept for later calls
+    VersionResolver resolver = new VersionResolver(PackageIndex.load("versions.json"));
+    for (int i = 0; i < 2; i++) {
+      try {
+        resolver.resolve("E");
+        fail("Conflict wasn't detected");
+      } catch (ConflictException e) {
+      }
+      if (resolver.getLearnedConflicts() == 0)
+        fail("No conflict was learned");
+    }
+    solution = resolver.resolve("A", "F");
+    if (!solution.toString().equals("{A=2.0, B=2.0, C=1.1, D=1.5, F=1.0}"))
+      fail("Invalid resolution with learned conflicts " + solution);
+
+    // a conflict found through one that involves the requirements is not kept for later calls
+    PackageIndex changing = new PackageIndex();
+    changing.add(new Package("P0", "1", new String[0]));
+    changing.add(new Package("P1", "1", new String[] {"P0<2"}));
+    changing.add(new Package("P1", "2", new String[] {"P0=1", "P2>=3"}));
+    changing.add(new Package("P2", "1", new String[] {"P0>=2", "P3=2"}));
+    changing.add(new Package("P2", "2", new String[] {"P0!=1", "P1!=2"}));
+    changing.add(new Package("P2", "3", new String[] {"P0=2"}));
+    changing.add(new Package("P3", "1", new String[] {"P0>=1"}));
+    changing.add(new Package("P3", "2", new String[] {"P1!=2"}));
+    changing.add(new Package("P3", "3", new String[] {"P2=1"}));
+    resolver = new VersionResolver(changing);
+    try {
+      resolver.resolve("P2", "P3");
+      fail("Conflict wasn't detected");
+    } catch (ConflictException e) {
+    }
+    solution = resolver.resolve("P3<2");
+    if (!solution.toString().equals("{P0=1, P3=1}"))
+      fail("Invalid resolution after a conflict of other requirements " + solution);
+
+    // a version that rules itself out is rejected without blaming any other package
+    PackageIndex selfExcluding = new PackageIndex();
+    selfExcluding.add(new Package("A", "1", new String[] {"B"}));
+    selfExcluding.add(new Package("B", "1", new String[] {"B<1"}));
+    resolver = new VersionResolver(selfExcluding);
+    for (int i = 0; i < 2; i++) {
+      try {
+        resolver.resolve("A");
+        fail("Self-excluding version was chosen");
+      } catch (ConflictException e) {
+        // the second call rejects A 1 by the learned conflict
+        if (i == 0 && !e.getMessage().contains("B 1 requires B<1"))
+          fail("Invalid conflict " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Installation orders written into caller-supplied buffers match the cached installation order
+   */
+  @Test
+  public void test022_bufferedInstallationOrder() throws Exception {
+
+    manager.constructGraph("test.json");
+    List<String> buffer = new ArrayList<String>();
+    for (String pkg : manager.getAllPackages()) {
+      manager.getInstallationOrder(pkg, buffer);
+      if (!buffer.equals(manager.getInstallationOrder(pkg)))
+        fail("Invalid buffered installation order " + buffer);
+    }
+    try {
+      manager.getInstallationOrder("A", new int[4]);
+      fail("Vertex IDs of a graph without IDs");
+    } catch (IllegalStateException e) {
+    }
+
+    CompactGraph graph = new CompactGraph();
+    manager = new PackageManager(graph);
+    manager.constructGraph("test.json");
+    int[] ids = new int[2];
+    for (String pkg : manager.getAllPackages()) {
+      List<String> expected = manager.getInstallationOrder(pkg);
+      int size = manager.getInstallationOrder(pkg, ids);
+      if (size > ids.length)
+        ids = new int[size];
+      if (manager.getInstallationOrder(pkg, ids) != expected.size())
+        fail("Invalid installation order size of " + pkg);
+      for (int i = 0; i < size; i++) {
+        if (!graph.nameOf(ids[i]).equals(expected.get(i)))
+          fail("Invalid installation order IDs of " + pkg);
+      }
+
+      // a visitor may run queries itself
+      final List<String> visited = new ArrayList<String>();
+      manager.visitInstallationOrder(pkg, new PackageVisitor() {
+        public void visit(String dep) {
+          try {
+            List<String> order = new ArrayList<String>();
+            manager.getInstallationOrder(dep, order);
+            if (order.get(order.size() - 1).equals(dep))
+              visited.add(dep);
+          } catch (Exception e) {
+            fail(e.getMessage());
+          }
+        }
+      });
+      if (!visited.equals(expected))
+        fail("Invalid visited installation order " + visited);
+    }
+
+    manager.constructGraph(jsonFilePathC);
+    try {
+      manager.getInstallationOrder("A", ids);
+      fail("Cycle wasn't detected");
+    } catch (CycleException e) {
+    }
+    try {
+      manager.getInstallationOrder("Z", buffer);
+      fail("Missing package wasn't reported");
+    } catch (PackageNotFoundException e) {
+    }
+  }
+
+  /**
+   * Many files and glob patterns load in parallel into the same graph as sequential loads
+   */
+  @Test
+  public void test023_constructGraphShards() throws Exception {
+
+    File shards = Files.createTempDirectory("shards").toFile();
+    PackageManager sharded = new PackageManager();
+    try {
+      String[] files = {"test.json", jsonFilePathS, jsonFilePathV};
+      for (int i = 0; i < files.length; i++)
+        Files.copy(Paths.get(files[i]), new File(shards, "shard" + i + ".json").toPath());
+      File bad = new File(shards, "bad.txt");
+      Files.write(bad.toPath(), "{\"packages\": [".getBytes("UTF-8"));
+
+      for (String file : files)
+        manager.constructGraph(file);
+
+      sharded.setParallelism(2);
+      sharded.constructGraph(Arrays.asList(shards.getPath() + "/shard*.json", files[0]));
+      GraphADT expected = manager.getGraph();
+      GraphADT actual = sharded.getGraph();
+      if (!new ArrayList<String>(actual.getAllVertices()).equals(
+        new ArrayList<String>(expected.getAllVertices())) || actual.size() != expected.size())
+        fail("Doesn't contain all as expected");
+      for (String pkg : expected.getAllVertices()) {
+        if (!String.valueOf(actual.getAdjacentVerticesOf(pkg))
+          .equals(String.valueOf(expected.getAdjacentVerticesOf(pkg))))
+          fail("Invalid dependencies of " + pkg);
+      }
+
+      try {
+        sharded.constructGraph(Arrays.asList(shards.getPath() + "/*.none"));
+        fail("Pattern without files wasn't reported");
+      } catch (FileNotFoundException e) {
+      }
+      String before = sharded.getAllPackages() + " " + sharded.getGraph().size();
+      try {
+        sharded.constructGraph(Arrays.asList(jsonFilePathC, bad.getPath()));
+        fail("Invalid json wasn't reported");
+      } catch (ParseException e) {
+      }
+      if (!before.equals(sharded.getAllPackages() + " " + sharded.getGraph().size()))
+        fail("Graph was changed by a failed load");
+    } finally {
+      sharded.close();
+      for (File file : shards.listFiles())
+        file.delete();
+      shards.delete();
+    }
+  }
+
+  /**
+   * The resolver server answers queries of many concurrent clients and reloads its index
+   */
+  @Test
+  public void test024_resolverServer() throws Exception {
+
+    try (ResolverServer server = new ResolverServer(0, Arrays.asList(jsonFilePathS))) {
+      server.start();
+      final int port = server.getPort();
+
+      final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+      List<Thread> clients = new ArrayList<Thread>();
+      for (int i = 0; i < 20; i++) {
+        Thread client = new Thread(() -> {
+          try (Socket socket = new Socket("localhost", port);
+            BufferedReader in =
+              new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+            for (int j = 0; j < 10; j++) {
+              out.println("ORDER A");
+              String response = in.readLine();
+              if (!response.equals("OK D B C A") && !response.equals("OK D C B A"))
+                failures.add(response);
+            }
+            out.println("TOINSTALL A B");
+            if (!in.readLine().equals("OK C A"))
+              failures.add("TOINSTALL");
+            out.println("QUIT");
+          } catch (IOException e) {
+            failures.add(e.toString());
+          }
+        });
+        client.start();
+        clients.add(client);
+      }
+      for (Thread client : clients)
+        client.join();
+      if (!failures.isEmpty())
+        fail("Invalid responses " + failures);
+
+      if (!server.handle("ORDER Z").equals("ERR PackageNotFoundException Z")
+        || !server.handle("ALL").startsWith("OK D ")
+        || !server.handle("NONSENSE").startsWith("ERR BadRequest"))
+        fail("Invalid responses");
+
+      // clients may only reload the files the server was started with
+      if (!server.handle("RELOAD " + jsonFilePathC).startsWith("ERR BadRequest")
+        || !server.handle("RELOAD").startsWith("OK ")
+        || !server.handle("ORDER A").startsWith("OK D "))
+        fail("Client replaced the index");
+    }
+
+    try (ResolverServer server = new ResolverServer(0, Arrays.asList(jsonFilePathS), true)) {
+      if (!server.handle("RELOAD " + jsonFilePathC).equals("OK 2")
+        || !server.handle("ORDER A").startsWith("ERR CycleException"))
+        fail("Index wasn't reloaded");
+      if (!server.handle("RELOAD missing.json").startsWith("ERR FileNotFoundException")
+        || !server.handle("RELOAD").equals("OK 2"))
+        fail("Failed reload replaced the index");
+    }
+  }
+
+  /**
+   * Batch queries resolved in parallel come out in query order with the results of single calls
+   */
+  @Test
+  public void test025_batchResolver() throws Exception {
+
+    manager.constructGraph("test.json");
+    List<String> packages = new ArrayList<String>(manager.getAllPackages());
+    Random random = new Random(25);
+    StringBuilder queries = new StringBuilder();
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 3 * BatchResolver.CHUNK_SIZE + 17; i++) {
+      String pkg = packages.get(random.nextInt(packages.size()));
+      String installed = random.nextBoolean() ? "" : packages.get(random.nextInt(packages.size()));
+      queries.append(pkg).append(' ').append(installed).append('\n');
+      List<String> order =
+        installed.isEmpty() ? manager.getInstallationOrder(pkg) : manager.toInstall(pkg, installed);
+      expected.add("OK" + (order.isEmpty() ? "" : " " + String.join(" ", order)));
+    }
+    queries.append("\nZ A\n");
+    expected.add("");
+    expected.add("ERR PackageNotFoundException Z A");
+
+    // every installation order, also of the installed packages, is cached by now: one hit a query
+    InMemoryMetrics metrics = new InMemoryMetrics();
+    manager.setMetrics(metrics);
+    StringWriter results = new StringWriter();
+    long resolved = new BatchResolver(manager, 3).resolve(new StringReader(queries.toString()),
+      results);
+    if (resolved != expected.size()
+      || !Arrays.asList(results.toString().split("\n", -1)).subList(0, expected.size())
+        .equals(expected))
+      fail("Invalid batch results");
+    if (metrics.getCacheMisses() != 0 || metrics.getCacheHits() != expected.size() - 2)
+      fail("Batch didn't use the installation order cache\n" + metrics);
+  }
+
+  /**
+   * An off-heap graph answers the queries of the default graph
+   */
+  @Test
+  public void test026_offHeapGraph() throws Exception {
+
+    manager.constructGraph("test.json");
+    PackageManager offHeap = new PackageManager(new OffHeapGraph());
+    offHeap.constructGraph("test.json");
+
+    if (!offHeap.getAllPackages().equals(manager.getAllPackages()))
+      fail("Doesn't contain all as expected");
+    int[] ids = new int[offHeap.getAllPackages().size()];
+    for (String pkg : manager.getAllPackages()) {
+      List<String> expected = manager.getInstallationOrder(pkg);
+      if (!offHeap.getInstallationOrder(pkg).equals(expected)
+        || offHeap.getInstallationOrder(pkg, ids) != expected.size())
+        fail("Invalid installation order of " + pkg);
+    }
+    if (!offHeap.getInstallationOrderForAllPackages()
+      .equals(manager.getInstallationOrderForAllPackages()))
+      fail("Invalid installation order for all packages");
+  }
+
+  /**
+   * A delta on a published graph only adds its own changes on top of it: a hub that gains
+   * dependents is not copied, older versions stay as they were, and the graph is packed again only
+   * once the changes pile up
+   */
+  @Test
+  public void test027_deltaCost() throws Exception {
+
+    CompactGraph graph = new CompactGraph();
+    for (int i = 0; i < 5000; i++) {
+      graph.addEdge("P" + i, "H");
+      graph.addEdge("P" + i, "P" + (i / 2));
+    }
+    manager.publish(ImmutableGraph.copyOf(graph));
+    ImmutableGraph first = (ImmutableGraph) manager.getGraph();
+    PackageManager reference = new PackageManager(graph);
+
+    Random random = new Random(27);
+    ImmutableGraph middle = null;
+    int packs = 0;
+    for (int d = 0; d < 300; d++) {
+      List<String> packages = new ArrayList<String>(reference.getAllPackages());
+      packages.remove("H");
+      String changed = packages.get(random.nextInt(packages.size()));
+      String removed = packages.get(random.nextInt(packages.size()));
+      String delta = "{\"added\": [{\"name\": \"N" + d + "\", \"dependencies\": [\"H\", \""
+        + packages.get(random.nextInt(packages.size())) + "\"]}],"
+        + " \"changed\": [{\"name\": \"" + changed + "\", \"dependencies\": ["
+        + (random.nextBoolean() ? "\"H\", " : "") + "\"" + changed + "\", \""
+        + packages.get(random.nextInt(packages.size())) + "\"]}],"
+        + " \"removed\": [{\"name\": \"" + removed + "\"}]}";
+
+      long before = ((ImmutableGraph) manager.getGraph()).layerWeight();
+      manager.applyDelta(new StringReader(delta));
+      reference.applyDelta(new StringReader(delta));
+
+      ImmutableGraph published = (ImmutableGraph) manager.getGraph();
+      if (published.layerWeight() == 0)
+        packs++;
+      else if (published.layerWeight() - before > 50)
+        fail("Delta " + d + " added " + (published.layerWeight() - before) + " entries");
+      if (d == 150)
+        middle = published;
+
+      if (d % 25 == 0 || d == 299) {
+        GraphADT expected = reference.getGraph();
+        if (published.order() != expected.order() || published.size() != expected.size()
+          || !published.getAllVertices().equals(expected.getAllVertices()))
+          fail("Invalid graph after delta " + d);
+        for (String pkg : expected.getAllVertices()) {
+          int id = published.idOf(pkg);
+          List<String> dependencies = published.getAdjacentVerticesOf(pkg);
+          if (!new HashSet<String>(dependencies)
+            .equals(new HashSet<String>(expected.getAdjacentVerticesOf(pkg)))
+            || !new HashSet<String>(published.getIncomingVerticesOf(pkg)).equals(
+              new HashSet<String>(((BidirectionalGraph) expected).getIncomingVerticesOf(pkg)))
+            || published.outDegree(id) != dependencies.size() || !pkg.equals(published.nameOf(id)))
+            fail("Invalid edges of " + pkg + " after delta " + d);
+          for (int i = 0; i < dependencies.size(); i++) {
+            if (!published.nameOf(published.adjacentId(id, i)).equals(dependencies.get(i)))
+              fail("Invalid dependency IDs of " + pkg + " after delta " + d);
+          }
+        }
+      }
+    }
+    if (packs == 0 || packs > 10)
+      fail("Graph was packed " + packs + " times");
+
+    // published versions never change, also when an older one gets another delta
+    if (first.order() != 5001 || first.size() != 10000
+      || first.getIncomingVerticesOf("H").size() != 5000)
+      fail("First version changed");
+    int order = middle.order();
+    PackageManager other = new PackageManager(middle);
+    other.applyDelta(
+      new StringReader("{\"added\": [{\"name\": \"X\", \"dependencies\": [\"H\"]}]}"));
+    if (!other.getDependents("H").contains("X") || middle.order() != order
+      || middle.getAllVertices().contains("X") || manager.getAllPackages().contains("X"))
+      fail("Delta on an older version changed other versions");
+
+    // a delta that cannot be parsed leaves a mutable graph as it was
+    int size = reference.getGraph().size();
+    try {
+      reference
+        .applyDelta(new StringReader("{\"removed\": [{\"name\": \"H\"}], \"added\": ["));
+      fail("Broken delta wasn't reported");
+    } catch (ParseException e) {
+    }
+    if (!reference.getAllPackages().contains("H") || reference.getGraph().size() != size)
+      fail("Broken delta was partly applied");
+  }
+
 }
@@ -0,0 +1,229 @@
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Streaming reader for json package files.
+ *
+ * Uses the event-driven (SAX style) mode of the json-simple parser, so no JSONObject/JSONArray tree
+ * is ever built. Each element of the package array is handed to a PackageHandler as soon as its
+ * closing brace has been tokenized; only the package currently being read is held in memory.
+ *
+ * Expected shape, where unknown keys and values are skipped:
+ * 
+ * <pre>
+ * { "packages": [ { "name": "A", "dependencies": ["B", "C"] }, ... ] }
+ * </pre>
+ * 
+ * A package may also have a "version" and its dependencies version ranges, e.g.
+ * { "name": "A", "version": "1.2", "dependencies": ["B>=2.1,<3"] }.
+ * 
+ * A reader can also dispatch several package arrays of the root object to different handlers, e.g.
+ * the "added", "changed" and "removed" arrays of a delta file.
+ */
+public class PackageStreamReader implements ContentHandler {
+
+  /** Size of the read buffer, in chars. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // container depth: 1 = root object, 2 = package array, 3 = package object, 4 = dependency array
+  private static final int ARRAY_DEPTH = 2;
+  private static final int PACKAGE_DEPTH = 3;
+  private static final int DEPENDENCY_DEPTH = 4;
+
+  private final Map<String, PackageHandler> handlers;
+
+  private int depth;
+  private String rootKey;
+  private PackageHandler handler; // handler of the package array being read
+  private boolean inPackageArray;
+  private String packageKey;
+  private String name;
+  private String version;
+  private List<String> dependencies;
+
+  /**
+   * Instantiates a reader for the package array stored under the given key of the root object.
+   *
+   * @param arrayKey the key of the package array, e.g. "packages"
+   * @param handler receives every package of the array
+   */
+  public PackageStreamReader(String arrayKey, PackageHandler handler) {
+    this(Collections.singletonMap(arrayKey, handler));
+  }
+
+  /**
+   * Instantiates a reader for several package arrays of the root object. Arrays under keys without
+   * a handler are skipped.
+   *
+   * @param handlers the handler of every package array, by key
+   */
+  public PackageStreamReader(Map<String, PackageHandler> handlers) {
+    this.handlers = handlers;
+    this.dependencies = new ArrayList<String>();
+  }
+
+  /**
+   * Reads the "packages" array of a json file.
+   *
+   * @param jsonFilepath the name of json data file with package dependency information
+   * @param handler receives every package
+   * @throws FileNotFoundException if file path is incorrect
+   * @throws IOException if the give file cannot be read
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public static void read(String jsonFilepath, PackageHandler handler)
+    throws FileNotFoundException, IOException, ParseException {
+    read(jsonFilepath, "packages", handler);
+  }
+
+  /**
+   * Reads the package array stored under arrayKey of a json file.
+   *
+   * @param jsonFilepath the name of json data file with package dependency information
+   * @param arrayKey the key of the package array in the root object
+   * @param handler receives every package
+   * @throws FileNotFoundException if file path is incorrect
+   * @throws IOException if the give file cannot be read
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public static void read(String jsonFilepath, String arrayKey, PackageHandler handler)
+    throws FileNotFoundException, IOException, ParseException {
+
+    try (Reader reader = open(jsonFilepath)) {
+      read(reader, arrayKey, handler);
+    }
+  }
+
+  /**
+   * Reads the package array stored under arrayKey from a character stream. The reader is not
+   * closed.
+   *
+   * @param reader the json source
+   * @param arrayKey the key of the package array in the root object
+   * @param handler receives every package
+   * @throws IOException if the reader fails
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public static void read(Reader reader, String arrayKey, PackageHandler handler)
+    throws IOException, ParseException {
+    read(reader, Collections.singletonMap(arrayKey, handler));
+  }
+
+  /**
+   * Reads several package arrays of the root object from a character stream in a single pass. The
+   * packages are handed out in the order they appear in. The reader is not closed.
+   *
+   * @param reader the json source
+   * @param handlers the handler of every package array, by key
+   * @throws IOException if the reader fails
+   * @throws ParseException if the given json cannot be parsed
+   */
+  public static void read(Reader reader, Map<String, PackageHandler> handlers)
+    throws IOException, ParseException {
+    new JSONParser().parse(reader, new PackageStreamReader(handlers));
+  }
+
+  /**
+   * Opens a buffered UTF-8 reader over a file.
+   *
+   * @param jsonFilepath the file
+   * @return the reader
+   * @throws FileNotFoundException if file path is incorrect
+   */
+  static Reader open(String jsonFilepath) throws FileNotFoundException {
+    return new BufferedReader(
+      new InputStreamReader(new FileInputStream(jsonFilepath), StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  public void startJSON() {
+    this.depth = 0;
+    this.inPackageArray = false;
+  }
+
+  public void endJSON() {}
+
+  public boolean startObject() {
+    this.depth++;
+    if (this.inPackageArray && this.depth == PACKAGE_DEPTH) {
+      this.name = null;
+      this.version = null;
+      this.dependencies.clear();
+    }
+    return true;
+  }
+
+  public boolean endObject() {
+    if (this.inPackageArray && this.depth == PACKAGE_DEPTH && this.name != null) {
+      String[] deps = this.dependencies.toArray(new String[this.dependencies.size()]);
+      this.handler.handlePackage(new Package(this.name, this.version, deps));
+    }
+    this.depth--;
+    return true;
+  }
+
+  public boolean startObjectEntry(String key) {
+    if (this.depth == 1)
+      this.rootKey = key;
+    else if (this.inPackageArray && this.depth == PACKAGE_DEPTH)
+      this.packageKey = key;
+    return true;
+  }
+
+  public boolean endObjectEntry() {
+    if (this.depth == 1)
+      this.rootKey = null;
+    else if (this.depth == PACKAGE_DEPTH)
+      this.packageKey = null;
+    return true;
+  }
+
+  public boolean startArray() {
+    this.depth++;
+    if (this.depth == ARRAY_DEPTH && this.rootKey != null) {
+      this.handler = this.handlers.get(this.rootKey);
+      this.inPackageArray = this.handler != null;
+    }
+    return true;
+  }
+
+  public boolean endArray() {
+    if (this.depth == ARRAY_DEPTH)
+      this.inPackageArray = false;
+    this.depth--;
+    return true;
+  }
+
+  public boolean primitive(Object value) {
+    if (!this.inPackageArray || !(value instanceof String))
+      return true;
+
+    if (this.depth == PACKAGE_DEPTH && "name".equals(this.packageKey))
+      this.name = (String) value;
+    else if (this.depth == PACKAGE_DEPTH && "version".equals(this.packageKey))
+      this.version = (String) value;
+    else if (this.depth == DEPENDENCY_DEPTH && "dependencies".equals(this.packageKey))
+      this.dependencies.add((String) value);
+    return true;
+  }
+}
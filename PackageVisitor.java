@@ -0,0 +1,22 @@
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Receives the packages of an installation order one at a time, see
+ * PackageManager.visitInstallationOrder.
+ */
+public interface PackageVisitor {
+
+  /**
+   * Called once for every package, after all of its dependencies.
+   *
+   * @param pkg the package name
+   */
+  public void visit(String pkg);
+}
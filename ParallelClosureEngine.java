@@ -0,0 +1,438 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Computes the closures of many packages in parallel on a ForkJoinPool.
+ *
+ * For the dependency counts the graph is condensed into its strongly connected components. Every
+ * component becomes a task that runs as soon as the last of its dependency components is done, so
+ * independent parts of the DAG are resolved at the same time and work stealing balances the load.
+ * A component's result is built from the completed results of its dependencies, which every
+ * dependent task shares; a result is released once all of its dependents have used it. The
+ * condensation itself is a single sequential linear-time pass.
+ *
+ * Installation orders are resolved one package per task instead: an order lists every package it
+ * contains, so building the orders of all components would cost as much as the longest orders
+ * times the number of components, even when a single package is asked for. Tasks share the orders
+ * they complete, and the cached ones: a traversal that reaches a package whose order is known
+ * appends that order instead of traversing its dependencies again (see Traversal.useClosures).
+ */
+public class ParallelClosureEngine implements AutoCloseable {
+
+  private final ForkJoinPool pool;
+  private final boolean ownsPool;
+
+  /**
+   * Instantiates an engine with its own pool of the given parallelism.
+   *
+   * @param parallelism the number of worker threads
+   */
+  public ParallelClosureEngine(int parallelism) {
+    this.pool = new ForkJoinPool(parallelism);
+    this.ownsPool = true;
+  }
+
+  /**
+   * Instantiates an engine that runs its tasks on a shared pool, e.g. ForkJoinPool.commonPool().
+   * The pool is not shut down by close.
+   *
+   * @param pool the pool
+   */
+  public ParallelClosureEngine(ForkJoinPool pool) {
+    this.pool = pool;
+    this.ownsPool = false;
+  }
+
+  /**
+   * Returns the parallelism of the pool.
+   *
+   * @return the number of worker threads
+   */
+  public int getParallelism() {
+    return this.pool.getParallelism();
+  }
+
+  /**
+   * Returns the pool the tasks run on, so that other parallel work can share its threads.
+   *
+   * @return the pool
+   */
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+
+  /**
+   * Returns the exact number of transitive dependencies of every package, the same as
+   * DependencyCounter.count.
+   *
+   * @param graph the graph; packages a concurrent graph gains during the call may be left out
+   * @return the counts, in the iteration order of getAllVertices()
+   */
+  public Map<String, Integer> count(GraphADT graph) {
+    final Condensation condensation = new Condensation(graph, graph.getAllVertices());
+    final int[] componentCount = new int[condensation.size()];
+    final AtomicReferenceArray<BitSet> closures =
+      new AtomicReferenceArray<BitSet>(condensation.size());
+
+    run(condensation, new Step() {
+      public void compute(int c) {
+        BitSet closure = new BitSet();
+        for (int d : condensation.dependencies[c]) {
+          BitSet dependency = closures.get(d);
+          if (dependency == null) // a component without dependencies
+            condensation.addMembers(closure, d);
+          else
+            closure.or(dependency);
+        }
+        condensation.addMembers(closure, c);
+
+        componentCount[c] = closure.cardinality() - 1;
+        // dependents read the members of components without dependencies directly
+        if (condensation.dependencies[c].length > 0 && condensation.dependents[c].length > 0)
+          closures.set(c, closure);
+      }
+
+      public void release(int c) {
+        closures.set(c, null);
+      }
+    });
+
+    Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+    for (String pkg : graph.getAllVertices()) {
+      Integer c = condensation.componentOf.get(pkg);
+      if (c != null) // null for a package added since the condensation
+        counts.put(pkg, componentCount[c]);
+    }
+    return counts;
+  }
+
+  /**
+   * Returns a valid installation order for each of the given packages. Every package is resolved
+   * by a depth-first traversal of its own (see Traversal) on a worker of the pool, so the work is
+   * proportional to the orders asked for, however much of the graph they share.
+   *
+   * @param graph the graph
+   * @param packages the packages, all in the graph
+   * @return the installation order of every package, in the iteration order of packages
+   * @throws CycleException if a cycle is reachable from any of the packages, with all such cycles
+   */
+  public Map<String, List<String>> installationOrders(GraphADT graph,
+    Collection<String> packages) throws CycleException {
+    return installationOrders(graph, packages, null);
+  }
+
+  /**
+   * Returns a valid installation order for each of the given packages, like
+   * installationOrders(GraphADT, Collection), taking known orders from a cache of the graph and
+   * caching the orders it resolves. The orders are the ones a sequential traversal finds.
+   *
+   * @param graph the graph
+   * @param packages the packages, all in the graph
+   * @param cache the installation order cache of the graph, or null
+   * @return the installation order of every package, in the iteration order of packages
+   * @throws CycleException if a cycle is reachable from any of the packages, with all such cycles
+   */
+  public Map<String, List<String>> installationOrders(final GraphADT graph,
+    Collection<String> packages, final ClosureCache cache) throws CycleException {
+
+    // read before any order is resolved, so orders of a graph that changed meanwhile are not cached
+    final long version = cache == null ? 0 : cache.getVersion();
+    final Map<String, List<String>> completed = new ConcurrentHashMap<String, List<String>>();
+    final Function<String, List<String>> known = pkg -> {
+      List<String> order = completed.get(pkg);
+      return order != null || cache == null ? order : cache.get(pkg);
+    };
+
+    // on an IndexedGraph completed orders are shared as IDs as well, so appending one needs no
+    // name lookups
+    final IndexedGraph indexed = graph instanceof IndexedGraph ? (IndexedGraph) graph : null;
+    final AtomicReferenceArray<int[]> completedIds =
+      indexed == null ? null : new AtomicReferenceArray<int[]>(indexed.idBound());
+
+    List<String> roots = new ArrayList<String>(new LinkedHashSet<String>(packages));
+    List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>(roots.size());
+    for (final String pkg : roots) {
+      tasks.add(() -> {
+        List<String> order = known.apply(pkg);
+        if (order != null)
+          return order;
+
+        Traversal traversal = Traversal.acquire(graph); // scratch space of the worker thread
+        try {
+          if (completedIds == null)
+            traversal.useClosures(known);
+          else
+            traversal.useClosureIds(id -> id < completedIds.length() ? completedIds.get(id) : null);
+          if (!traversal.visit(pkg))
+            return null; // a cycle
+          order = new ArrayList<String>(traversal.size());
+          traversal.copyTo(order);
+          if (completedIds != null) {
+            int id = indexed.idOf(pkg);
+            if (id < completedIds.length()) {
+              int[] ids = new int[traversal.size()];
+              traversal.copyIds(ids);
+              completedIds.set(id, ids);
+            }
+          }
+        } finally {
+          traversal.release();
+        }
+        order = cache == null ? Collections.unmodifiableList(order) : cache.put(pkg, order, version);
+        completed.put(pkg, order);
+        return order;
+      });
+    }
+
+    Map<String, List<String>> installationOrders = new LinkedHashMap<String, List<String>>();
+    boolean cyclic = false;
+    try {
+      List<Future<List<String>>> orders;
+      try {
+        orders = this.pool.invokeAll(tasks);
+      } catch (RejectedExecutionException e) { // the pool was shut down meanwhile
+        orders = new ArrayList<Future<List<String>>>(tasks.size());
+        for (Callable<List<String>> task : tasks) {
+          FutureTask<List<String>> order = new FutureTask<List<String>>(task);
+          order.run();
+          orders.add(order);
+        }
+      }
+      for (int i = 0; i < roots.size(); i++) {
+        List<String> order = orders.get(i).get();
+        cyclic |= order == null;
+        installationOrders.put(roots.get(i), order == null ? null : new ArrayList<String>(order));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while resolving installation orders", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    }
+
+    if (cyclic)
+      throw new CycleException(StronglyConnectedComponents.findCycles(graph, roots));
+    return installationOrders;
+  }
+
+  /**
+   * Shuts the pool down if it is owned by this engine.
+   */
+  public void close() {
+    if (this.ownsPool)
+      this.pool.shutdown();
+  }
+
+  /**
+   * Runs a step for every component once all of its dependency components are done, and releases
+   * the result of a component once all of its dependents are done. If the pool was shut down, the
+   * steps run on the calling thread, dependencies first.
+   */
+  private void run(final Condensation condensation, final Step step) {
+    final int n = condensation.size();
+    if (n == 0)
+      return;
+
+    final AtomicIntegerArray pending = new AtomicIntegerArray(n);
+    final AtomicIntegerArray unused = new AtomicIntegerArray(n);
+    for (int c = 0; c < n; c++) {
+      pending.set(c, condensation.dependencies[c].length);
+      unused.set(c, condensation.dependents[c].length);
+    }
+
+    final CountDownLatch done = new CountDownLatch(n);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    class Task extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      private final int c;
+
+      Task(int c) {
+        this.c = c;
+      }
+
+      protected void compute() {
+        try {
+          if (failure.get() == null)
+            step.compute(this.c);
+        } catch (Throwable e) { // errors too, e.g. an OutOfMemoryError from a closure
+          failure.compareAndSet(null, e);
+        } finally {
+          try {
+            for (int d : condensation.dependencies[this.c]) {
+              if (unused.decrementAndGet(d) == 0)
+                step.release(d);
+            }
+
+            // the last dependency to finish starts the dependent; forked, not joined, so long
+            // chains do not nest. Dependents of a failed step only do this bookkeeping
+            for (int p : condensation.dependents[this.c]) {
+              if (pending.decrementAndGet(p) == 0)
+                new Task(p).fork();
+            }
+          } catch (Throwable e) { // a dependent may not have started: stop waiting for the rest
+            failure.compareAndSet(null, e);
+            while (done.getCount() > 0)
+              done.countDown();
+          } finally {
+            done.countDown();
+          }
+        }
+      }
+    }
+
+    // the components without dependencies are forked by a single task, so the pool either takes
+    // all of them or rejects them all
+    class Start extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      protected void compute() {
+        for (int c = 0; c < n; c++) {
+          if (condensation.dependencies[c].length == 0)
+            new Task(c).fork();
+        }
+      }
+    }
+
+    try {
+      this.pool.execute(new Start());
+    } catch (RejectedExecutionException e) { // the pool was shut down meanwhile
+      for (int c = 0; c < n; c++) {
+        step.compute(c);
+        for (int d : condensation.dependencies[c]) {
+          if (unused.decrementAndGet(d) == 0)
+            step.release(d);
+        }
+      }
+      return;
+    }
+
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while resolving closures", e);
+    }
+    Throwable cause = failure.get();
+    if (cause instanceof Error)
+      throw (Error) cause;
+    if (cause != null) // steps do not throw checked exceptions
+      throw (RuntimeException) cause;
+  }
+
+  /**
+   * Work done for one component.
+   */
+  private interface Step {
+
+    /** Computes the result of a component; the results of its dependencies are complete. */
+    void compute(int c);
+
+    /** Called once all dependents of a component have computed their results. */
+    void release(int c);
+  }
+
+  /**
+   * The strongly connected components reachable from some packages, dependencies first, with the
+   * distinct dependency and dependent components of every component. Built from the adjacency lists
+   * as the component search read them, so that edges added to a concurrent graph in the meantime
+   * cannot point to vertices without a component.
+   */
+  private static class Condensation {
+
+    final List<List<String>> components;
+    final Map<String, Integer> componentOf;
+    final int[] firstPackage; // packages are numbered by component
+    final int[][] dependencies;
+    final int[][] dependents;
+
+    Condensation(GraphADT graph, Collection<String> roots) {
+      Map<String, List<String>> adjacency = new HashMap<String, List<String>>();
+      this.components = StronglyConnectedComponents.find(graph, roots, adjacency);
+      int n = this.components.size();
+
+      this.componentOf = new HashMap<String, Integer>();
+      this.firstPackage = new int[n + 1];
+      for (int c = 0; c < n; c++) {
+        for (String pkg : this.components.get(c))
+          this.componentOf.put(pkg, c);
+        this.firstPackage[c + 1] = this.firstPackage[c] + this.components.get(c).size();
+      }
+
+      this.dependencies = new int[n][];
+      int[] dependentCount = new int[n];
+      int[] seen = new int[n];
+      int[] buffer = new int[16];
+      for (int c = 0; c < n; c++) {
+        int size = 0;
+        for (String pkg : this.components.get(c)) {
+          for (String dep : adjacency.get(pkg)) {
+            int d = this.componentOf.get(dep);
+            if (d == c || seen[d] == c + 1)
+              continue;
+            seen[d] = c + 1;
+            if (size == buffer.length)
+              buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = d;
+            dependentCount[d]++;
+          }
+        }
+        this.dependencies[c] = Arrays.copyOf(buffer, size);
+      }
+
+      this.dependents = new int[n][];
+      for (int c = 0; c < n; c++)
+        this.dependents[c] = new int[dependentCount[c]];
+      for (int c = 0; c < n; c++) {
+        for (int d : this.dependencies[c])
+          this.dependents[d][--dependentCount[d]] = c;
+      }
+    }
+
+    int size() {
+      return this.components.size();
+    }
+
+    /**
+     * Adds the package numbers of a component to a closure.
+     */
+    void addMembers(BitSet closure, int c) {
+      closure.set(this.firstPackage[c], this.firstPackage[c + 1]);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Runs a layered installation plan (see PackageManager.getInstallationLayers) on a thread pool.
+ * 
+ * All packages of a layer are installed concurrently; the next layer starts once the whole layer
+ * has finished. If any installation of a layer fails, the remaining layers are not started.
+ */
+public class ParallelInstaller implements AutoCloseable {
+
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+
+  /**
+   * Instantiates an installer with its own fixed-size thread pool, shut down by close().
+   *
+   * @param threads the number of packages installed at the same time
+   */
+  public ParallelInstaller(int threads) {
+    this.executor = Executors.newFixedThreadPool(threads);
+    this.ownsExecutor = true;
+  }
+
+  /**
+   * Instantiates an installer on a caller-supplied executor, which close() leaves running.
+   *
+   * @param executor the executor running the installations
+   */
+  public ParallelInstaller(ExecutorService executor) {
+    this.executor = executor;
+    this.ownsExecutor = false;
+  }
+
+  /**
+   * Installs all packages of a layered installation plan, layer by layer.
+   *
+   * @param layers the installation layers, each layer depends only on earlier layers
+   * @param installer installs a single package
+   * @throws ExecutionException if an installation failed, wrapping the first failure of the layer
+   * @throws InterruptedException if interrupted while waiting for a layer
+   */
+  public void install(List<List<String>> layers, final PackageInstaller installer)
+    throws ExecutionException, InterruptedException {
+
+    for (List<String> layer : layers) {
+      List<Future<?>> installations = new ArrayList<Future<?>>(layer.size());
+      for (final String pkg : layer) {
+        installations.add(this.executor.submit(() -> {
+          installer.install(pkg);
+          return null;
+        }));
+      }
+
+      // wait for the whole layer, then report its first failure
+      ExecutionException failure = null;
+      for (Future<?> installation : installations) {
+        try {
+          installation.get();
+        } catch (ExecutionException e) {
+          if (failure == null)
+            failure = e;
+        }
+      }
+      if (failure != null)
+        throw failure;
+    }
+  }
+
+  /**
+   * Shuts down the thread pool if it was created by this installer.
+   */
+  public void close() {
+    if (this.ownsExecutor)
+      this.executor.shutdown();
+  }
+}
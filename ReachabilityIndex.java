@@ -0,0 +1,421 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Answers "does package a transitively depend on package b" without computing installation orders.
+ *
+ * The graph is condensed into its strongly connected components (see StronglyConnectedComponents),
+ * which are emitted dependencies first. Then one of two labelings is built:
+ *
+ * - up to bitsetLimit components, every component gets a bit set of all the components it reaches,
+ * built in that order as the union of its dependencies' bit sets. A query is a single bit test.
+ *
+ * - above it, every component gets two interval labels from two depth-first traversals in opposite
+ * child order (GRAIL): a component that reaches another contains the other's intervals. Most
+ * negative queries are answered by the labels alone. Components in the same depth-first subtree
+ * have contiguous post-order numbers, which answers most positive queries. The others run a
+ * depth-first search that skips every component whose labels rule it out and stops at the first
+ * subtree containing the target. Labels take O(components) memory.
+ *
+ * Registered as a GraphListener, the index stays consistent with the graph. Added vertices and
+ * added edges that do not close a cycle are applied to the bit sets in place: the new reachable
+ * components are added to the changed component and to every component that reaches it. Any other
+ * change, e.g. a removal, marks the index stale and it is rebuilt on the next query.
+ */
+public class ReachabilityIndex implements GraphListener {
+
+  /** Default maximum number of components labeled with bit sets, at most 32 MB of bits. */
+  public static final int DEFAULT_BITSET_LIMIT = 1 << 14;
+
+  private final GraphADT graph;
+  private final int bitsetLimit;
+
+  private boolean stale;
+
+  // component and out-degree of every vertex as of the last build or update
+  private Map<String, Node> nodes;
+  private BitSet cyclic;
+
+  // bit set labels, by component; null when the interval labels are used
+  private List<BitSet> reach;
+
+  // interval labels of both traversals: smallest reachable post order, first post order in the
+  // depth-first subtree and post order; and the component DAG
+  private int[][] low;
+  private int[][] first;
+  private int[][] post;
+  private int[][] componentDependencies;
+  private int[] visited;
+  private int visit;
+
+  /**
+   * Instantiates an index of a graph with the default bit set limit. The index is built on the
+   * first query.
+   *
+   * @param graph the graph
+   */
+  public ReachabilityIndex(GraphADT graph) {
+    this(graph, DEFAULT_BITSET_LIMIT);
+  }
+
+  /**
+   * Instantiates an index of a graph. The index is built on the first query.
+   *
+   * @param graph the graph
+   * @param bitsetLimit the maximum number of components to label with bit sets
+   */
+  public ReachabilityIndex(GraphADT graph, int bitsetLimit) {
+    this.graph = graph;
+    this.bitsetLimit = bitsetLimit;
+    this.stale = true;
+  }
+
+  /**
+   * Returns whether package a depends on package b directly or transitively. A package only depends
+   * on itself if it is part of a cycle.
+   *
+   * @param a the dependent package
+   * @param b the dependency
+   * @return true if b is in the dependencies of a, false if not or if either is not in the graph
+   */
+  public synchronized boolean dependsOn(String a, String b) {
+    if (this.stale)
+      rebuild();
+
+    Node from = this.nodes.get(a);
+    Node to = this.nodes.get(b);
+    if (from == null || to == null)
+      return false;
+
+    if (from.component == to.component)
+      return this.cyclic.get(from.component);
+    if (this.reach != null)
+      return this.reach.get(from.component).get(to.component);
+    return reachable(from.component, to.component);
+  }
+
+  /**
+   * Returns whether the bit set labeling is used, i.e. the graph had at most bitsetLimit components
+   * when the index was last built.
+   *
+   * @return true for bit set labels, false for interval labels
+   */
+  public synchronized boolean usesBitsets() {
+    if (this.stale)
+      rebuild();
+    return this.reach != null;
+  }
+
+  /**
+   * Returns whether the index has to be rebuilt before the next query.
+   *
+   * @return true if stale
+   */
+  public synchronized boolean isStale() {
+    return this.stale;
+  }
+
+  /**
+   * Rebuilds the index from the graph.
+   */
+  public synchronized void rebuild() {
+    // the component DAG is built from the adjacency lists the search read: edges added since
+    // then are applied through vertexChanged
+    Map<String, List<String>> adjacency = new HashMap<String, List<String>>();
+    List<List<String>> components =
+      StronglyConnectedComponents.find(this.graph, this.graph.getAllVertices(), adjacency);
+    int n = components.size();
+
+    this.nodes = new HashMap<String, Node>();
+    for (int c = 0; c < n; c++) {
+      for (String pkg : components.get(c))
+        this.nodes.put(pkg, new Node(c, 0));
+    }
+
+    // distinct dependency components of every component; cycles are components with an inner edge
+    this.cyclic = new BitSet(n);
+    int[][] dependencies = new int[n][];
+    int[] seen = new int[n];
+    int[] buffer = new int[16];
+    for (int c = 0; c < n; c++) {
+      List<String> members = components.get(c);
+      if (members.size() > 1)
+        this.cyclic.set(c);
+
+      int size = 0;
+      for (String pkg : members) {
+        List<String> adjacent = adjacency.get(pkg);
+        this.nodes.get(pkg).degree = adjacent.size();
+        for (String dep : adjacent) {
+          int d = this.nodes.get(dep).component;
+          if (d == c)
+            this.cyclic.set(c);
+          if (d == c || seen[d] == c + 1)
+            continue;
+          seen[d] = c + 1;
+          if (size == buffer.length)
+            buffer = Arrays.copyOf(buffer, size * 2);
+          buffer[size++] = d;
+        }
+      }
+      dependencies[c] = Arrays.copyOf(buffer, size);
+    }
+
+    if (n <= this.bitsetLimit) {
+      // dependencies first: every dependency's bit set is complete before it is used
+      this.reach = new ArrayList<BitSet>(n);
+      for (int c = 0; c < n; c++) {
+        BitSet bits = new BitSet();
+        bits.set(c);
+        for (int d : dependencies[c])
+          bits.or(this.reach.get(d));
+        this.reach.add(bits);
+      }
+      this.low = null;
+      this.first = null;
+      this.post = null;
+      this.componentDependencies = null;
+      this.visited = null;
+    } else {
+      this.reach = null;
+      this.componentDependencies = dependencies;
+      this.low = new int[2][n];
+      this.first = new int[2][n];
+      this.post = new int[2][n];
+      label(0, false);
+      label(1, true);
+      this.visited = new int[n];
+      this.visit = 0;
+    }
+
+    this.stale = false;
+  }
+
+  /**
+   * Assigns the interval labels of one depth-first traversal over the component DAG: post is the
+   * post-order number of a component, first the smallest post-order number in its depth-first
+   * subtree and low the smallest post-order number it reaches.
+   *
+   * @param t the traversal, 0 or 1
+   * @param reversed whether dependencies are visited last to first
+   */
+  private void label(int t, boolean reversed) {
+    int n = this.componentDependencies.length;
+    int[] low = this.low[t];
+    int[] first = this.first[t];
+    int[] post = this.post[t];
+    boolean[] started = new boolean[n];
+    int[] stack = new int[n];
+    int[] next = new int[n];
+    int counter = 0;
+
+    // dependents come last, so starting from the end visits the sources first
+    for (int root = n - 1; root >= 0; root--) {
+      if (started[root])
+        continue;
+
+      int top = 0;
+      stack[0] = root;
+      next[0] = 0;
+      started[root] = true;
+      first[root] = counter;
+
+      while (top >= 0) {
+        int c = stack[top];
+        int[] deps = this.componentDependencies[c];
+
+        if (next[top] < deps.length) {
+          int i = next[top]++;
+          int d = deps[reversed ? deps.length - 1 - i : i];
+          if (!started[d]) {
+            started[d] = true;
+            first[d] = counter;
+            stack[++top] = d;
+            next[top] = 0;
+          }
+        } else {
+          post[c] = counter++;
+          low[c] = post[c];
+          for (int d : deps)
+            low[c] = Math.min(low[c], low[d]);
+          top--;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether the intervals of component a contain the intervals of component b in both
+   * traversals, which is necessary for a to reach b.
+   */
+  private boolean contains(int a, int b) {
+    for (int t = 0; t < 2; t++) {
+      if (this.low[t][a] > this.low[t][b] || this.post[t][b] > this.post[t][a])
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether component b is in the depth-first subtree of component a in either traversal,
+   * which is sufficient for a to reach b.
+   */
+  private boolean inSubtree(int a, int b) {
+    for (int t = 0; t < 2; t++) {
+      if (this.first[t][a] <= this.post[t][b] && this.post[t][b] <= this.post[t][a])
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Interval label query: a depth-first search from component a that only enters components whose
+   * labels can contain b.
+   */
+  private boolean reachable(int a, int b) {
+    if (!contains(a, b))
+      return false;
+    if (inSubtree(a, b))
+      return true;
+
+    if (++this.visit == 0) { // stamps wrapped around
+      Arrays.fill(this.visited, 0);
+      this.visit = 1;
+    }
+
+    int[] stack = new int[16];
+    int top = 0;
+    stack[0] = a;
+    this.visited[a] = this.visit;
+
+    while (top >= 0) {
+      int c = stack[top--];
+      for (int d : this.componentDependencies[c]) {
+        if (d == b || inSubtree(d, b))
+          return true;
+        if (this.visited[d] == this.visit || !contains(d, b))
+          continue;
+        this.visited[d] = this.visit;
+        if (++top == stack.length)
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[top] = d;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Applies an added vertex or added edges of a vertex to the bit sets, or marks the index stale.
+   *
+   * @param vertex the vertex that changed
+   */
+  public synchronized void vertexChanged(String vertex) {
+    if (this.stale)
+      return;
+    if (this.reach == null) { // interval labels are not updated in place
+      this.stale = true;
+      return;
+    }
+
+    Node node = this.nodes.get(vertex);
+    if (node == null) { // a new vertex
+      addComponent(vertex);
+      return;
+    }
+
+    List<String> adjacent = this.graph.getAdjacentVerticesOf(vertex);
+    int degree = adjacent == null ? 0 : adjacent.size();
+    // no new dependency: a vertex about to be removed, or a removed edge
+    if (degree <= node.degree) {
+      this.stale |= degree != node.degree || this.graph.getAllVertices().contains(vertex);
+      return;
+    }
+
+    BitSet added = new BitSet();
+    for (String dep : adjacent) {
+      Node to = this.nodes.get(dep);
+      if (to == null && (to = addComponent(dep)) == null)
+        return;
+      if (to.component == node.component) {
+        this.cyclic.set(node.component); // a self-loop
+      } else if (this.reach.get(to.component).get(node.component)) {
+        this.stale = true; // the new edge closes a cycle: components merge
+        return;
+      }
+      added.or(this.reach.get(to.component));
+    }
+    node.degree = degree;
+
+    BitSet own = this.reach.get(node.component);
+    added.andNot(own);
+    if (added.isEmpty())
+      return;
+
+    // everything that reaches the vertex now also reaches the new components
+    for (BitSet bits : this.reach) {
+      if (bits != own && bits.get(node.component))
+        bits.or(added);
+    }
+    own.or(added);
+  }
+
+  /**
+   * Marks the index stale after a removal.
+   *
+   * @param vertex the removed vertex
+   */
+  public synchronized void vertexRemoved(String vertex) {
+    this.stale = true;
+  }
+
+  /**
+   * Adds a component for a vertex that is not indexed yet and has no dependencies, or marks the
+   * index stale if it has some.
+   *
+   * @param vertex the vertex
+   * @return its node, or null if the index became stale
+   */
+  private Node addComponent(String vertex) {
+    List<String> adjacent = this.graph.getAdjacentVerticesOf(vertex);
+    if (adjacent != null && !adjacent.isEmpty()) {
+      this.stale = true;
+      return null;
+    }
+
+    int c = this.reach.size();
+    BitSet bits = new BitSet();
+    bits.set(c);
+    this.reach.add(bits);
+
+    Node node = new Node(c, 0);
+    this.nodes.put(vertex, node);
+    return node;
+  }
+
+  /**
+   * Component and indexed out-degree of a vertex.
+   */
+  private static class Node {
+
+    final int component;
+    int degree;
+
+    Node(int component, int degree) {
+      this.component = component;
+      this.degree = degree;
+    }
+  }
+}
@@ -0,0 +1,303 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A resident server that loads the package dependency graph once and answers queries over a
+ * loopback socket, so that clients pay neither JVM startup nor json parsing per query.
+ *
+ * Every connection is served by its own thread: a virtual thread where the runtime has them (Java
+ * 21 and later), otherwise a pooled platform thread. Queries run concurrently on the published
+ * ImmutableGraph; RELOAD builds a new graph off to the side and swaps it in (see
+ * PackageManager.refresh), so queries never wait for a reload. RELOAD rereads the files the server
+ * was started with; naming other files is only accepted if the server was created with
+ * reloadPaths, since any local client could otherwise make it read arbitrary files.
+ *
+ * The protocol is line based, in UTF-8. A request is a command followed by space separated
+ * arguments; the response is one line, "OK" followed by the space separated result, or "ERR",
+ * the kind of error and a message:
+ *
+ * <pre>
+ * ORDER pkg                  installation order of pkg         OK D B C A
+ * TOINSTALL pkg installed    packages to newly install         OK C A
+ * ALL                        installation order of all pkgs    OK D B C A
+ * RELOAD                     reload the index                  OK 4
+ * RELOAD file|glob ...       load others (if reloadPaths)      OK 4
+ * PING                                                         OK
+ * QUIT                       close the connection
+ * </pre>
+ *
+ * For example "ORDER Z" answers "ERR PackageNotFoundException Z".
+ */
+public class ResolverServer implements AutoCloseable {
+
+  private static final Logger LOG = Logger.getLogger(ResolverServer.class.getName());
+
+  /** Port the server listens on by default. */
+  public static final int DEFAULT_PORT = 7400;
+
+  private static final int BACKLOG = 1024;
+
+  private final PackageManager manager;
+  private final ServerSocket serverSocket;
+  private final ExecutorService connections;
+  private final Set<Socket> clients;
+  private final boolean reloadPaths;
+  private volatile List<String> jsonFilepaths;
+
+  /**
+   * Loads the package files and starts listening on a loopback port. Connections are accepted
+   * once start is called.
+   *
+   * @param port the port, 0 for any free port
+   * @param jsonFilepaths the json package files or glob patterns to serve
+   * @throws IOException if the files cannot be loaded or the port cannot be bound
+   * @throws ParseException if a file cannot be parsed
+   */
+  public ResolverServer(int port, Collection<String> jsonFilepaths)
+    throws IOException, ParseException {
+    this(port, jsonFilepaths, false);
+  }
+
+  /**
+   * Loads the package files and starts listening on a loopback port. Connections are accepted
+   * once start is called.
+   *
+   * @param port the port, 0 for any free port
+   * @param jsonFilepaths the json package files or glob patterns to serve
+   * @param reloadPaths whether clients may name the files RELOAD loads instead
+   * @throws IOException if the files cannot be loaded or the port cannot be bound
+   * @throws ParseException if a file cannot be parsed
+   */
+  public ResolverServer(int port, Collection<String> jsonFilepaths, boolean reloadPaths)
+    throws IOException, ParseException {
+    this.reloadPaths = reloadPaths;
+    this.manager = new PackageManager(new CompactGraph());
+    this.manager.refresh(jsonFilepaths);
+    this.jsonFilepaths = new ArrayList<String>(jsonFilepaths);
+    this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    this.connections = newConnectionExecutor();
+    this.clients = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+  }
+
+  /**
+   * Returns an executor that starts a virtual thread per task if the runtime supports them, or
+   * else a cached pool of daemon threads.
+   */
+  private static ExecutorService newConnectionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOG.fine("No virtual threads, serving connections on platform threads");
+      final ThreadFactory threads = Executors.defaultThreadFactory();
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = threads.newThread(task);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the local port
+   */
+  public int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  /**
+   * Returns the package manager that answers the queries.
+   *
+   * @return the package manager
+   */
+  public PackageManager getManager() {
+    return this.manager;
+  }
+
+  /**
+   * Starts accepting connections on a thread of the connection executor and returns.
+   */
+  public void start() {
+    this.connections.execute(this::accept);
+  }
+
+  /**
+   * Accepts connections until the server is closed, serving each on a thread of its own.
+   */
+  private void accept() {
+    while (!this.serverSocket.isClosed()) {
+      try {
+        final Socket client = this.serverSocket.accept();
+        this.clients.add(client);
+        this.connections.execute(() -> serve(client));
+      } catch (SocketException e) { // closed
+        return;
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Could not accept a connection", e);
+      }
+    }
+  }
+
+  /**
+   * Answers the requests of one connection until the client quits or disconnects.
+   */
+  private void serve(Socket client) {
+    try (Socket socket = client;
+      BufferedReader in = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      Writer out = new BufferedWriter(
+        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+      String line;
+      while ((line = in.readLine()) != null) {
+        String request = line.trim();
+        if (request.equals("QUIT"))
+          break;
+        if (request.isEmpty())
+          continue;
+        out.write(handle(request));
+        out.write('\n');
+        out.flush();
+      }
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Connection closed", e);
+    } finally {
+      this.clients.remove(client);
+    }
+  }
+
+  /**
+   * Answers a single request.
+   *
+   * @param request the request line, e.g. "ORDER A"
+   * @return the response line without the line break
+   */
+  public String handle(String request) {
+    String[] words = request.trim().split("\\s+");
+    String command = words[0];
+    List<String> args = Arrays.asList(words).subList(1, words.length);
+
+    try {
+      if (command.equals("ORDER") && args.size() == 1)
+        return ok(this.manager.getInstallationOrder(args.get(0)));
+      if (command.equals("TOINSTALL") && args.size() == 2)
+        return ok(this.manager.toInstall(args.get(0), args.get(1)));
+      if (command.equals("ALL") && args.isEmpty())
+        return ok(this.manager.getInstallationOrderForAllPackages());
+      if (command.equals("RELOAD") && (args.isEmpty() || this.reloadPaths))
+        return "OK " + reload(args);
+      if (command.equals("PING") && args.isEmpty())
+        return "OK";
+      return "ERR BadRequest " + request;
+    } catch (PackageNotFoundException e) {
+      return "ERR PackageNotFoundException " + String.join(" ", args);
+    } catch (Exception e) {
+      String message = String.valueOf(e.getMessage()).replace('\n', ' ').replace('\r', ' ');
+      return "ERR " + e.getClass().getSimpleName() + " " + message;
+    }
+  }
+
+  private static String ok(List<String> packages) {
+    StringBuilder response = new StringBuilder("OK");
+    for (String pkg : packages)
+      response.append(' ').append(pkg);
+    return response.toString();
+  }
+
+  /**
+   * Reloads the package files being served, or replaces them with other files. Queries keep
+   * running on the current graph until the new one is published.
+   *
+   * @param jsonFilepaths the json package files or glob patterns to load instead, empty to reload
+   *        the current ones
+   * @return the number of packages now served
+   * @throws IOException if the files cannot be loaded, in which case the current graph is kept
+   * @throws ParseException if a file cannot be parsed
+   */
+  public synchronized int reload(List<String> jsonFilepaths)
+    throws IOException, ParseException {
+    List<String> paths = jsonFilepaths.isEmpty() ? this.jsonFilepaths : jsonFilepaths;
+    this.manager.refresh(paths);
+    this.jsonFilepaths = new ArrayList<String>(paths);
+    LOG.info("Reloaded " + paths);
+    return this.manager.getGraph().order();
+  }
+
+  /**
+   * Stops accepting connections and closes all open ones.
+   */
+  public void close() throws IOException {
+    this.serverSocket.close();
+    for (Socket client : this.clients)
+      client.close();
+    this.connections.shutdown();
+  }
+
+  /**
+   * Usage: java ResolverServer [-p port] [-r] file-or-glob ...
+   *
+   * -r lets clients name the files RELOAD loads.
+   *
+   * @param args the command line
+   */
+  public static void main(String[] args) {
+    int port = DEFAULT_PORT;
+    boolean reloadPaths = false;
+    List<String> paths = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-p") && i + 1 < args.length)
+        port = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-r"))
+        reloadPaths = true;
+      else
+        paths.add(args[i]);
+    }
+    if (paths.isEmpty()) {
+      System.err.println("Usage: java ResolverServer [-p port] [-r] file-or-glob ...");
+      System.exit(2);
+    }
+
+    try {
+      ResolverServer server = new ResolverServer(port, paths, reloadPaths);
+      System.out.println("Serving " + server.getManager().getGraph().order() + " packages on port "
+        + server.getPort());
+      server.accept(); // connection threads are daemons: accept on the main thread
+    } catch (Exception e) {
+      LOG.log(Level.SEVERE, "Could not start the server", e);
+      System.exit(1);
+    }
+  }
+}
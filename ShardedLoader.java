@@ -0,0 +1,346 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Loads a package dependency graph from many json package files (shards), e.g. one per repository.
+ *
+ * Every file is parsed by one worker of a pool into a buffer of its own: the file's package names
+ * interned to local IDs and its edges as pairs of local IDs. No buffer is shared, so workers never
+ * synchronize. Once all files are parsed the buffers are merged in file order, vertices and edges
+ * are deduplicated, and the result is added to the graph in one step. The graph therefore ends up
+ * exactly as if the files had been loaded one after the other, whatever order the workers finished
+ * in, and is not touched at all if any file fails to load.
+ *
+ * Paths may be glob patterns as understood by java.nio, e.g. "index/*.json" or "index/**.json";
+ * the files matched by a pattern are loaded in lexicographic order.
+ */
+public class ShardedLoader {
+
+  private final ExecutorService pool;
+
+  private int files;
+  private long packages;
+  private long dependencies;
+
+  /**
+   * Instantiates a loader that parses files on the given pool.
+   *
+   * @param pool the pool, null to parse on the calling thread
+   */
+  public ShardedLoader(ExecutorService pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Expands paths and glob patterns to the files they name, without duplicates.
+   *
+   * @param patterns file paths or glob patterns
+   * @return the files, in the order of the patterns and sorted for each pattern
+   * @throws FileNotFoundException if a path does not exist or a pattern matches no file
+   * @throws IOException if a directory cannot be read
+   */
+  public static List<String> expand(Collection<String> patterns) throws IOException {
+    Set<String> files = new LinkedHashSet<String>();
+
+    for (String pattern : patterns) {
+      int glob = firstGlobChar(pattern);
+      if (glob < 0) {
+        if (!new File(pattern).isFile())
+          throw new FileNotFoundException(pattern);
+        files.add(pattern);
+        continue;
+      }
+
+      // walk from the deepest directory without glob characters
+      int slash = pattern.lastIndexOf('/', glob);
+      Path base = Paths.get(slash < 0 ? "" : slash == 0 ? "/" : pattern.substring(0, slash));
+      String rest = pattern.substring(slash + 1);
+      int depth = rest.contains("**") ? Integer.MAX_VALUE : rest.split("/").length;
+      PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+
+      List<String> matches = new ArrayList<String>();
+      if (Files.isDirectory(base)) {
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+          paths.filter(path -> matcher.matches(path) && Files.isRegularFile(path))
+            .forEach(path -> matches.add(path.toString()));
+        }
+      }
+      if (matches.isEmpty())
+        throw new FileNotFoundException("No files match " + pattern);
+
+      matches.sort(null);
+      files.addAll(matches);
+    }
+    return new ArrayList<String>(files);
+  }
+
+  private static int firstGlobChar(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '*' || c == '?' || c == '[' || c == '{')
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds the packages of all files to a graph, like PackageManager.addPackage for every package of
+   * every file in order.
+   *
+   * @param patterns file paths or glob patterns
+   * @param graph the graph, only changed once all files have been parsed
+   * @throws FileNotFoundException if a path does not exist or a pattern matches no file
+   * @throws IOException if a file cannot be read
+   * @throws ParseException if a file cannot be parsed
+   */
+  public void load(Collection<String> patterns, GraphADT graph)
+    throws FileNotFoundException, IOException, ParseException {
+
+    List<String> paths = expand(patterns);
+    List<Shard> shards = read(paths);
+
+    // merge in file order: first occurrences decide the order of vertices and edges
+    Map<String, Integer> ids = new HashMap<String, Integer>();
+    List<String> names = new ArrayList<String>();
+    EdgeSet edges = new EdgeSet();
+    for (Shard shard : shards) {
+      int[] global = new int[shard.names.size()];
+      for (int i = 0; i < global.length; i++) {
+        String name = shard.names.get(i);
+        Integer id = ids.get(name);
+        if (id == null) {
+          id = names.size();
+          ids.put(name, id);
+          names.add(name);
+        }
+        global[i] = id;
+      }
+      for (int i = 0; i < shard.edgeCount; i += 2)
+        edges.add(global[shard.edges[i]], global[shard.edges[i + 1]]);
+
+      this.packages += shard.packages;
+      this.dependencies += shard.dependencies;
+    }
+
+    for (String name : names)
+      graph.addVertex(name);
+    for (int i = 0; i < edges.size; i += 2)
+      graph.addEdge(names.get(edges.order[i]), names.get(edges.order[i + 1]));
+    this.files += paths.size();
+  }
+
+  /**
+   * Parses every file into a buffer of its own, in parallel if there is a pool.
+   */
+  private List<Shard> read(List<String> paths) throws IOException, ParseException {
+    List<Shard> shards = new ArrayList<Shard>();
+    if (this.pool == null || paths.size() < 2) {
+      for (String path : paths)
+        shards.add(read(path));
+      return shards;
+    }
+
+    // a task never throws: a ForkJoinPool would wrap checked exceptions into RuntimeExceptions
+    List<Callable<Shard>> tasks = new ArrayList<Callable<Shard>>();
+    for (final String path : paths) {
+      tasks.add(() -> {
+        try {
+          return read(path);
+        } catch (Exception e) {
+          return new Shard(e);
+        }
+      });
+    }
+
+    try {
+      for (Future<Shard> future : this.pool.invokeAll(tasks))
+        shards.add(future.get());
+    } catch (RejectedExecutionException e) { // the pool was shut down meanwhile
+      shards.clear();
+      for (String path : paths)
+        shards.add(read(path));
+      return shards;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    }
+
+    // report the failure of the first file that failed, as a sequential load would
+    for (Shard shard : shards) {
+      if (shard.failure instanceof IOException)
+        throw (IOException) shard.failure;
+      if (shard.failure instanceof ParseException)
+        throw (ParseException) shard.failure;
+      if (shard.failure instanceof RuntimeException)
+        throw (RuntimeException) shard.failure;
+    }
+    return shards;
+  }
+
+  private static Shard read(String path) throws IOException, ParseException {
+    Shard shard = new Shard(null);
+    PackageStreamReader.read(path, shard);
+    return shard;
+  }
+
+  /**
+   * Returns the number of files loaded so far.
+   *
+   * @return the number of files
+   */
+  public int getFiles() {
+    return this.files;
+  }
+
+  /**
+   * Returns the number of package entries loaded so far.
+   *
+   * @return the number of packages, counting every entry of every file
+   */
+  public long getPackages() {
+    return this.packages;
+  }
+
+  /**
+   * Returns the number of dependencies loaded so far.
+   *
+   * @return the number of dependencies, counting every entry of every file
+   */
+  public long getDependencies() {
+    return this.dependencies;
+  }
+
+  /**
+   * The packages of one file: names interned to local IDs and edges as pairs of local IDs.
+   */
+  private static final class Shard implements PackageHandler {
+
+    final Map<String, Integer> ids = new HashMap<String, Integer>();
+    final List<String> names = new ArrayList<String>();
+    final Exception failure; // why the file could not be loaded, null if it was
+    int[] edges = new int[64];
+    int edgeCount;
+    long packages;
+    long dependencies;
+
+    Shard(Exception failure) {
+      this.failure = failure;
+    }
+
+    public void handlePackage(Package pkg) {
+      int from = intern(pkg.getName());
+      String[] deps = pkg.getDependencies();
+      for (String dep : deps) {
+        if (this.edgeCount + 2 > this.edges.length)
+          this.edges = Arrays.copyOf(this.edges, this.edges.length * 2);
+        this.edges[this.edgeCount++] = from;
+        this.edges[this.edgeCount++] = intern(dep);
+      }
+      this.packages++;
+      this.dependencies += deps.length;
+    }
+
+    private int intern(String name) {
+      Integer id = this.ids.get(name);
+      if (id == null) {
+        id = this.names.size();
+        this.ids.put(name, id);
+        this.names.add(name);
+      }
+      return id;
+    }
+  }
+
+  /**
+   * Distinct edges in the order they were first added, deduplicated with an open addressing table
+   * of (from, to) pairs packed into longs.
+   */
+  private static final class EdgeSet {
+
+    private static final long EMPTY = -1L;
+
+    long[] table = filled(1 << 10);
+    int[] order = new int[1 << 10]; // from, to of every distinct edge
+    int size; // used length of order
+    private int count;
+
+    void add(int from, int to) {
+      long key = (long) from << 32 | (to & 0xffffffffL);
+      int mask = this.table.length - 1;
+      int slot = hash(key) & mask;
+      while (this.table[slot] != EMPTY) {
+        if (this.table[slot] == key)
+          return;
+        slot = (slot + 1) & mask;
+      }
+      this.table[slot] = key;
+
+      if (this.size + 2 > this.order.length)
+        this.order = Arrays.copyOf(this.order, this.order.length * 2);
+      this.order[this.size++] = from;
+      this.order[this.size++] = to;
+
+      if (++this.count * 2 > this.table.length)
+        rehash();
+    }
+
+    private void rehash() {
+      long[] table = this.table;
+      this.table = filled(table.length * 2);
+      int mask = this.table.length - 1;
+      for (long key : table) {
+        if (key == EMPTY)
+          continue;
+        int slot = hash(key) & mask;
+        while (this.table[slot] != EMPTY)
+          slot = (slot + 1) & mask;
+        this.table[slot] = key;
+      }
+    }
+
+    private static long[] filled(int length) {
+      long[] table = new long[length];
+      Arrays.fill(table, EMPTY);
+      return table;
+    }
+
+    private static int hash(long key) {
+      key *= 0x9E3779B97F4A7C15L;
+      return (int) (key ^ (key >>> 32));
+    }
+  }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Tarjan's strongly connected components algorithm over a GraphADT.
+ * 
+ * A strongly connected component is a maximal group of packages that all (transitively) depend on
+ * each other. Every cycle lies inside one component, so a single linear-time pass reports all
+ * cycles. Tarjan's algorithm emits components in reverse topological order of the condensation
+ * graph, i.e. every component comes after all components it depends on, which is a valid
+ * installation order for the groups.
+ * 
+ * The depth-first search uses an explicit stack, so deep dependency chains cannot overflow the Java
+ * stack.
+ */
+public class StronglyConnectedComponents {
+
+  private StronglyConnectedComponents() {}
+
+  /**
+   * Finds the strongly connected components reachable from the given vertices.
+   *
+   * @param graph the graph
+   * @param roots the vertices to start from
+   * @return the components, dependencies first
+   */
+  public static List<List<String>> find(GraphADT graph, Collection<String> roots) {
+    return find(graph, roots, null);
+  }
+
+  /**
+   * Finds the strongly connected components reachable from the given vertices, and records the
+   * adjacency list of every vertex as the search read it.
+   *
+   * Callers that build the component DAG should use the recorded lists rather than read the graph
+   * again: on a graph that changes concurrently (a ConcurrentGraph), a second read may return edges
+   * to vertices the search never saw. Every vertex in a recorded list has a component.
+   *
+   * @param graph the graph
+   * @param roots the vertices to start from
+   * @param adjacency receives the adjacency list of every vertex of the components, null to not
+   *        record them
+   * @return the components, dependencies first
+   */
+  public static List<List<String>> find(GraphADT graph, Collection<String> roots,
+    Map<String, List<String>> adjacency) {
+
+    // vertex -> {index, lowlink}, lowlink is -1 once the vertex is assigned to a component
+    Map<String, int[]> state = new HashMap<String, int[]>();
+    Deque<String> componentStack = new ArrayDeque<String>();
+    Deque<String> path = new ArrayDeque<String>();
+    Deque<Iterator<String>> pending = new ArrayDeque<Iterator<String>>();
+    List<List<String>> components = new ArrayList<List<String>>();
+    int nextIndex = 0;
+
+    for (String root : roots) {
+      if (state.containsKey(root))
+        continue;
+
+      state.put(root, new int[] {nextIndex, nextIndex++});
+      componentStack.push(root);
+      path.push(root);
+      pending.push(iterator(graph, root, adjacency));
+
+      while (!path.isEmpty()) {
+        String v = path.peek();
+        int[] vState = state.get(v);
+        Iterator<String> it = pending.peek();
+
+        if (it.hasNext()) {
+          String w = it.next();
+          int[] wState = state.get(w);
+
+          if (wState == null) { // tree edge
+            state.put(w, new int[] {nextIndex, nextIndex++});
+            componentStack.push(w);
+            path.push(w);
+            pending.push(iterator(graph, w, adjacency));
+          } else if (wState[1] >= 0) { // w is still on the component stack
+            vState[1] = Math.min(vState[1], wState[0]);
+          }
+          continue;
+        }
+
+        path.pop();
+        pending.pop();
+
+        if (vState[1] == vState[0]) { // v is the root of a component
+          List<String> component = new ArrayList<String>();
+          String w;
+          do {
+            w = componentStack.pop();
+            state.get(w)[1] = -1;
+            component.add(w);
+          } while (!w.equals(v));
+          components.add(component);
+        } else {
+          int[] parentState = state.get(path.peek());
+          parentState[1] = Math.min(parentState[1], vState[1]);
+        }
+      }
+    }
+
+    return components;
+  }
+
+  /**
+   * Finds all groups of packages that form a cycle and are reachable from the given vertices.
+   *
+   * @param graph the graph
+   * @param roots the vertices to start from
+   * @return the cyclic components, dependencies first
+   */
+  public static List<List<String>> findCycles(GraphADT graph, Collection<String> roots) {
+    List<List<String>> cycles = new ArrayList<List<String>>();
+    for (List<String> component : find(graph, roots)) {
+      if (isCycle(graph, component))
+        cycles.add(component);
+    }
+    return cycles;
+  }
+
+  /**
+   * Returns whether a component is a cycle: it has more than one vertex, or its single vertex
+   * depends on itself.
+   *
+   * @param graph the graph
+   * @param component a strongly connected component of the graph
+   * @return true if the component is cyclic
+   */
+  public static boolean isCycle(GraphADT graph, List<String> component) {
+    if (component.size() > 1)
+      return true;
+
+    List<String> adjacent = graph.getAdjacentVerticesOf(component.get(0));
+    return adjacent != null && adjacent.contains(component.get(0));
+  }
+
+  private static Iterator<String> iterator(GraphADT graph, String vertex,
+    Map<String, List<String>> adjacency) {
+    List<String> adjacent = graph.getAdjacentVerticesOf(vertex);
+    if (adjacent == null)
+      adjacent = Collections.<String>emptyList();
+    if (adjacency != null)
+      adjacency.put(vertex, adjacent);
+    return adjacent.iterator();
+  }
+}
@@ -0,0 +1,524 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Reusable scratch space of the installation order traversal: the visited marks, the explicit
+ * depth-first stack and the resulting order.
+ *
+ * Every thread keeps one traversal (see acquire), whose arrays only grow, so at steady state a
+ * traversal allocates nothing. Marks carry the number of the traversal that set them, so starting
+ * a new traversal does not clear anything.
+ *
+ * On an IndexedGraph everything is indexed by vertex ID. On other graphs vertices are marked in an
+ * open addressing table of names; their adjacency lists are read by index if they are RandomAccess
+ * and through an iterator otherwise.
+ *
+ * A traversal can be given the installation orders that are already known (see useClosures and
+ * useClosureIds). It then appends the known order of a package instead of traversing its
+ * dependencies again, which gives the same order.
+ */
+public class Traversal {
+
+  private static final byte IN_PROGRESS = 1;
+  private static final byte DONE = 2;
+
+  // results of splice
+  private static final int UNKNOWN = 0;
+  private static final int SPLICED = 1;
+  private static final int CYCLE = 2;
+
+  private static final ThreadLocal<Traversal> CURRENT = new ThreadLocal<Traversal>() {
+    protected Traversal initialValue() {
+      return new Traversal();
+    }
+  };
+
+  private GraphADT graph;
+  private IndexedGraph indexed; // the graph if it is indexed, null otherwise
+  private int epoch; // number of the current traversal
+  private boolean inUse;
+  private Function<String, List<String>> closures; // known installation orders, null if none
+  private IntFunction<int[]> closureIds; // known installation orders as IDs, null if none
+
+  // marks of indexed vertices, by ID
+  private int[] idEpochs;
+  private byte[] idStates;
+
+  // marks of named vertices, an open addressing table; slots of older traversals are free
+  private String[] names;
+  private int[] nameEpochs;
+  private byte[] nameStates;
+  private int nameCount;
+
+  // depth-first stack: vertex, next adjacency position and the adjacency list of named vertices
+  private int[] pathIds;
+  private String[] pathNames;
+  private int[] next;
+  private Object[] adjacency;
+
+  // the installation order
+  private int[] orderIds;
+  private String[] orderNames;
+  private int size;
+  private long edges;
+
+  private Traversal() {
+    this.idEpochs = new int[0];
+    this.idStates = new byte[0];
+    this.names = new String[16];
+    this.nameEpochs = new int[16];
+    this.nameStates = new byte[16];
+    this.pathIds = new int[16];
+    this.pathNames = new String[16];
+    this.next = new int[16];
+    this.adjacency = new Object[16];
+    this.orderIds = new int[16];
+    this.orderNames = new String[16];
+  }
+
+  /**
+   * Returns the traversal of the calling thread, or a new one if it is in use, e.g. by a query
+   * that called back into the package manager. Must be released after use.
+   *
+   * @param graph the graph to traverse
+   * @return the traversal, with nothing visited
+   */
+  public static Traversal acquire(GraphADT graph) {
+    Traversal traversal = CURRENT.get();
+    if (traversal.inUse)
+      traversal = new Traversal();
+    traversal.inUse = true;
+    traversal.reset(graph);
+    return traversal;
+  }
+
+  /**
+   * Hands the traversal back to its thread. The graph is dropped; the scratch space is kept.
+   */
+  public void release() {
+    this.graph = null;
+    this.indexed = null;
+    this.closures = null;
+    this.closureIds = null;
+    this.inUse = false;
+  }
+
+  /**
+   * Starts a new traversal of a graph: no vertex is visited and the order is empty.
+   *
+   * @param graph the graph
+   */
+  public void reset(GraphADT graph) {
+    this.graph = graph;
+    this.indexed = graph instanceof IndexedGraph ? (IndexedGraph) graph : null;
+    this.closures = null;
+    this.closureIds = null;
+    this.size = 0;
+    this.edges = 0;
+    this.nameCount = 0;
+
+    if (++this.epoch == Integer.MAX_VALUE) { // marks would repeat: clear them
+      Arrays.fill(this.idEpochs, 0);
+      Arrays.fill(this.nameEpochs, 0);
+      this.epoch = 1;
+    }
+
+    if (this.indexed != null && this.idEpochs.length < this.indexed.idBound()) {
+      int length = Math.max(this.indexed.idBound(), this.idEpochs.length * 2);
+      this.idEpochs = Arrays.copyOf(this.idEpochs, length);
+      this.idStates = Arrays.copyOf(this.idStates, length);
+    }
+  }
+
+  /**
+   * Takes the installation orders of packages from a lookup where it has them, instead of
+   * traversing their dependencies. A known order of a package is appended without the packages
+   * visited before; since those include all of their own dependencies, the result is the order
+   * the traversal would have found. Applies until the next reset.
+   *
+   * @param closures returns the installation order of a package, or null if it is not known
+   */
+  public void useClosures(Function<String, List<String>> closures) {
+    this.closures = closures;
+  }
+
+  /**
+   * Takes the installation orders of vertices of an IndexedGraph from a lookup by vertex ID, like
+   * useClosures, without looking up names. Applies until the next reset.
+   *
+   * @param closureIds returns the installation order of a vertex as IDs (see copyIds), or null if
+   *        it is not known
+   */
+  public void useClosureIds(IntFunction<int[]> closureIds) {
+    this.closureIds = closureIds;
+  }
+
+  /**
+   * Marks a package as installed, so the traversal does not enter it.
+   *
+   * @param pkg the package
+   */
+  public void skip(String pkg) {
+    if (this.indexed != null) {
+      int id = this.indexed.idOf(pkg);
+      if (id >= 0)
+        mark(id, DONE);
+    } else {
+      mark(pkg, DONE);
+    }
+  }
+
+  /**
+   * Appends a package and all of its dependencies that were not visited yet to the order, each
+   * after all of its dependencies.
+   *
+   * @param pkg the package, in the graph
+   * @return false if a cycle was found, in which case the order is incomplete
+   */
+  public boolean visit(String pkg) {
+    if (this.indexed != null) {
+      int id = this.indexed.idOf(pkg);
+      return id < 0 || visit(id);
+    }
+    return visitNamed(pkg);
+  }
+
+  private boolean visit(int root) {
+    if (this.idEpochs[root] == this.epoch)
+      return true;
+    int known = splice(root);
+    if (known != UNKNOWN)
+      return known == SPLICED;
+
+    IndexedGraph graph = this.indexed;
+    int top = 0;
+    this.pathIds[0] = root;
+    this.next[0] = 0;
+    mark(root, IN_PROGRESS);
+
+    while (top >= 0) {
+      int id = this.pathIds[top];
+      if (this.next[top] < graph.outDegree(id)) {
+        int dep = graph.adjacentId(id, this.next[top]++);
+        this.edges++;
+        if (this.idEpochs[dep] != this.epoch) { // first visit
+          int spliced = splice(dep);
+          if (spliced == SPLICED)
+            continue;
+          if (spliced == CYCLE)
+            return false;
+          mark(dep, IN_PROGRESS);
+          if (++top == this.pathIds.length)
+            growPath();
+          this.pathIds[top] = dep;
+          this.next[top] = 0;
+        } else if (this.idStates[dep] == IN_PROGRESS) { // back edge
+          return false;
+        }
+      } else { // all dependencies installed
+        this.idStates[id] = DONE;
+        if (this.size == this.orderIds.length)
+          this.orderIds = Arrays.copyOf(this.orderIds, this.size * 2);
+        this.orderIds[this.size++] = id;
+        top--;
+      }
+    }
+    return true;
+  }
+
+  private boolean visitNamed(String root) {
+    if (state(root) != 0)
+      return true;
+    int known = splice(root);
+    if (known != UNKNOWN)
+      return known == SPLICED;
+
+    int top = 0;
+    push(0, root);
+    mark(root, IN_PROGRESS);
+
+    while (top >= 0) {
+      String dep = nextDependency(top);
+      if (dep != null) {
+        this.edges++;
+        byte state = state(dep);
+        if (state == 0) { // first visit
+          int spliced = splice(dep);
+          if (spliced == SPLICED)
+            continue;
+          if (spliced == CYCLE) {
+            clearAdjacency(top);
+            return false;
+          }
+          mark(dep, IN_PROGRESS);
+          if (++top == this.pathNames.length)
+            growPath();
+          push(top, dep);
+        } else if (state == IN_PROGRESS) { // back edge
+          clearAdjacency(top);
+          return false;
+        }
+      } else { // all dependencies installed
+        String pkg = this.pathNames[top];
+        mark(pkg, DONE);
+        if (this.size == this.orderNames.length)
+          this.orderNames = Arrays.copyOf(this.orderNames, this.size * 2);
+        this.orderNames[this.size++] = pkg;
+        this.pathNames[top] = null;
+        this.adjacency[top] = null;
+        top--;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Appends the known installation order of an unvisited vertex, without the packages visited
+   * before. Returns UNKNOWN if its order is not known, and CYCLE if the order contains a package
+   * being visited, which the graph changing since the order was found can cause.
+   */
+  private int splice(int id) {
+    if (this.closureIds != null) {
+      int[] order = this.closureIds.apply(id);
+      if (order == null)
+        return UNKNOWN;
+      for (int member : order) {
+        if (!append(member))
+          return CYCLE;
+      }
+      return SPLICED;
+    }
+
+    if (this.closures == null)
+      return UNKNOWN;
+    List<String> order = this.closures.apply(this.indexed.nameOf(id));
+    if (order == null)
+      return UNKNOWN;
+    for (int i = 0; i < order.size(); i++) {
+      int member = this.indexed.idOf(order.get(i));
+      if (member >= 0 && !append(member)) // below 0 if removed since
+        return CYCLE;
+    }
+    return SPLICED;
+  }
+
+  /**
+   * Appends a vertex of a known order to the order unless it was visited before. Returns false if
+   * it is being visited.
+   */
+  private boolean append(int id) {
+    if (this.idEpochs[id] == this.epoch)
+      return this.idStates[id] != IN_PROGRESS;
+    mark(id, DONE);
+    if (this.size == this.orderIds.length)
+      this.orderIds = Arrays.copyOf(this.orderIds, this.size * 2);
+    this.orderIds[this.size++] = id;
+    return true;
+  }
+
+  /**
+   * Appends the known installation order of an unvisited named vertex, like splice(int).
+   */
+  private int splice(String pkg) {
+    if (this.closures == null)
+      return UNKNOWN;
+    List<String> order = this.closures.apply(pkg);
+    if (order == null)
+      return UNKNOWN;
+
+    for (int i = 0; i < order.size(); i++) {
+      String member = order.get(i);
+      byte state = state(member);
+      if (state == IN_PROGRESS)
+        return CYCLE;
+      if (state == DONE)
+        continue;
+      mark(member, DONE);
+      if (this.size == this.orderNames.length)
+        this.orderNames = Arrays.copyOf(this.orderNames, this.size * 2);
+      this.orderNames[this.size++] = member;
+    }
+    return SPLICED;
+  }
+
+  private void push(int top, String pkg) {
+    List<String> deps = this.graph.getAdjacentVerticesOf(pkg);
+    this.pathNames[top] = pkg;
+    this.next[top] = 0;
+    if (deps == null || deps.isEmpty())
+      this.adjacency[top] = null;
+    else
+      this.adjacency[top] = deps instanceof RandomAccess ? deps : deps.iterator();
+  }
+
+  /**
+   * Returns the next dependency of the named vertex at a stack position, or null if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  private String nextDependency(int top) {
+    Object adjacency = this.adjacency[top];
+    if (adjacency instanceof List) {
+      List<String> deps = (List<String>) adjacency;
+      return this.next[top] < deps.size() ? deps.get(this.next[top]++) : null;
+    }
+    if (adjacency instanceof Iterator) {
+      Iterator<String> deps = (Iterator<String>) adjacency;
+      return deps.hasNext() ? deps.next() : null;
+    }
+    return null;
+  }
+
+  /**
+   * Drops the references to named vertices left on the stack after a cycle was found.
+   */
+  private void clearAdjacency(int top) {
+    Arrays.fill(this.pathNames, 0, top + 1, null);
+    Arrays.fill(this.adjacency, 0, top + 1, null);
+  }
+
+  private void growPath() {
+    int length = this.next.length * 2;
+    this.pathIds = Arrays.copyOf(this.pathIds, length);
+    this.pathNames = Arrays.copyOf(this.pathNames, length);
+    this.next = Arrays.copyOf(this.next, length);
+    this.adjacency = Arrays.copyOf(this.adjacency, length);
+  }
+
+  private void mark(int id, byte state) {
+    this.idEpochs[id] = this.epoch;
+    this.idStates[id] = state;
+  }
+
+  private byte state(String pkg) {
+    int mask = this.names.length - 1;
+    for (int slot = pkg.hashCode() & mask;; slot = (slot + 1) & mask) {
+      if (this.nameEpochs[slot] != this.epoch)
+        return 0;
+      if (this.names[slot].equals(pkg))
+        return this.nameStates[slot];
+    }
+  }
+
+  private void mark(String pkg, byte state) {
+    int mask = this.names.length - 1;
+    int slot = pkg.hashCode() & mask;
+    while (this.nameEpochs[slot] == this.epoch && !this.names[slot].equals(pkg))
+      slot = (slot + 1) & mask;
+
+    if (this.nameEpochs[slot] != this.epoch) { // a new name
+      this.names[slot] = pkg;
+      this.nameEpochs[slot] = this.epoch;
+      if (++this.nameCount * 2 > this.names.length) {
+        this.nameStates[slot] = state;
+        growNames();
+        return;
+      }
+    }
+    this.nameStates[slot] = state;
+  }
+
+  /**
+   * Doubles the name table, keeping the names of the current traversal.
+   */
+  private void growNames() {
+    String[] names = this.names;
+    int[] epochs = this.nameEpochs;
+    byte[] states = this.nameStates;
+
+    int length = names.length * 2;
+    this.names = new String[length];
+    this.nameEpochs = new int[length];
+    this.nameStates = new byte[length];
+    int mask = length - 1;
+    for (int i = 0; i < names.length; i++) {
+      if (epochs[i] != this.epoch)
+        continue;
+      int slot = names[i].hashCode() & mask;
+      while (this.nameEpochs[slot] == this.epoch)
+        slot = (slot + 1) & mask;
+      this.names[slot] = names[i];
+      this.nameEpochs[slot] = this.epoch;
+      this.nameStates[slot] = states[i];
+    }
+  }
+
+  /**
+   * Empties the order, keeping the marks: visited packages stay visited.
+   */
+  public void clearOrder() {
+    if (this.indexed == null)
+      Arrays.fill(this.orderNames, 0, this.size, null);
+    this.size = 0;
+  }
+
+  /**
+   * Returns the graph being traversed.
+   *
+   * @return the graph
+   */
+  public GraphADT getGraph() {
+    return this.graph;
+  }
+
+  /**
+   * Returns the number of packages in the order.
+   *
+   * @return the size of the order
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns a package of the order.
+   *
+   * @param index the position in the order
+   * @return the package name
+   */
+  public String get(int index) {
+    return this.indexed != null ? this.indexed.nameOf(this.orderIds[index]) : this.orderNames[index];
+  }
+
+  /**
+   * Appends the order to a list.
+   *
+   * @param list the list
+   */
+  public void copyTo(List<String> list) {
+    for (int i = 0; i < this.size; i++)
+      list.add(get(i));
+  }
+
+  /**
+   * Copies the vertex IDs of the order of an indexed graph.
+   *
+   * @param buffer receives up to buffer.length IDs
+   * @return the number of IDs in the order, possibly more than were copied
+   */
+  public int copyIds(int[] buffer) {
+    System.arraycopy(this.orderIds, 0, buffer, 0, Math.min(this.size, buffer.length));
+    return this.size;
+  }
+
+  /**
+   * Returns the number of dependency edges followed so far.
+   *
+   * @return the number of edges
+   */
+  public long getEdges() {
+    return this.edges;
+  }
+}
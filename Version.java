@@ -0,0 +1,120 @@
+import java.util.Arrays;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A package version made of dot-separated numbers, e.g. "2.1" or "1.0.3".
+ *
+ * Versions are compared number by number, where missing trailing numbers count as 0, so "2.1" and
+ * "2.1.0" are equal. Versions are immutable.
+ */
+public class Version implements Comparable<Version> {
+
+  /** The version of packages that do not give one. */
+  public static final Version ZERO = new Version(new int[] {0});
+
+  private final int[] numbers;
+
+  private Version(int[] numbers) {
+    this.numbers = numbers;
+  }
+
+  /**
+   * Parses a version.
+   *
+   * @param version the version text, e.g. "2.1.0"
+   * @return the version
+   * @throws IllegalArgumentException if the text is not a version
+   */
+  public static Version parse(String version) {
+    String text = version.trim();
+    if (text.isEmpty())
+      throw new IllegalArgumentException("Invalid version: \"" + version + "\"");
+
+    String[] parts = text.split("\\.", -1);
+    int[] numbers = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      try {
+        numbers[i] = Integer.parseInt(parts[i]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid version: \"" + version + "\"");
+      }
+      if (numbers[i] < 0)
+        throw new IllegalArgumentException("Invalid version: \"" + version + "\"");
+    }
+    return new Version(numbers);
+  }
+
+  /**
+   * Returns the number at a position, 0 past the last one.
+   *
+   * @param index the position, 0 for the major version
+   * @return the number
+   */
+  public int get(int index) {
+    return index < this.numbers.length ? this.numbers[index] : 0;
+  }
+
+  /**
+   * Returns the number of given numbers.
+   *
+   * @return the length
+   */
+  public int length() {
+    return this.numbers.length;
+  }
+
+  /**
+   * Returns this version with the number at a position incremented and every later number dropped,
+   * e.g. 1.4.2 bumped at 0 is 2 and bumped at 1 is 1.5.
+   *
+   * @param index the position
+   * @return the bumped version
+   */
+  public Version bump(int index) {
+    int[] numbers = new int[index + 1];
+    for (int i = 0; i < index; i++)
+      numbers[i] = get(i);
+    numbers[index] = get(index) + 1;
+    return new Version(numbers);
+  }
+
+  public int compareTo(Version other) {
+    int length = Math.max(this.numbers.length, other.numbers.length);
+    for (int i = 0; i < length; i++) {
+      int cmp = Integer.compare(get(i), other.get(i));
+      if (cmp != 0)
+        return cmp;
+    }
+    return 0;
+  }
+
+  public boolean equals(Object o) {
+    return o instanceof Version && compareTo((Version) o) == 0;
+  }
+
+  public int hashCode() {
+    // trailing zeros do not change the version
+    int length = this.numbers.length;
+    while (length > 1 && this.numbers[length - 1] == 0)
+      length--;
+    return Arrays.hashCode(Arrays.copyOf(this.numbers, length));
+  }
+
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < this.numbers.length; i++) {
+      if (i > 0)
+        text.append('.');
+      text.append(this.numbers[i]);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * A set of allowed versions, e.g. ">=2.1,<3".
+ *
+ * A range is a list of comparisons that must all hold, separated by ",". Alternatives are separated
+ * by "||". Supported comparisons:
+ *
+ * <pre>
+ * *          any version
+ * 1.2, =1.2  exactly 1.2 (also ==1.2)
+ * !=1.2      anything but 1.2
+ * >1.2 >=1.2 <1.2 <=1.2
+ * ^1.2       compatible: >=1.2,<2 (^0.3 is >=0.3,<0.4)
+ * ~1.2       approximately: >=1.2,<1.3 (~1 is >=1,<2)
+ * </pre>
+ *
+ * Ranges are immutable.
+ */
+public class VersionRange {
+
+  /** Allows every version. */
+  public static final VersionRange ANY = parse("*");
+
+  private static final int EQ = 0;
+  private static final int NE = 1;
+  private static final int LT = 2;
+  private static final int LE = 3;
+  private static final int GT = 4;
+  private static final int GE = 5;
+
+  private static final String[] OPERATORS = {"=", "!=", "<", "<=", ">", ">="};
+
+  private final String text;
+
+  // alternatives of conjunctions; an empty conjunction allows every version
+  private final int[][] operators;
+  private final Version[][] versions;
+
+  private VersionRange(String text, int[][] operators, Version[][] versions) {
+    this.text = text;
+    this.operators = operators;
+    this.versions = versions;
+  }
+
+  /**
+   * Parses a range.
+   *
+   * @param range the range text, e.g. ">=2.1,<3 || ^4"
+   * @return the range
+   * @throws IllegalArgumentException if the text is not a range
+   */
+  public static VersionRange parse(String range) {
+    String[] alternatives = range.split("\\|\\|", -1);
+    int[][] operators = new int[alternatives.length][];
+    Version[][] versions = new Version[alternatives.length][];
+
+    for (int a = 0; a < alternatives.length; a++) {
+      List<Integer> ops = new ArrayList<Integer>();
+      List<Version> bounds = new ArrayList<Version>();
+
+      for (String part : alternatives[a].split(",", -1)) {
+        String comparison = part.trim();
+        if (comparison.equals("*")) {
+          continue;
+        } else if (comparison.isEmpty()) {
+          throw new IllegalArgumentException("Invalid version range: \"" + range + "\"");
+        } else if (comparison.startsWith("^")) {
+          Version version = Version.parse(comparison.substring(1));
+          int index = 0; // first non-zero number, or the last one
+          while (index < version.length() - 1 && version.get(index) == 0)
+            index++;
+          ops.add(GE);
+          bounds.add(version);
+          ops.add(LT);
+          bounds.add(version.bump(index));
+        } else if (comparison.startsWith("~")) {
+          Version version = Version.parse(comparison.substring(1));
+          ops.add(GE);
+          bounds.add(version);
+          ops.add(LT);
+          bounds.add(version.bump(version.length() > 1 ? 1 : 0));
+        } else {
+          int op = EQ;
+          int length = 0;
+          for (int o = 0; o < OPERATORS.length; o++) {
+            if (comparison.startsWith(OPERATORS[o]) && OPERATORS[o].length() > length) {
+              op = o;
+              length = OPERATORS[o].length();
+            }
+          }
+          if (comparison.startsWith("=="))
+            length = 2;
+          ops.add(op);
+          bounds.add(Version.parse(comparison.substring(length)));
+        }
+      }
+
+      operators[a] = new int[ops.size()];
+      for (int i = 0; i < operators[a].length; i++)
+        operators[a][i] = ops.get(i);
+      versions[a] = bounds.toArray(new Version[bounds.size()]);
+    }
+
+    return new VersionRange(range.trim(), operators, versions);
+  }
+
+  /**
+   * Returns whether a version is in this range.
+   *
+   * @param version the version
+   * @return true if allowed
+   */
+  public boolean contains(Version version) {
+    for (int a = 0; a < this.operators.length; a++) {
+      boolean allowed = true;
+      for (int i = 0; allowed && i < this.operators[a].length; i++)
+        allowed = holds(this.operators[a][i], version.compareTo(this.versions[a][i]));
+      if (allowed)
+        return true;
+    }
+    return false;
+  }
+
+  private static boolean holds(int operator, int cmp) {
+    switch (operator) {
+      case EQ:
+        return cmp == 0;
+      case NE:
+        return cmp != 0;
+      case LT:
+        return cmp < 0;
+      case LE:
+        return cmp <= 0;
+      case GT:
+        return cmp > 0;
+      default:
+        return cmp >= 0;
+    }
+  }
+
+  public boolean equals(Object o) {
+    return o instanceof VersionRange && this.text.equals(((VersionRange) o).text);
+  }
+
+  public int hashCode() {
+    return this.text.hashCode();
+  }
+
+  public String toString() {
+    return this.text;
+  }
+}
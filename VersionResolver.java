@@ -0,0 +1,506 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Picks one version of every needed package such that all version ranges are met.
+ *
+ * The search is a backtracking solver over the packages reachable from the requirements:
+ *
+ * - the next package is the open one with the fewest versions left (fail first), and its versions
+ * are tried newest first. A version is skipped if its dependencies rule out a chosen version or
+ * leave a dependency without any version in range. A package whose decision was undone tries its
+ * previous version first when it is decided again (phase saving).
+ *
+ * - every failure carries its conflict set, the chosen packages that caused it. When all versions
+ * of a package fail, the search jumps straight back to the latest package in the conflict set
+ * instead of trying the other versions of packages that had nothing to do with it
+ * (conflict-directed backjumping).
+ *
+ * - the versions of a conflict set are learned as a combination that never works, so the same
+ * conflict is not searched again elsewhere in the tree. Conflicts that do not involve the
+ * requirements hold for every resolution and are kept across calls until the index changes.
+ *
+ * The search keeps its own stack, so deep dependency chains cannot overflow the call stack.
+ */
+public class VersionResolver {
+
+  /** Maximum number of conflicts kept across calls. */
+  public static final int MAX_LEARNED = 1 << 16;
+
+  // source of the requirements; cannot be a package name since names end at '<'
+  private static final String ROOT = "<requirements>";
+
+  private final PackageIndex index;
+
+  // learned conflicts that hold for any requirements, by each of their "name@version" literals
+  private final Map<String, List<Nogood>> learned;
+  private int learnedCount;
+  private int modifications;
+
+  /**
+   * Instantiates a resolver over an index.
+   *
+   * @param index the package versions
+   */
+  public VersionResolver(PackageIndex index) {
+    this.index = index;
+    this.learned = new HashMap<String, List<Nogood>>();
+    this.modifications = index.getModifications();
+  }
+
+  /**
+   * Returns the index the resolver picks versions from.
+   *
+   * @return the index
+   */
+  public PackageIndex getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Returns the number of conflicts learned across calls.
+   *
+   * @return the number of cached conflicts
+   */
+  public synchronized int getLearnedConflicts() {
+    return this.learnedCount;
+  }
+
+  /**
+   * Picks a version of every package needed by the requirements, preferring newer versions.
+   *
+   * @param requirements dependencies with optional version ranges, e.g. "A", "B>=2.1,<3"
+   * @return the chosen version of every needed package, by name
+   * @throws ConflictException if no set of versions meets all requirements
+   * @throws IllegalArgumentException if a requirement has an invalid version range
+   */
+  public Map<String, Version> resolve(String... requirements) throws ConflictException {
+    return resolve(Arrays.asList(requirements));
+  }
+
+  /**
+   * Picks a version of every package needed by the requirements, preferring newer versions.
+   *
+   * @param requirements dependencies with optional version ranges, e.g. "A", "B>=2.1,<3"
+   * @return the chosen version of every needed package, by name
+   * @throws ConflictException if no set of versions meets all requirements
+   * @throws IllegalArgumentException if a requirement has an invalid version range
+   */
+  public synchronized Map<String, Version> resolve(Collection<String> requirements)
+    throws ConflictException {
+
+    if (this.modifications != this.index.getModifications()) { // learned from an older index
+      this.learned.clear();
+      this.learnedCount = 0;
+      this.modifications = this.index.getModifications();
+    }
+
+    Dependency[] root = new Dependency[requirements.size()];
+    int i = 0;
+    for (String requirement : requirements)
+      root[i++] = Dependency.parse(requirement);
+
+    return new Search(root).run();
+  }
+
+  /**
+   * One resolution: the state of every package reached so far, the open packages ordered by the
+   * number of versions they have left and the stack of decisions.
+   */
+  private class Search {
+
+    private final Map<String, Node> nodes;
+    private final TreeSet<Node> open; // constrained but not chosen yet, fewest versions first
+    private final Map<String, List<Nogood>> local; // learned conflicts that involve the root
+    private final Deque<Frame> stack;
+    private long opened;
+
+    private List<Constraint> cause; // requirements of the latest package that failed on its own
+    private String causePackage;
+
+    Search(Dependency[] root) {
+      this.nodes = new HashMap<String, Node>();
+      this.open = new TreeSet<Node>();
+      this.local = new HashMap<String, List<Nogood>>();
+      this.stack = new ArrayDeque<Frame>();
+      addConstraints(ROOT, null, root);
+    }
+
+    Map<String, Version> run() throws ConflictException {
+      Set<String> conflict = null; // conflict set of the failure being backed out of
+
+      while (true) {
+        Frame frame;
+        if (conflict == null) { // decide the next package
+          if (this.open.isEmpty()) {
+            Map<String, Version> solution = new TreeMap<String, Version>();
+            for (Frame decision : this.stack)
+              solution.put(decision.node.name, decision.node.chosen);
+            return solution;
+          }
+          frame = new Frame(this.open.first());
+          this.stack.push(frame);
+        } else {
+          frame = this.stack.peek();
+          if (frame == null)
+            throw new ConflictException(this.causePackage, describe(this.cause));
+
+          unchoose(frame.node);
+          if (!conflict.contains(frame.node.name)) { // not the culprit: skip its other versions
+            this.stack.pop();
+            continue;
+          }
+          conflict.remove(frame.node.name);
+          frame.conflict.addAll(conflict);
+          frame.merged = true;
+          conflict = null;
+        }
+
+        boolean found = false;
+        while (!found && frame.next < frame.candidates.size()) {
+          Version version = frame.candidates.get(frame.next++);
+          Constraint own = excludingItself(frame.node.name, version);
+          if (own != null) { // out whatever else is chosen, so nothing is to blame
+            frame.own.add(own);
+            continue;
+          }
+          Collection<String> clash = check(frame.node, version);
+          if (clash == null) {
+            choose(frame.node, version);
+            found = true;
+          } else {
+            frame.conflict.addAll(clash);
+          }
+        }
+
+        if (!found) {
+          this.stack.pop();
+          if (!frame.merged) {
+            this.cause = new ArrayList<Constraint>(frame.node.ranges);
+            this.cause.addAll(frame.own);
+            this.causePackage = frame.node.name;
+          }
+          learn(frame.conflict);
+          conflict = frame.conflict;
+        }
+      }
+    }
+
+    /**
+     * Returns the dependency of a version on its own package that rules the version out, or null.
+     */
+    private Constraint excludingItself(String name, Version version) {
+      for (Dependency dep : VersionResolver.this.index.getDependencies(name, version)) {
+        if (dep.getName().equals(name) && !dep.getRange().contains(version))
+          return new Constraint(name, version, dep);
+      }
+      return null;
+    }
+
+    /**
+     * Returns the packages whose chosen versions rule out a version, or null if it can be chosen.
+     * The version must not rule itself out.
+     */
+    private Collection<String> check(Node node, Version version) {
+      Dependency[] deps = VersionResolver.this.index.getDependencies(node.name, version);
+      for (Dependency dep : deps) {
+        Version other = dep.getName().equals(node.name) ? null : chosen(dep.getName());
+        if (other != null && !dep.getRange().contains(other))
+          return Collections.singleton(dep.getName());
+      }
+
+      // every dependency that is not chosen yet must keep a version in range
+      for (Dependency dep : deps) {
+        if (dep.getName().equals(node.name) || chosen(dep.getName()) != null)
+          continue;
+        Node other = this.nodes.get(dep.getName());
+        if (!allowsAny(dep, other)) {
+          Set<String> blamed = new HashSet<String>();
+          for (Version excluded : VersionResolver.this.index.getVersions(dep.getName())) {
+            if (dep.getRange().contains(excluded))
+              blamed.add(excluding(other.ranges, excluded).source);
+          }
+          return blamed;
+        }
+      }
+
+      String literal = node.name + '@' + version;
+      Collection<String> clash = check(VersionResolver.this.learned.get(literal), node.name);
+      return clash != null ? clash : check(this.local.get(literal), node.name);
+    }
+
+    /**
+     * Returns whether a version of a dependency is in its range and in all ranges on its package.
+     */
+    private boolean allowsAny(Dependency dep, Node node) {
+      for (Version version : VersionResolver.this.index.getVersions(dep.getName())) {
+        if (dep.getRange().contains(version)
+          && (node == null || excluding(node.ranges, version) == null))
+          return true;
+      }
+      return false;
+    }
+
+    /**
+     * Returns the other packages of the first learned conflict whose other versions are all chosen,
+     * and the root if the conflict involves the requirements.
+     */
+    private Collection<String> check(List<Nogood> nogoods, String name) {
+      if (nogoods == null)
+        return null;
+      for (Nogood nogood : nogoods) {
+        if (holds(nogood, name)) {
+          List<String> names = new ArrayList<String>(Arrays.asList(nogood.names));
+          names.remove(name);
+          if (nogood.involvesRoot)
+            names.add(ROOT);
+          return names;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns whether all versions of a learned conflict but the one of the given package are
+     * chosen.
+     */
+    private boolean holds(Nogood nogood, String except) {
+      for (int i = 0; i < nogood.names.length; i++) {
+        if (!nogood.names[i].equals(except) && !nogood.versions[i].equals(chosen(nogood.names[i])))
+          return false;
+      }
+      return true;
+    }
+
+    /**
+     * Learns that the chosen versions of a conflict set do not work together.
+     */
+    private void learn(Set<String> conflict) {
+      boolean involvesRoot = conflict.contains(ROOT);
+      int size = conflict.size() - (involvesRoot ? 1 : 0);
+      if (size == 0)
+        return;
+      if (!involvesRoot && VersionResolver.this.learnedCount >= MAX_LEARNED)
+        return;
+
+      String[] names = new String[size];
+      Version[] versions = new Version[size];
+      int i = 0;
+      for (String name : conflict) {
+        if (name == ROOT)
+          continue;
+        names[i] = name;
+        versions[i++] = chosen(name);
+      }
+
+      Nogood nogood = new Nogood(names, versions, involvesRoot);
+      Map<String, List<Nogood>> nogoods = involvesRoot ? this.local : VersionResolver.this.learned;
+      for (i = 0; i < size; i++) {
+        String literal = names[i] + '@' + versions[i];
+        List<Nogood> list = nogoods.get(literal);
+        if (list == null)
+          nogoods.put(literal, list = new ArrayList<Nogood>(2));
+        list.add(nogood);
+      }
+      if (!involvesRoot)
+        VersionResolver.this.learnedCount++;
+    }
+
+    private Version chosen(String name) {
+      Node node = this.nodes.get(name);
+      return node == null ? null : node.chosen;
+    }
+
+    private void choose(Node node, Version version) {
+      this.open.remove(node);
+      node.chosen = version;
+      addConstraints(node.name, version,
+        VersionResolver.this.index.getDependencies(node.name, version));
+    }
+
+    private void unchoose(Node node) {
+      Dependency[] deps = VersionResolver.this.index.getDependencies(node.name, node.chosen);
+      // in reverse, so every range is the last one of its package
+      for (int i = deps.length - 1; i >= 0; i--) {
+        Node dep = this.nodes.get(deps[i].getName());
+        boolean queued = dep.chosen == null && this.open.remove(dep);
+        dep.ranges.remove(dep.ranges.size() - 1);
+        if (queued && !dep.ranges.isEmpty())
+          enqueue(dep, false);
+      }
+      node.saved = node.chosen;
+      node.chosen = null;
+      enqueue(node, true);
+    }
+
+    private void addConstraints(String source, Version version, Dependency[] deps) {
+      for (Dependency dep : deps) {
+        Node node = this.nodes.get(dep.getName());
+        if (node == null)
+          this.nodes.put(dep.getName(), node = new Node(dep.getName()));
+
+        boolean queued = node.chosen == null && this.open.remove(node);
+        node.ranges.add(new Constraint(source, version, dep));
+        if (node.chosen == null)
+          enqueue(node, !queued);
+      }
+    }
+
+    /**
+     * Counts the versions of an open package that are in range and queues it. Packages that were
+     * opened last come first among those with as many versions, which keeps dependencies close to
+     * their dependents on the stack.
+     */
+    private void enqueue(Node node, boolean reopened) {
+      if (reopened)
+        node.order = ++this.opened;
+      node.count = 0;
+      for (Version version : VersionResolver.this.index.getVersions(node.name)) {
+        if (excluding(node.ranges, version) == null)
+          node.count++;
+      }
+      this.open.add(node);
+    }
+
+    private List<String> describe(List<Constraint> constraints) {
+      List<String> requirements = new ArrayList<String>(constraints.size());
+      for (Constraint constraint : constraints)
+        requirements.add(constraint.toString());
+      return requirements;
+    }
+  }
+
+  /**
+   * Returns the first of some ranges that does not contain a version, or null if all contain it.
+   */
+  private static Constraint excluding(List<Constraint> ranges, Version version) {
+    for (Constraint constraint : ranges) {
+      if (!constraint.dependency.getRange().contains(version))
+        return constraint;
+    }
+    return null;
+  }
+
+  /**
+   * A package reached by the search: the ranges in effect on it, in the order they were added, and
+   * its chosen version. Open packages are ordered by the number of versions left in range.
+   */
+  private static class Node implements Comparable<Node> {
+
+    final String name;
+    final List<Constraint> ranges;
+    Version chosen;
+    Version saved; // chosen before the search last backed out of it
+    int count; // versions in range, while open
+    long order; // when it was last opened
+
+    Node(String name) {
+      this.name = name;
+      this.ranges = new ArrayList<Constraint>(2);
+    }
+
+    public int compareTo(Node other) {
+      if (this.count != other.count)
+        return Integer.compare(this.count, other.count);
+      return Long.compare(other.order, this.order);
+    }
+  }
+
+  /**
+   * A decision: the versions of a package that are in range, the next one to try, the conflict set
+   * collected from the versions that failed and the dependencies of versions that ruled themselves
+   * out. The conflict set never contains the package itself.
+   */
+  private class Frame {
+
+    final Node node;
+    final List<Version> candidates;
+    final Set<String> conflict;
+    final List<Constraint> own;
+    int next;
+    boolean merged; // a deeper conflict was merged into the conflict set
+
+    Frame(Node node) {
+      this.node = node;
+      this.candidates = new ArrayList<Version>(node.count);
+      this.conflict = new HashSet<String>();
+      this.own = new ArrayList<Constraint>(0);
+
+      // the first source needs the package at all; every version out of range is blamed on the
+      // first range that excludes it. The version chosen before an unrelated decision was undone
+      // is tried first, so backing out does not redo the work below it
+      this.conflict.add(node.ranges.get(0).source);
+      for (Version version : VersionResolver.this.index.getVersions(node.name)) {
+        Constraint excluding = excluding(node.ranges, version);
+        if (excluding == null) {
+          if (version.equals(node.saved))
+            this.candidates.add(0, version);
+          else
+            this.candidates.add(version);
+        }
+        else
+          this.conflict.add(excluding.source);
+      }
+    }
+  }
+
+  /**
+   * A version range on a package required by a chosen version of another package, or by the root.
+   */
+  private static class Constraint {
+
+    final String source;
+    final Version version; // of the source, null for the root
+    final Dependency dependency;
+
+    Constraint(String source, Version version, Dependency dependency) {
+      this.source = source;
+      this.version = version;
+      this.dependency = dependency;
+    }
+
+    public String toString() {
+      if (this.source == ROOT)
+        return "requirement " + this.dependency;
+      return this.source + " " + this.version + " requires " + this.dependency;
+    }
+  }
+
+  /**
+   * Versions of some packages that cannot all be chosen together, under the requirements of the
+   * current call if it involves the root. A conflict found through one that involves the root
+   * involves the root too, so it is never kept across calls.
+   */
+  private static class Nogood {
+
+    final String[] names;
+    final Version[] versions;
+    final boolean involvesRoot;
+
+    Nogood(String[] names, Version[] versions, boolean involvesRoot) {
+      this.names = names;
+      this.versions = versions;
+      this.involvesRoot = involvesRoot;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Minimal microbenchmark runner: warmup and measurement iterations of a fixed minimum duration,
+ * reporting throughput and allocation rate of the measured code.
+ * 
+ * Each iteration calls setup() and run() of a Workload repeatedly; only run() is timed and has its
+ * allocations counted (via the per-thread allocation counter of HotSpot). Anything the measured
+ * code prints to System.out is discarded.
+ */
+public class Benchmark {
+
+  /**
+   * Code under measurement.
+   */
+  public interface Workload {
+
+    /**
+     * Prepares one invocation of run(). Not timed.
+     */
+    default void setup() throws Exception {}
+
+    /**
+     * Runs the measured code once.
+     *
+     * @return the number of operations performed, used for throughput
+     */
+    long run() throws Exception;
+  }
+
+  /** Keeps results alive so the JIT cannot remove the measured code. */
+  public static volatile Object sink;
+
+  private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+    public void write(int b) {}
+
+    public void write(byte[] b, int off, int len) {}
+  });
+
+  private final int warmupIterations;
+  private final int measurementIterations;
+  private final long iterationNanos;
+  private final String filter;
+  private final PrintStream report;
+
+  /**
+   * Instantiates a runner.
+   *
+   * @param warmupIterations iterations run before measuring
+   * @param measurementIterations measured iterations
+   * @param iterationMillis minimum duration of an iteration
+   * @param filter only benchmarks whose name contains this are run, null for all
+   */
+  public Benchmark(int warmupIterations, int measurementIterations, long iterationMillis,
+    String filter) {
+    this.warmupIterations = warmupIterations;
+    this.measurementIterations = measurementIterations;
+    this.iterationNanos = iterationMillis * 1000000L;
+    this.filter = filter;
+    this.report = System.out;
+    this.report.printf("%-48s %14s %10s %14s %12s %10s%n", "Benchmark", "ops/s", "error",
+      "ns/op", "B/op", "MB/s");
+  }
+
+  /**
+   * Runs and reports a benchmark.
+   *
+   * @param name the benchmark name
+   * @param workload the measured code
+   */
+  public void run(String name, Workload workload) {
+    if (this.filter != null && !name.contains(this.filter))
+      return;
+
+    System.setOut(DISCARD);
+    try {
+      for (int i = 0; i < this.warmupIterations; i++)
+        iteration(workload);
+
+      double[] throughput = new double[this.measurementIterations];
+      long totalOps = 0, totalNanos = 0, totalBytes = 0;
+      for (int i = 0; i < this.measurementIterations; i++) {
+        long[] result = iteration(workload);
+        throughput[i] = result[0] * 1e9 / result[1];
+        totalOps += result[0];
+        totalNanos += result[1];
+        totalBytes += result[2];
+      }
+
+      double mean = totalOps * 1e9 / totalNanos;
+      double variance = 0;
+      for (double t : throughput)
+        variance += (t - mean) * (t - mean);
+      double error = Math.sqrt(variance / Math.max(1, throughput.length - 1));
+
+      this.report.printf("%-48s %14.1f %10.1f %14.1f %12s %10s%n", name, mean, error,
+        (double) totalNanos / totalOps,
+        totalBytes < 0 ? "n/a" : String.format("%.1f", (double) totalBytes / totalOps),
+        totalBytes < 0 ? "n/a" : String.format("%.1f", totalBytes * 1e9 / totalNanos / (1 << 20)));
+    } catch (Exception e) {
+      this.report.printf("%-48s FAILED: %s%n", name, e);
+    } finally {
+      System.setOut(this.report);
+    }
+  }
+
+  /**
+   * Runs the workload until the iteration time has passed.
+   *
+   * @return {operations, timed nanoseconds, allocated bytes or -1 if unknown}
+   */
+  private long[] iteration(Workload workload) throws Exception {
+    long ops = 0, nanos = 0, bytes = 0;
+    while (nanos < this.iterationNanos) {
+      workload.setup();
+
+      long allocatedBefore = allocatedBytes();
+      long start = System.nanoTime();
+      ops += workload.run();
+      nanos += System.nanoTime() - start;
+      long allocatedAfter = allocatedBytes();
+
+      bytes = allocatedBefore < 0 || bytes < 0 ? -1 : bytes + allocatedAfter - allocatedBefore;
+    }
+    return new long[] {ops, nanos, bytes};
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+      if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,163 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Synthetic, acyclic package graphs for the benchmarks. Every generator returns the dependency
+ * edges as a list of {package, dependency} pairs; package P0 is always the root that (transitively)
+ * depends on the most packages.
+ */
+public class GraphGenerator {
+
+  private GraphGenerator() {}
+
+  /**
+   * P0 -> P1 -> ... -> P(n-1)
+   */
+  public static List<String[]> chain(int n) {
+    List<String[]> edges = new ArrayList<String[]>(n);
+    for (int i = 0; i < n - 1; i++)
+      edges.add(edge(i, i + 1));
+    return edges;
+  }
+
+  /**
+   * P0 depends directly on all of P1 .. P(n-1).
+   */
+  public static List<String[]> fan(int n) {
+    List<String[]> edges = new ArrayList<String[]>(n);
+    for (int i = 1; i < n; i++)
+      edges.add(edge(0, i));
+    return edges;
+  }
+
+  /**
+   * A ladder of diamonds: P(3k) -> P(3k+1), P(3k+2) -> P(3k+3). Naive traversals without a visited
+   * set take exponential time on it.
+   */
+  public static List<String[]> diamonds(int n) {
+    List<String[]> edges = new ArrayList<String[]>(n * 4 / 3 + 4);
+    for (int top = 0; top + 3 < n; top += 3) {
+      edges.add(edge(top, top + 1));
+      edges.add(edge(top, top + 2));
+      edges.add(edge(top + 1, top + 3));
+      edges.add(edge(top + 2, top + 3));
+    }
+    return edges;
+  }
+
+  /**
+   * Random DAG with about averageDegree dependencies per package. Edges only go from lower to
+   * higher package numbers, mostly to nearby packages, like layered real-world ecosystems.
+   */
+  public static List<String[]> randomDag(int n, int averageDegree, long seed) {
+    Random random = new Random(seed);
+    List<String[]> edges = new ArrayList<String[]>(n * averageDegree);
+    for (int i = 0; i < n - 1; i++) {
+      edges.add(edge(i, i + 1)); // keeps everything reachable from P0
+      int degree = random.nextInt(2 * averageDegree);
+      for (int d = 1; d < degree; d++) {
+        int span = Math.min(n - i - 1, 1 + (int) Math.abs(random.nextGaussian() * 50));
+        edges.add(edge(i, i + 1 + random.nextInt(span)));
+      }
+    }
+    return edges;
+  }
+
+  /**
+   * Random versioned index in the shape of randomDag: every package has the versions 1 .. versions
+   * with the same dependencies. Like releases of an ecosystem that move in lockstep, version v of a
+   * package asks for ">=" v - 1 of its dependencies, but one in ten dependencies is pinned to
+   * "^" v or to the previous major version "^" v - 1, so newer versions of shared dependencies are
+   * often ruled out by some dependents and the resolver has to backtrack. Version 1 accepts every
+   * version of its dependencies, so the index always has a solution.
+   */
+  public static PackageIndex versionedIndex(int n, int versions, int averageDegree, long seed) {
+    Random random = new Random(seed);
+    PackageIndex index = new PackageIndex();
+    for (int i = 0; i < n; i++) {
+      List<String> deps = new ArrayList<String>();
+      if (i < n - 1)
+        deps.add(name(i + 1)); // keeps everything reachable from P0
+      int degree = i < n - 1 ? random.nextInt(2 * averageDegree) : 0;
+      for (int d = 1; d < degree; d++) {
+        int span = Math.min(n - i - 1, 1 + (int) Math.abs(random.nextGaussian() * 50));
+        deps.add(name(i + 1 + random.nextInt(span)));
+      }
+
+      for (int v = 1; v <= versions; v++) {
+        String[] ranges = new String[deps.size()];
+        for (int d = 0; d < ranges.length; d++) {
+          int pin = random.nextInt(20);
+          if (v == 1)
+            ranges[d] = deps.get(d);
+          else if (pin == 0)
+            ranges[d] = deps.get(d) + "^" + (v - 1);
+          else if (pin == 1)
+            ranges[d] = deps.get(d) + "^" + v;
+          else
+            ranges[d] = deps.get(d) + ">=" + (v - 1);
+        }
+        index.add(new Package(name(i), v + ".0", ranges));
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Builds a graph from edges.
+   */
+  public static <G extends GraphADT> G build(G graph, List<String[]> edges) {
+    for (String[] e : edges)
+      graph.addEdge(e[0], e[1]);
+    return graph;
+  }
+
+  /**
+   * Writes edges as a json package file readable by PackageManager.constructGraph. Edges with the
+   * same package must be consecutive, as all generators produce them.
+   */
+  public static void writeJson(List<String[]> edges, String path) throws IOException {
+    try (Writer out = new BufferedWriter(
+      new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16)) {
+      out.write("{\"packages\": [\n");
+      String current = null;
+      for (String[] e : edges) {
+        if (!e[0].equals(current)) {
+          if (current != null)
+            out.write("]},\n");
+          current = e[0];
+          out.write("{\"name\": \"" + current + "\", \"dependencies\": [\"" + e[1] + "\"");
+        } else {
+          out.write(", \"" + e[1] + "\"");
+        }
+      }
+      if (current != null)
+        out.write("]}\n");
+      out.write("]}\n");
+    }
+  }
+
+  static String name(int i) {
+    return "P" + i;
+  }
+
+  private static String[] edge(int from, int to) {
+    return new String[] {name(from), name(to)};
+  }
+}
@@ -0,0 +1,286 @@
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Title: PackageManager
+ * Course: CS400, Spring 2019
+ * Author: Ajmain Naqib
+ * Email: naqib@wisc.edu
+ * Lecturer's Name: Deb Deppeler
+ *
+ */
+
+/**
+ * Benchmarks of the Graph and PackageManager hot paths on synthetic graphs.
+ * 
+ * Usage: java PackageManagerBenchmark [-f filter] [-i iterations] [size ...]
+ * 
+ * Sizes are vertex counts and default to 1000 10000 100000; pass 1000000 for the largest graphs.
+ * Exact dependency counts (getPackageWithMaxDependencies), which need up to one bit per package
+ * for every package being counted, only run up to MAX_EXACT_SIZE; estimates run at every size.
+ * Version resolution, where every package is reached through a chain as deep as the graph, only
+ * runs up to MAX_RESOLVE_SIZE.
+ */
+public class PackageManagerBenchmark {
+
+  private static final int MAX_EXACT_SIZE = 100000;
+  private static final int MAX_RESOLVE_SIZE = 10000;
+  private static final int REMOVED_VERTICES = 1000;
+  private static final int CACHED_QUERIES = 1000;
+  private static final int VERSIONS = 5;
+  private static final int SHARDS = 8;
+
+  public static void main(String[] args) throws Exception {
+    String filter = null;
+    int iterations = 5;
+    List<Integer> sizes = new ArrayList<Integer>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-f"))
+        filter = args[++i];
+      else if (args[i].equals("-i"))
+        iterations = Integer.parseInt(args[++i]);
+      else
+        sizes.add(Integer.parseInt(args[i]));
+    }
+    if (sizes.isEmpty()) {
+      sizes.add(1000);
+      sizes.add(10000);
+      sizes.add(100000);
+    }
+
+    Benchmark benchmark = new Benchmark(3, iterations, 500, filter);
+
+    for (int n : sizes) {
+      run(benchmark, "chain", n, GraphGenerator.chain(n));
+      run(benchmark, "fan", n, GraphGenerator.fan(n));
+      run(benchmark, "diamonds", n, GraphGenerator.diamonds(n));
+      run(benchmark, "random", n, GraphGenerator.randomDag(n, 4, 42));
+      load(benchmark, n, GraphGenerator.randomDag(n, 4, 42));
+      if (n <= MAX_RESOLVE_SIZE)
+        resolve(benchmark, n);
+    }
+  }
+
+  /**
+   * Graph mutation and PackageManager query benchmarks on one graph shape.
+   */
+  private static void run(Benchmark benchmark, String shape, int n, final List<String[]> edges) {
+    final String root = GraphGenerator.name(0);
+    final String middle = GraphGenerator.name(n / 2);
+
+    benchmark.run(shape + "/" + n + "/addEdge/Graph", () -> {
+      Benchmark.sink = GraphGenerator.build(new Graph(), edges);
+      return edges.size();
+    });
+
+    benchmark.run(shape + "/" + n + "/addEdge/CompactGraph", () -> {
+      Benchmark.sink = GraphGenerator.build(new CompactGraph(), edges);
+      return edges.size();
+    });
+
+    benchmark.run(shape + "/" + n + "/addEdge/OffHeapGraph", () -> {
+      Benchmark.sink = GraphGenerator.build(new OffHeapGraph(), edges);
+      return edges.size();
+    });
+
+    benchmark.run(shape + "/" + n + "/addEdge/ConcurrentGraph", () -> {
+      Benchmark.sink = GraphGenerator.build(new ConcurrentGraph(), edges);
+      return edges.size();
+    });
+
+    benchmark.run(shape + "/" + n + "/removeVertex/Graph", new Benchmark.Workload() {
+      private Graph graph;
+
+      public void setup() {
+        this.graph = GraphGenerator.build(new Graph(), edges);
+      }
+
+      public long run() {
+        int removed = Math.min(n, REMOVED_VERTICES);
+        for (int i = 0; i < removed; i++) // P0 first: the hub of the fan
+          this.graph.removeVertex(GraphGenerator.name(i * (n / removed)));
+        return removed;
+      }
+    });
+
+    final Graph graph = GraphGenerator.build(new Graph(), edges);
+    final PackageManager uncached = new PackageManager(graph, 0);
+    final PackageManager cached = new PackageManager(graph);
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder", () -> {
+      Benchmark.sink = uncached.getInstallationOrder(root);
+      return 1;
+    });
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder/cached", () -> {
+      for (int i = 0; i < CACHED_QUERIES; i++)
+        Benchmark.sink = cached.getInstallationOrder(root);
+      return CACHED_QUERIES;
+    });
+
+    // caller-supplied buffers: no allocation at steady state on an IndexedGraph
+    final PackageManager compact = new PackageManager(GraphGenerator.build(new CompactGraph(), edges), 0);
+    final int[] ids = new int[n];
+    final List<String> order = new ArrayList<String>(n);
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder/CompactGraph", () -> {
+      Benchmark.sink = compact.getInstallationOrder(root);
+      return 1;
+    });
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder/ids", () -> {
+      Benchmark.sink = compact.getInstallationOrder(root, ids);
+      return 1;
+    });
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder/list", () -> {
+      compact.getInstallationOrder(root, order);
+      Benchmark.sink = order;
+      return 1;
+    });
+
+    // adjacency off the heap: the same queries, reading direct buffers
+    final PackageManager offHeap = new PackageManager(GraphGenerator.build(new OffHeapGraph(), edges), 0);
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder/OffHeapGraph", () -> {
+      Benchmark.sink = offHeap.getInstallationOrder(root);
+      return 1;
+    });
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrder/OffHeapGraph/ids", () -> {
+      Benchmark.sink = offHeap.getInstallationOrder(root, ids);
+      return 1;
+    });
+
+    benchmark.run(shape + "/" + n + "/dependsOn", () -> {
+      boolean found = false;
+      for (int i = 0; i < CACHED_QUERIES; i++)
+        found ^= cached.dependsOn(GraphGenerator.name(i % n), middle);
+      Benchmark.sink = found;
+      return CACHED_QUERIES;
+    });
+
+    benchmark.run(shape + "/" + n + "/toInstall", () -> {
+      Benchmark.sink = uncached.toInstall(root, middle);
+      return 1;
+    });
+
+    // a batch of package and installed package queries, resolved in parallel
+    final StringBuilder batch = new StringBuilder();
+    for (int i = 0; i < CACHED_QUERIES; i++)
+      batch.append(GraphGenerator.name(i % n)).append(' ')
+        .append(GraphGenerator.name((i * 7919) % n)).append('\n');
+    final int cores = Runtime.getRuntime().availableProcessors();
+    benchmark.run(shape + "/" + n + "/batch", () -> {
+      StringWriter results = new StringWriter();
+      long queries = new BatchResolver(cached, cores).resolve(
+        new StringReader(batch.toString()), results);
+      Benchmark.sink = results;
+      return queries;
+    });
+
+    benchmark.run(shape + "/" + n + "/getInstallationOrderForAllPackages", () -> {
+      Benchmark.sink = uncached.getInstallationOrderForAllPackages();
+      return 1;
+    });
+
+    if (n <= MAX_EXACT_SIZE) {
+      benchmark.run(shape + "/" + n + "/getPackageWithMaxDependencies", () -> {
+        Benchmark.sink = uncached.getPackageWithMaxDependencies();
+        return 1;
+      });
+    }
+
+    if (n <= MAX_EXACT_SIZE) {
+      final PackageManager parallel = new PackageManager(graph, 0);
+      parallel.setParallelism(cores);
+      benchmark.run(shape + "/" + n + "/getDependencyCounts/parallel", () -> {
+        Benchmark.sink = parallel.getDependencyCounts();
+        return 1;
+      });
+    }
+
+    benchmark.run(shape + "/" + n + "/estimateDependencyCounts", () -> {
+      Benchmark.sink = uncached.estimateDependencyCounts(DependencyCounter.DEFAULT_PRECISION);
+      return 1;
+    });
+  }
+
+  /**
+   * VersionResolver benchmarks on a versioned index; throughput is in resolved packages per second.
+   * Each run resolves with a fresh resolver, so no conflicts are learned from earlier runs;
+   * "learned" reuses one resolver and its learned conflicts.
+   */
+  private static void resolve(Benchmark benchmark, int n) {
+    final PackageIndex index = GraphGenerator.versionedIndex(n, VERSIONS, 2, 42);
+    final String root = GraphGenerator.name(0);
+
+    benchmark.run("versions/" + n + "/resolve", () -> {
+      Map<String, Version> solution = new VersionResolver(index).resolve(root);
+      Benchmark.sink = solution;
+      return solution.size();
+    });
+
+    final VersionResolver resolver = new VersionResolver(index);
+    benchmark.run("versions/" + n + "/resolve/learned", () -> {
+      Map<String, Version> solution = resolver.resolve(root);
+      Benchmark.sink = solution;
+      return solution.size();
+    });
+  }
+
+  /**
+   * constructGraph benchmarks; throughput is in dependency edges per second.
+   */
+  private static void load(Benchmark benchmark, int n, final List<String[]> edges)
+    throws Exception {
+    final File json = File.createTempFile("packages-" + n, ".json");
+    json.deleteOnExit();
+    GraphGenerator.writeJson(edges, json.getPath());
+
+    benchmark.run("json/" + n + "/constructGraph/Graph", () -> {
+      PackageManager manager = new PackageManager(new Graph());
+      manager.constructGraph(json.getPath());
+      Benchmark.sink = manager;
+      return edges.size();
+    });
+
+    benchmark.run("json/" + n + "/constructGraph/CompactGraph", () -> {
+      PackageManager manager = new PackageManager(new CompactGraph());
+      manager.constructGraph(json.getPath());
+      Benchmark.sink = manager;
+      return edges.size();
+    });
+
+    // the same edges split into shard files, loaded on one thread and on all cores
+    final List<String> shards = new ArrayList<String>();
+    int shardSize = (edges.size() + SHARDS - 1) / SHARDS;
+    for (int i = 0; i < edges.size(); i += shardSize) {
+      File shard = File.createTempFile("packages-" + n + "-" + shards.size() + "-", ".json");
+      shard.deleteOnExit();
+      GraphGenerator.writeJson(edges.subList(i, Math.min(edges.size(), i + shardSize)),
+        shard.getPath());
+      shards.add(shard.getPath());
+    }
+
+    benchmark.run("json/" + n + "/constructGraph/shards", () -> {
+      PackageManager manager = new PackageManager(new CompactGraph());
+      manager.constructGraph(shards);
+      Benchmark.sink = manager;
+      return edges.size();
+    });
+
+    final int cores = Runtime.getRuntime().availableProcessors();
+    benchmark.run("json/" + n + "/constructGraph/shards/parallel", () -> {
+      PackageManager manager = new PackageManager(new CompactGraph());
+      manager.setParallelism(cores);
+      manager.constructGraph(shards);
+      Benchmark.sink = manager;
+      return edges.size();
+    });
+  }
+}